@@ -1,6 +1,7 @@
 package com.qubular.openhab.binding.vicare;
 
 import com.qubular.openhab.binding.vicare.internal.FeatureService;
+import com.qubular.openhab.binding.vicare.internal.channeltype.ChannelTypeTemplates;
 import com.qubular.openhab.binding.vicare.internal.channeltype.VicareChannelTypeProvider;
 import com.qubular.openhab.binding.vicare.internal.thingtype.VicareThingTypeProvider;
 import com.qubular.vicare.VicareConfiguration;
@@ -11,6 +12,8 @@ import org.openhab.core.thing.type.ThingTypeRegistry;
 import org.osgi.framework.BundleContext;
 import org.osgi.service.cm.ConfigurationAdmin;
 
+import java.util.concurrent.Executor;
+
 public interface VicareServiceProvider {
     VicareService getVicareService();
 
@@ -31,5 +34,13 @@ public interface VicareServiceProvider {
 
     ChannelTypeRegistry getChannelTypeRegistry();
 
+    ChannelTypeTemplates getChannelTypeTemplates();
+
     FeatureService getFeatureService();
+
+    /**
+     * @return The executor on which thing handlers perform their asynchronous work. Its concurrency is bounded and
+     * it is shut down when the binding is deactivated.
+     */
+    Executor getExecutor();
 }
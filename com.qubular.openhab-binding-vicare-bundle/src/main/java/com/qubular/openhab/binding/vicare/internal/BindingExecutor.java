@@ -0,0 +1,202 @@
+package com.qubular.openhab.binding.vicare.internal;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The executor that the binding runs its blocking work on, so that calls to the Viessmann API never occupy threads
+ * of the JVM-wide common pool. Concurrency is bounded; work submitted while all threads are busy is queued, and once
+ * the queue is full it runs on the submitting thread instead, which slows down the submitter rather than dropping
+ * the work.
+ * In virtual thread mode each task runs on its own virtual thread, with the same bounds on how many run at once and
+ * how many wait to run. Virtual threads need a JDK 21 runtime, on older runtimes the platform thread pool is used
+ * instead.
+ */
+public class BindingExecutor implements Executor {
+    private static final Logger logger = LoggerFactory.getLogger(BindingExecutor.class);
+    public static final int DEFAULT_MAX_THREADS = 4;
+    public static final int DEFAULT_MAX_QUEUED = 1000;
+    private static final long SHUTDOWN_TIMEOUT_SECS = 5;
+
+    private final int maxQueued;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger peakQueued = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong ranOnCaller = new AtomicLong();
+    private volatile Delegate delegate;
+
+    /**
+     * @param permits The permits to run a task on a virtual thread, or null for a thread pool.
+     * @param slots   The permits to start a virtual thread, whether it runs or waits for a permit to run.
+     */
+    private record Delegate(ExecutorService executorService, @Nullable Semaphore permits, @Nullable Semaphore slots,
+                            boolean virtual) {
+    }
+
+    public BindingExecutor(int maxThreads, boolean virtualThreads) {
+        this(maxThreads, virtualThreads, DEFAULT_MAX_QUEUED);
+    }
+
+    BindingExecutor(int maxThreads, boolean virtualThreads, int maxQueued) {
+        this.maxQueued = maxQueued;
+        this.delegate = createDelegate(maxThreads, virtualThreads);
+    }
+
+    /**
+     * Replaces the threads that run new work. Work already submitted completes on the old threads.
+     */
+    public void configure(int maxThreads, boolean virtualThreads) {
+        Delegate old = delegate;
+        delegate = createDelegate(maxThreads, virtualThreads);
+        old.executorService().shutdown();
+    }
+
+    private Delegate createDelegate(int maxThreads, boolean virtualThreads) {
+        int threads = Math.max(1, maxThreads);
+        if (virtualThreads) {
+            ExecutorService virtualExecutor = newVirtualThreadPerTaskExecutor();
+            if (virtualExecutor != null) {
+                logger.debug("Running binding I/O on virtual threads, at most {} at once", threads);
+                return new Delegate(virtualExecutor, new Semaphore(threads), new Semaphore(threads + maxQueued), true);
+            }
+            logger.info("Virtual threads are not supported by this Java runtime, using a thread pool instead");
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(maxQueued),
+                r -> {
+                    Thread thread = new Thread(r, "vicare-io-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (r, executor) -> {
+                    if (!executor.isShutdown()) {
+                        ranOnCaller.incrementAndGet();
+                        r.run();
+                    } else {
+                        throw new RejectedExecutionException("Binding executor has been shut down");
+                    }
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return new Delegate(pool, null, null, false);
+    }
+
+    private static @Nullable ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        Delegate current = delegate;
+        peakQueued.accumulateAndGet(queued.incrementAndGet(), Math::max);
+        Runnable task = () -> {
+            queued.decrementAndGet();
+            try {
+                command.run();
+            } finally {
+                completed.incrementAndGet();
+            }
+        };
+        try {
+            Semaphore permits = current.permits();
+            Semaphore slots = current.slots();
+            if (permits == null || slots == null) {
+                current.executorService().execute(task);
+            } else {
+                boolean acquired = slots.tryAcquire();
+                if (!acquired && !current.executorService().isShutdown()) {
+                    // as many tasks are waiting as the thread pool would queue
+                    ranOnCaller.incrementAndGet();
+                    task.run();
+                    return;
+                }
+                try {
+                    current.executorService().execute(() -> {
+                        permits.acquireUninterruptibly();
+                        try {
+                            task.run();
+                        } finally {
+                            permits.release();
+                            slots.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    if (acquired) {
+                        slots.release();
+                    }
+                    throw e;
+                }
+            }
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            if (delegate != current && !delegate.executorService().isShutdown()) {
+                // reconfigured while submitting
+                execute(command);
+                return;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Stops accepting work and waits briefly for work in progress to finish.
+     */
+    public void shutdown() {
+        ExecutorService executorService = delegate.executorService();
+        executorService.shutdown();
+        try {
+            if (!executorService.awaitTermination(SHUTDOWN_TIMEOUT_SECS, TimeUnit.SECONDS)) {
+                logger.debug("Binding executor did not finish in time, interrupting {}", this);
+                executorService.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executorService.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isShutdown() {
+        return delegate.executorService().isShutdown();
+    }
+
+    public boolean isVirtual() {
+        return delegate.virtual();
+    }
+
+    /**
+     * @return The number of tasks waiting to start, including tasks waiting for a virtual thread permit.
+     */
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    public int getPeakQueuedCount() {
+        return peakQueued.get();
+    }
+
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    /**
+     * @return The number of tasks that ran on the submitting thread because the queue was full.
+     */
+    public long getRanOnCallerCount() {
+        return ranOnCaller.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BindingExecutor[virtual=%b, queued=%d, peakQueued=%d, completed=%d, ranOnCaller=%d]",
+                isVirtual(), getQueuedCount(), getPeakQueuedCount(), getCompletedCount(), getRanOnCallerCount());
+    }
+}
@@ -1,6 +1,7 @@
 package com.qubular.openhab.binding.vicare.internal;
 
 import com.qubular.openhab.binding.vicare.VicareServiceProvider;
+import com.qubular.openhab.binding.vicare.internal.channeltype.ChannelTypeTemplates;
 import com.qubular.openhab.binding.vicare.internal.channeltype.VicareChannelTypeProvider;
 import com.qubular.openhab.binding.vicare.internal.thingtype.VicareThingTypeProvider;
 import com.qubular.vicare.VicareConfiguration;
@@ -13,12 +14,24 @@ import org.osgi.framework.BundleContext;
 import org.osgi.service.cm.ConfigurationAdmin;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-@Component(service = VicareServiceProvider.class)
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static java.util.Objects.requireNonNullElse;
+
+@Component(service = VicareServiceProvider.class, configurationPid = "binding.vicare")
 public class BundleServiceProvider implements VicareServiceProvider {
-    @Reference
-    private VicareService vicareService;
+    private static final Logger logger = LoggerFactory.getLogger(BundleServiceProvider.class);
+    public static final String CONFIG_IO_THREADS = "ioThreads";
+    public static final String CONFIG_VIRTUAL_THREADS = "virtualThreads";
+
+    private final VicareService vicareService;
     @Reference
     private ThingRegistry thingRegistry;
     @Reference
@@ -29,6 +42,8 @@ public class BundleServiceProvider implements VicareServiceProvider {
     private ChannelTypeRegistry channelTypeRegistry;
     @Reference
     private VicareChannelTypeProvider channelTypeProvider;
+    @Reference
+    private ChannelTypeTemplates channelTypeTemplates;
     @Reference(target="(component.name=com.qubular.openhab.binding.vicare.internal.thingtype.VicareThingTypeProvider)")
     private ThingTypeProvider vicareThingTypeProvider;
     @Reference
@@ -37,10 +52,37 @@ public class BundleServiceProvider implements VicareServiceProvider {
     private ThingTypeRegistry thingTypeRegistry;
 
     private BundleContext bundleContext;
+    private final BindingExecutor executor;
 
     @Activate
-    public BundleServiceProvider(BundleContext bundleContext) {
+    public BundleServiceProvider(BundleContext bundleContext, Map<String, Object> properties,
+                                 @Reference VicareService vicareService) {
         this.bundleContext = bundleContext;
+        this.vicareService = vicareService;
+        this.executor = new BindingExecutor(getIOThreads(properties), isVirtualThreads(properties));
+        // feature responses are read on the binding's I/O threads too
+        vicareService.setResponseExecutor(executor);
+    }
+
+    @Modified
+    void modified(Map<String, Object> properties) {
+        executor.configure(getIOThreads(properties), isVirtualThreads(properties));
+    }
+
+    @Deactivate
+    void deactivate() {
+        logger.debug("Shutting down {}", executor);
+        vicareService.setResponseExecutor(null);
+        executor.shutdown();
+    }
+
+    private static int getIOThreads(Map<String, Object> properties) {
+        return ((Number) requireNonNullElse(properties.get(CONFIG_IO_THREADS),
+                BindingExecutor.DEFAULT_MAX_THREADS)).intValue();
+    }
+
+    private static boolean isVirtualThreads(Map<String, Object> properties) {
+        return Boolean.parseBoolean(String.valueOf(properties.get(CONFIG_VIRTUAL_THREADS)));
     }
 
     @Override
@@ -93,8 +135,18 @@ public class BundleServiceProvider implements VicareServiceProvider {
         return channelTypeRegistry;
     }
 
+    @Override
+    public ChannelTypeTemplates getChannelTypeTemplates() {
+        return channelTypeTemplates;
+    }
+
     @Override
     public FeatureService getFeatureService() {
         return featureService;
     }
+
+    @Override
+    public Executor getExecutor() {
+        return executor;
+    }
 }
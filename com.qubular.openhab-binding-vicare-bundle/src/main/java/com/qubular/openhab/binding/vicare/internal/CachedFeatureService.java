@@ -3,79 +3,422 @@ package com.qubular.openhab.binding.vicare.internal;
 import com.qubular.vicare.AuthenticationException;
 import com.qubular.vicare.VicareService;
 import com.qubular.vicare.model.Feature;
+import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.core.thing.Thing;
+import org.openhab.core.thing.ThingRegistry;
+import org.openhab.core.thing.ThingRegistryChangeListener;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
 import java.security.InvalidKeyException;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import static com.qubular.openhab.binding.vicare.internal.VicareUtil.decodeThingUniqueId;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Objects.requireNonNullElse;
 
+/**
+ * Caches the features of each thing. The cache is bounded by the number of things, by the estimated size of their
+ * features and by how long ago each thing was last asked for, beyond which the least recently used things are evicted,
+ * and the features of a thing are dropped as soon as the thing is removed.
+ */
 @Component
 public class CachedFeatureService implements FeatureService {
+    private static final Logger logger = LoggerFactory.getLogger(CachedFeatureService.class);
+    static final int DEFAULT_MAX_ENTRIES = 256;
+    static final long DEFAULT_MAX_BYTES = 32 * 1024 * 1024;
+    static final Duration DEFAULT_MAX_AGE = Duration.ofDays(1);
+
     private static class CachedResponse {
 
-        final CompletableFuture<List<Feature>> response;
+        final CompletableFuture<FeatureSnapshot> response;
+        final CompletableFuture<List<Feature>> features;
         final Instant responseTimestamp;
-        public CachedResponse(CompletableFuture<List<Feature>> response, Instant responseTimestamp) {
+        /** Background refresh of an expired response, if one is in flight */
+        final @Nullable CompletableFuture<FeatureSnapshot> refresh;
+        /** When features that were fetched on their own since the response were fetched */
+        final Map<String, Instant> featureTimestamps;
+        /** Whether the response was restored from the previous run rather than fetched by this one */
+        final boolean restored;
+        /** When the thing was last asked for */
+        volatile Instant lastUsed = Instant.now();
+
+        public CachedResponse(CompletableFuture<FeatureSnapshot> response, Instant responseTimestamp,
+                              @Nullable CompletableFuture<FeatureSnapshot> refresh) {
+            this(response, responseTimestamp, refresh, false);
+        }
+
+        private CachedResponse(CompletableFuture<FeatureSnapshot> response, Instant responseTimestamp,
+                               @Nullable CompletableFuture<FeatureSnapshot> refresh, boolean restored) {
             this.response = response;
+            this.features = response.thenApply(FeatureSnapshot::getFeatures);
             this.responseTimestamp = responseTimestamp;
+            this.refresh = refresh;
+            this.featureTimestamps = emptyMap();
+            this.restored = restored;
+        }
+
+        private CachedResponse(CachedResponse expired, @Nullable CompletableFuture<FeatureSnapshot> refresh) {
+            this.response = expired.response;
+            this.features = expired.features;
+            this.responseTimestamp = expired.responseTimestamp;
+            this.refresh = refresh;
+            this.featureTimestamps = expired.featureTimestamps;
+            this.restored = expired.restored;
+            this.lastUsed = expired.lastUsed;
         }
 
+        private CachedResponse(CachedResponse existing, Feature feature, Instant featureTimestamp) {
+            FeatureSnapshot snapshot = existing.response.join();
+            if (snapshot.getFeature(feature.getName()).filter(feature::equals).isPresent()) {
+                this.response = existing.response;
+                this.features = existing.features;
+            } else {
+                this.response = CompletableFuture.completedFuture(snapshot.withFeature(feature));
+                this.features = response.thenApply(FeatureSnapshot::getFeatures);
+            }
+            this.responseTimestamp = existing.responseTimestamp;
+            this.refresh = existing.refresh;
+            Map<String, Instant> featureTimestamps = new HashMap<>(existing.featureTimestamps);
+            featureTimestamps.put(feature.getName(), featureTimestamp);
+            this.featureTimestamps = Collections.unmodifiableMap(featureTimestamps);
+            this.restored = existing.restored;
+            this.lastUsed = existing.lastUsed;
+        }
+
+        boolean isFresh(Instant now, int expiresInSecs) {
+            return now.isBefore(responseTimestamp.plusSeconds(expiresInSecs - 1));
+        }
+
+        boolean isFresh(String featureName, Instant now, int expiresInSecs) {
+            Instant timestamp = featureTimestamps.getOrDefault(featureName, responseTimestamp);
+            return now.isBefore(timestamp.plusSeconds(expiresInSecs - 1));
+        }
+
+        boolean hasFeatures() {
+            return response.isDone() && !response.isCompletedExceptionally();
+        }
+
+        /**
+         * @return Whether no request for the thing is in flight, so that the response may be evicted.
+         */
+        boolean isIdle() {
+            return refresh == null && response.isDone();
+        }
+
+        long estimatedSize() {
+            return hasFeatures() ? response.join().getEstimatedSize() : 0;
+        }
     }
+
     private final VicareService vicareService;
-    private final Map<String, CachedResponse> cachedResponses = new HashMap<>();
+    private final ThingRegistry thingRegistry;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final Duration maxAge;
+    private final ThingRegistryChangeListener thingRegistryChangeListener = new ThingRegistryChangeListener() {
+        @Override
+        public void added(Thing thing) {
+        }
+
+        @Override
+        public void removed(Thing thing) {
+            invalidate(thing);
+        }
+
+        @Override
+        public void updated(Thing oldThing, Thing newThing) {
+        }
+    };
+    private final ConcurrentMap<String, CachedResponse> cachedResponses = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<Optional<Feature>>> featureRequests = new ConcurrentHashMap<>();
+    /** Things whose persisted features have already been considered */
+    private final Set<String> warmStarted = ConcurrentHashMap.newKeySet();
+    private final List<Consumer<Thing>> requestListeners = new CopyOnWriteArrayList<>();
+    private volatile boolean staleWhileRevalidate = true;
+
     @Activate
-    public CachedFeatureService(@Reference VicareService vicareService) {
+    public CachedFeatureService(@Reference VicareService vicareService, @Reference ThingRegistry thingRegistry) {
+        this(vicareService, thingRegistry, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES, DEFAULT_MAX_AGE);
+    }
+
+    /**
+     * @param maxEntries The most things to cache features for.
+     * @param maxBytes   The most estimated bytes of features to cache, across all things.
+     * @param maxAge     How long after a thing was last asked for that its features are evicted.
+     */
+    CachedFeatureService(VicareService vicareService, ThingRegistry thingRegistry, int maxEntries, long maxBytes,
+                         Duration maxAge) {
         this.vicareService = vicareService;
+        this.thingRegistry = thingRegistry;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.maxAge = maxAge;
+        thingRegistry.addRegistryChangeListener(thingRegistryChangeListener);
+    }
+
+    @Deactivate
+    void deactivate() {
+        thingRegistry.removeRegistryChangeListener(thingRegistryChangeListener);
     }
 
     @Override
     public void clear() {
         cachedResponses.clear();
+        featureRequests.clear();
+        warmStarted.clear();
+    }
+
+    /**
+     * Drops the cached features of a thing, such as when it has been removed.
+     */
+    void invalidate(Thing thing) {
+        String key = thing.getUID().getId();
+        warmStarted.remove(key);
+        if (cachedResponses.remove(key) != null) {
+            logger.debug("Dropped cached features of removed thing {}", thing.getUID());
+        }
+    }
+
+    /**
+     * @return The estimated bytes of the features currently cached, across all things.
+     */
+    long getEstimatedSize() {
+        return cachedResponses.values().stream().mapToLong(CachedResponse::estimatedSize).sum();
     }
 
     @Override
-    public CompletableFuture<Optional<Feature>> getFeature(Thing thing, String featureName, int expiresInSecs) {
-        return getFeatures(thing, expiresInSecs)
-                .thenApply(features -> features.stream()
-                        .filter(f -> f.getName().equals(featureName))
-                        .findFirst());
+    public void setStaleWhileRevalidate(boolean staleWhileRevalidate) {
+        this.staleWhileRevalidate = staleWhileRevalidate;
+    }
+
+    @Override
+    public void addRequestListener(Consumer<Thing> listener) {
+        requestListeners.add(listener);
     }
 
     @Override
-    public synchronized CompletableFuture<List<Feature>> getFeatures(Thing thing, int expiresInSecs) {
+    public void removeRequestListener(Consumer<Thing> listener) {
+        requestListeners.remove(listener);
+    }
+
+    private void requestSent(Thing thing) {
+        requestListeners.forEach(listener -> listener.accept(thing));
+    }
+
+    @Override
+    public CompletableFuture<Optional<Feature>> getFeature(Thing thing, String featureName, int expiresInSecs) {
+        warmStart(thing);
         Instant now = Instant.now();
+        CachedResponse cachedResponse = cachedResponses.get(thing.getUID().getId());
+        if (cachedResponse != null && cachedResponse.hasFeatures() && !cachedResponse.isFresh(now, expiresInSecs) &&
+                cachedResponse.isFresh(featureName, now, expiresInSecs)) {
+            // fetched on its own since the response, so there is no need to refresh the whole device for it
+            cachedResponse.lastUsed = now;
+            return cachedResponse.response.thenApply(snapshot -> snapshot.getFeature(featureName));
+        }
+        // otherwise the features are refreshed as a whole, once for all the callers asking for them
+        return getSnapshot(thing, expiresInSecs)
+                .thenApply(snapshot -> snapshot.getFeature(featureName));
+    }
+
+    @Override
+    public CompletableFuture<Optional<Feature>> refreshFeature(Thing thing, String featureName) {
         String key = thing.getUID().getId();
-        CachedResponse response = cachedResponses.get(key);
-        if (response != null && now.isBefore(response.responseTimestamp.plusSeconds(expiresInSecs - 1))) {
-            return response.response;
+        String requestKey = key + "/" + featureName;
+        CompletableFuture<Optional<Feature>> load = new CompletableFuture<>();
+        CompletableFuture<Optional<Feature>> request = featureRequests.putIfAbsent(requestKey, load);
+        if (request != null) {
+            return request;
         }
+        load.whenComplete((feature, e) -> {
+            featureRequests.remove(requestKey, load);
+            if (feature != null && feature.isPresent()) {
+                // A feature that is absent is left for the next full refresh to remove
+                Instant now = Instant.now();
+                cachedResponses.computeIfPresent(key, (k, existing) -> existing.hasFeatures() ?
+                        new CachedResponse(existing, feature.get(), now) : existing);
+            }
+        });
+        VicareUtil.IGD s = decodeThingUniqueId(VicareUtil.getDeviceUniqueId(thing));
+        requestSent(thing);
+        vicareService.getFeatureAsync(s.installationId(), s.gatewaySerial(), s.deviceId(), featureName)
+                .whenComplete((feature, e) -> {
+                    if (e != null) {
+                        load.completeExceptionally(translateException(e));
+                    } else {
+                        load.complete(feature);
+                    }
+                });
+        return load;
+    }
+
+    @Override
+    public CompletableFuture<List<Feature>> getFeatures(Thing thing, int expiresInSecs) {
+        return getCachedResponse(thing, expiresInSecs).features;
+    }
 
+    @Override
+    public CompletableFuture<FeatureSnapshot> getSnapshot(Thing thing, int expiresInSecs) {
+        return getCachedResponse(thing, expiresInSecs).response;
+    }
+
+    @Override
+    public CompletableFuture<FeatureSnapshot> getFreshSnapshot(Thing thing, int expiresInSecs) {
+        CachedResponse cachedResponse = getCachedResponse(thing, expiresInSecs);
+        CompletableFuture<FeatureSnapshot> refresh = cachedResponse.refresh;
+        return refresh != null ? refresh : cachedResponse.response;
+    }
+
+    /**
+     * Seeds the cache for a thing with the features persisted by the previous run, the first time the thing is
+     * asked for, so that they are served straight away while a single refresh brings them up to date.
+     */
+    private void warmStart(Thing thing) {
+        String key = thing.getUID().getId();
+        if (!warmStarted.add(key) || cachedResponses.containsKey(key)) {
+            return;
+        }
         VicareUtil.IGD s = decodeThingUniqueId(VicareUtil.getDeviceUniqueId(thing));
-        CompletableFuture<List<Feature>> features = new CompletableFuture<>();
-        cachedResponses.put(key, new CachedResponse(features, now));
-        features.completeAsync(() -> {
-            try {
-                return vicareService.getFeatures(s.installationId(), s.gatewaySerial(), s.deviceId());
-            } catch (AuthenticationException | IOException e) {
-                if ((e instanceof AuthenticationException) &&
-                        (e.getCause() instanceof InvalidKeyException)) {
-                    features.completeExceptionally(new AuthenticationException("Unable to store access token, please check whether your crypto.policy is set to enable full strength encryption or enable limited encryption in Advanced Settings.", (Exception) e.getCause()));
-                } else {
-                    features.completeExceptionally(e);
-                }
-                return null;
+        vicareService.getPersistedFeatures(s.installationId(), s.gatewaySerial(), s.deviceId())
+                .ifPresent(persisted -> cachedResponses.putIfAbsent(key, new CachedResponse(
+                        CompletableFuture.completedFuture(new FeatureSnapshot(persisted.features, null)),
+                        persisted.timestamp, null, true)));
+    }
+
+    private CachedResponse getCachedResponse(Thing thing, int expiresInSecs) {
+        warmStart(thing);
+        Instant now = Instant.now();
+        String key = thing.getUID().getId();
+        CompletableFuture<FeatureSnapshot> load = new CompletableFuture<>();
+        AtomicReference<CachedResponse> expired = new AtomicReference<>();
+        CachedResponse cachedResponse = cachedResponses.compute(key, (k, existing) -> {
+            if (existing == null) {
+                return new CachedResponse(load, now, null);
+            }
+            if (existing.isFresh(now, expiresInSecs) ||
+                    existing.refresh != null ||
+                    !existing.response.isDone()) {
+                // still valid, or a request for this thing is already in flight
+                return existing;
+            }
+            expired.set(existing);
+            if (staleWhileRevalidate && existing.hasFeatures()) {
+                return new CachedResponse(existing, load);
             }
+            return new CachedResponse(load, now, null);
         });
-        return features;
+
+        // the expired response, if any, is the baseline for the new snapshot's diff
+        FeatureSnapshot previous = Optional.ofNullable(expired.get())
+                .filter(CachedResponse::hasFeatures)
+                .map(r -> r.response.join())
+                .orElse(null);
+        cachedResponse.lastUsed = now;
+        if (cachedResponse.refresh == load) {
+            // Serve the expired features until the refresh completes, then swap it in, or keep serving them if it
+            // fails so that the next caller tries again
+            load.whenComplete((features, e) -> {
+                if (e != null) {
+                    logger.debug("Unable to refresh features of {}, serving the expired ones", thing.getUID(), e);
+                }
+                cachedResponses.computeIfPresent(key, (k, existing) -> existing.refresh != load ? existing :
+                        e != null ? new CachedResponse(existing, null) : new CachedResponse(load, now, null));
+                evict(Instant.now());
+            });
+            fetchFeatures(thing, load, previous);
+        } else if (cachedResponse.response == load) {
+            // A failure is reported to the callers waiting for it, but the next caller tries again
+            load.whenComplete((features, e) -> {
+                if (e != null) {
+                    cachedResponses.remove(key, cachedResponse);
+                }
+                evict(Instant.now());
+            });
+            fetchFeatures(thing, load, previous);
+        }
+        return cachedResponse;
+    }
+
+    /**
+     * Evicts the responses of things that have not been asked for within the maximum age, and then the least
+     * recently used responses until the cache is within its bounds. Responses with a request in flight are kept.
+     */
+    private void evict(Instant now) {
+        record Candidate(String key, CachedResponse cachedResponse, Instant lastUsed, long size) {
+        }
+        Instant oldest = now.minus(maxAge);
+        List<Candidate> candidates = new ArrayList<>();
+        long size = 0;
+        for (Map.Entry<String, CachedResponse> entry : cachedResponses.entrySet()) {
+            CachedResponse cachedResponse = entry.getValue();
+            Instant lastUsed = cachedResponse.lastUsed;
+            long entrySize = cachedResponse.estimatedSize();
+            if (!cachedResponse.isIdle()) {
+                size += entrySize;
+            } else if (lastUsed.isBefore(oldest)) {
+                if (cachedResponses.remove(entry.getKey(), cachedResponse)) {
+                    logger.debug("Evicted cached features of {}, unused since {}", entry.getKey(), lastUsed);
+                }
+            } else {
+                size += entrySize;
+                candidates.add(new Candidate(entry.getKey(), cachedResponse, lastUsed, entrySize));
+            }
+        }
+        candidates.sort(Comparator.comparing(Candidate::lastUsed));
+        for (Candidate candidate : candidates) {
+            if (cachedResponses.size() <= maxEntries && size <= maxBytes) {
+                break;
+            }
+            if (cachedResponses.remove(candidate.key(), candidate.cachedResponse())) {
+                size -= candidate.size();
+                logger.debug("Evicted cached features of {}, {} bytes", candidate.key(), candidate.size());
+            }
+        }
+    }
+
+    private void fetchFeatures(Thing thing, CompletableFuture<FeatureSnapshot> features,
+                               @Nullable FeatureSnapshot previous) {
+        VicareUtil.IGD s = decodeThingUniqueId(VicareUtil.getDeviceUniqueId(thing));
+        requestSent(thing);
+        // the response is decoded and diffed on the service's response executor, no thread waits for it
+        vicareService.getFeaturesAsync(s.installationId(), s.gatewaySerial(), s.deviceId())
+                .whenComplete((featureList, e) -> {
+                    if (e != null) {
+                        features.completeExceptionally(translateException(e));
+                    } else {
+                        features.complete(new FeatureSnapshot(requireNonNullElse(featureList, emptyList()), previous));
+                    }
+                });
+    }
+
+    private static Throwable translateException(Throwable t) {
+        Throwable e = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+        if ((e instanceof AuthenticationException) &&
+                (e.getCause() instanceof InvalidKeyException)) {
+            return new AuthenticationException("Unable to store access token, please check whether your crypto.policy is set to enable full strength encryption or enable limited encryption in Advanced Settings.", (Exception) e.getCause());
+        }
+        return e;
     }
 }
@@ -0,0 +1,102 @@
+package com.qubular.openhab.binding.vicare.internal;
+
+import org.openhab.core.thing.ChannelUID;
+import org.openhab.core.thing.ThingUID;
+import org.openhab.core.types.State;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides whether polled channel states need to be published. When publish on change is enabled, a state that is
+ * identical to the last one published for the channel is suppressed, unless the keep-alive interval has passed since
+ * that channel was last published.
+ */
+public class ChangeDetectingStatePublisher {
+    private static class PublishedState {
+        final State state;
+        final Instant timestamp;
+
+        PublishedState(State state, Instant timestamp) {
+            this.state = state;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private final Clock clock;
+    private final ConcurrentMap<ChannelUID, PublishedState> publishedStates = new ConcurrentHashMap<>();
+    private final LongAdder publishedCount = new LongAdder();
+    private final LongAdder suppressedCount = new LongAdder();
+    private volatile boolean publishOnChange;
+    private volatile Duration keepAliveInterval = Duration.ofHours(1);
+
+    public ChangeDetectingStatePublisher() {
+        this(Clock.systemUTC());
+    }
+
+    ChangeDetectingStatePublisher(Clock clock) {
+        this.clock = clock;
+    }
+
+    public void setPublishOnChange(boolean publishOnChange) {
+        this.publishOnChange = publishOnChange;
+    }
+
+    public void setKeepAliveInterval(Duration keepAliveInterval) {
+        this.keepAliveInterval = keepAliveInterval;
+    }
+
+    /**
+     * Records that a polled state is about to be published for a channel.
+     * @return false if the update is redundant and should be suppressed.
+     */
+    public boolean shouldPublish(ChannelUID channelUID, State state) {
+        Instant now = clock.instant();
+        if (publishOnChange) {
+            PublishedState previous = publishedStates.get(channelUID);
+            if (previous != null &&
+                    previous.state.equals(state) &&
+                    now.isBefore(previous.timestamp.plus(keepAliveInterval))) {
+                suppressedCount.increment();
+                return false;
+            }
+        }
+        published(channelUID, state, now);
+        return true;
+    }
+
+    /**
+     * Records a state that was published unconditionally, e.g. in response to a REFRESH command.
+     */
+    public void published(ChannelUID channelUID, State state) {
+        published(channelUID, state, clock.instant());
+    }
+
+    private void published(ChannelUID channelUID, State state, Instant now) {
+        publishedStates.put(channelUID, new PublishedState(state, now));
+        publishedCount.increment();
+    }
+
+    /**
+     * Forgets the published states of a thing's channels, so that they are all published on the next poll.
+     */
+    public void clear(ThingUID thingUID) {
+        publishedStates.keySet().removeIf(channelUID -> channelUID.getThingUID().equals(thingUID));
+    }
+
+    public void clear() {
+        publishedStates.clear();
+    }
+
+    public long getPublishedCount() {
+        return publishedCount.sum();
+    }
+
+    public long getSuppressedCount() {
+        return suppressedCount.sum();
+    }
+}
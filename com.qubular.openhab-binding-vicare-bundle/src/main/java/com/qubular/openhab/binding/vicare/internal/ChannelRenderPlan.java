@@ -0,0 +1,181 @@
+package com.qubular.openhab.binding.vicare.internal;
+
+import com.qubular.vicare.model.Feature;
+import com.qubular.vicare.model.Unit;
+import com.qubular.vicare.model.Value;
+import com.qubular.vicare.model.features.*;
+import com.qubular.vicare.model.values.BooleanValue;
+import com.qubular.vicare.model.values.DimensionalValue;
+import com.qubular.vicare.model.values.StatusValue;
+import com.qubular.vicare.model.values.StringValue;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.library.types.DateTimeType;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.thing.Channel;
+import org.openhab.core.types.State;
+import org.openhab.core.types.UnDefType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.DoubleFunction;
+import java.util.function.Function;
+
+import static com.qubular.openhab.binding.vicare.internal.UnitMapping.apiToOpenHab;
+import static com.qubular.openhab.binding.vicare.internal.VicareConstants.PROPERTY_PROP_NAME;
+import static com.qubular.openhab.binding.vicare.internal.VicareDeviceThingHandler.CONSUMPTION_STATS_BY_CHANNEL_NAME;
+
+/**
+ * Renders the state of a channel from its feature. A plan is compiled for a channel and the class of its feature,
+ * resolving the channel's property and the unit mapping of its value once, so that rendering a polled feature only
+ * reads the value out of it.
+ */
+final class ChannelRenderPlan {
+    private static final Logger logger = LoggerFactory.getLogger(ChannelRenderPlan.class);
+
+    private final Channel channel;
+    private final Class<? extends Feature> featureClass;
+    private final Function<Feature, @Nullable State> renderer;
+
+    private ChannelRenderPlan(Channel channel, Class<? extends Feature> featureClass,
+                              Function<Feature, @Nullable State> renderer) {
+        this.channel = channel;
+        this.featureClass = featureClass;
+        this.renderer = renderer;
+    }
+
+    /**
+     * @param feature The feature the channel was built from, whose class the plan is compiled for.
+     */
+    static ChannelRenderPlan compile(Channel channel, Feature feature) {
+        Compiler compiler = new Compiler(channel.getProperties().get(PROPERTY_PROP_NAME), feature.getName());
+        feature.accept(compiler);
+        return new ChannelRenderPlan(channel, feature.getClass(), compiler.renderer);
+    }
+
+    /**
+     * @return Whether the plan can render the feature for the channel, or has to be compiled again because the
+     * channel has been rebuilt or the feature has changed class.
+     */
+    boolean isFor(Channel channel, Feature feature) {
+        return this.channel == channel && featureClass == feature.getClass();
+    }
+
+    /**
+     * @return The state of the channel, or null if the feature does not have a value for it.
+     */
+    @Nullable State render(Feature feature) {
+        return renderer.apply(feature);
+    }
+
+    private static class Compiler implements Feature.Visitor {
+        private final String propertyName;
+        private final String featureName;
+        private Function<Feature, @Nullable State> renderer = f -> null;
+
+        Compiler(String propertyName, String featureName) {
+            this.propertyName = propertyName;
+            this.featureName = featureName;
+        }
+
+        @Override
+        public void visit(ConsumptionFeature f) {
+            ConsumptionFeature.Stat stat = CONSUMPTION_STATS_BY_CHANNEL_NAME.get(propertyName);
+            Unit unit = f.getConsumption(stat).map(DimensionalValue::getUnit).orElse(null);
+            DoubleFunction<State> toState = apiToOpenHab(unit);
+            renderer = feature -> {
+                Optional<DimensionalValue> consumption = ((ConsumptionFeature) feature).getConsumption(stat);
+                if (consumption.isEmpty()) {
+                    return apiToOpenHab(null, 0.0);
+                }
+                DimensionalValue value = consumption.get();
+                return Objects.equals(unit, value.getUnit()) ?
+                        toState.apply(value.getValue()) :
+                        apiToOpenHab(value.getUnit(), value.getValue());
+            };
+        }
+
+        @Override
+        public void visit(NumericSensorFeature f) {
+            if ("active".equals(propertyName)) {
+                renderer = feature -> ((NumericSensorFeature) feature).isActive() ? OnOffType.ON : OnOffType.OFF;
+            } else if ("status".equals(propertyName)) {
+                renderer = feature -> statusState(((NumericSensorFeature) feature).getStatus());
+            } else {
+                renderer = feature -> {
+                    Value v = feature.getProperties().get(propertyName);
+                    return v instanceof DimensionalValue value ? new DecimalType(value.getValue()) : null;
+                };
+            }
+        }
+
+        @Override
+        public void visit(StatusSensorFeature f) {
+            if ("status".equals(propertyName)) {
+                renderer = feature -> statusState(((StatusSensorFeature) feature).getStatus());
+            } else {
+                renderer = feature -> {
+                    Value value = feature.getProperties().get(propertyName);
+                    if (value instanceof BooleanValue v) {
+                        return v.getValue() ? OnOffType.ON : OnOffType.OFF;
+                    } else if (value instanceof DimensionalValue v) {
+                        return new DecimalType(v.getValue());
+                    } else if (value instanceof StringValue v) {
+                        return new StringType(v.getValue());
+                    } else if (value != null) {
+                        logger.trace("Unable to update unsupported value {} for property {}.{}",
+                                value, featureName, propertyName);
+                        return UnDefType.UNDEF;
+                    }
+                    return null;
+                };
+            }
+        }
+
+        @Override
+        public void visit(TextFeature f) {
+            renderer = feature -> new StringType(((TextFeature) feature).getValue());
+        }
+
+        @Override
+        public void visit(CurveFeature f) {
+            if ("slope".equals(propertyName)) {
+                renderer = feature -> new DecimalType(((CurveFeature) feature).getSlope().getValue());
+            } else if ("shift".equals(propertyName)) {
+                renderer = feature -> new DecimalType(((CurveFeature) feature).getShift().getValue());
+            }
+        }
+
+        @Override
+        public void visit(DatePeriodFeature datePeriodFeature) {
+            if ("active".equals(propertyName)) {
+                renderer = feature -> StatusValue.ON.equals(((DatePeriodFeature) feature).getActive()) ?
+                        OnOffType.ON : OnOffType.OFF;
+            } else if ("start".equals(propertyName)) {
+                renderer = feature -> {
+                    LocalDate startDate = ((DatePeriodFeature) feature).getStart();
+                    return startDate == null ? UnDefType.UNDEF :
+                            new DateTimeType(startDate.atStartOfDay(ZoneId.systemDefault()));
+                };
+            } else if ("end".equals(propertyName)) {
+                renderer = feature -> {
+                    LocalDate endDate = ((DatePeriodFeature) feature).getEnd();
+                    return endDate == null ? UnDefType.UNDEF :
+                            new DateTimeType(endDate.atTime(LocalTime.MAX).atZone(ZoneId.systemDefault()));
+                };
+            } else {
+                renderer = feature -> UnDefType.UNDEF;
+            }
+        }
+
+        private static State statusState(@Nullable StatusValue status) {
+            return StringType.valueOf(status == null ? null : status.getName());
+        }
+    }
+}
@@ -33,6 +33,18 @@ public class CryptUtil {
     private final Configuration configuration;
 
     private final byte[] salt;
+    /** The key derived for the current encryption strength setting, as deriving it is expensive */
+    private volatile DerivedKey derivedKey;
+
+    private static class DerivedKey {
+        final boolean limitedEncryption;
+        final SecretKeySpec secretKeySpec;
+
+        DerivedKey(boolean limitedEncryption, SecretKeySpec secretKeySpec) {
+            this.limitedEncryption = limitedEncryption;
+            this.secretKeySpec = secretKeySpec;
+        }
+    }
 
     public CryptUtil(Configuration configuration) {
         this.configuration = configuration;
@@ -57,13 +69,21 @@ public class CryptUtil {
 
     private Cipher initCipher(byte[] initializationVector, int opmode) throws GeneralSecurityException {
             Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+            cipher.init(opmode, getSecretKey(getUseLimitedEncryption()), new IvParameterSpec(initializationVector));
+            return cipher;
+    }
+
+    private SecretKeySpec getSecretKey(boolean limitedEncryption) throws GeneralSecurityException {
+        DerivedKey key = derivedKey;
+        if (key == null || key.limitedEncryption != limitedEncryption) {
             SecretKeyFactory keyFactory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
             int iterations = 256;
-            KeySpec spec = new PBEKeySpec(PW.toCharArray(), salt, iterations, getUseLimitedEncryption() ? 128 : 256);
+            KeySpec spec = new PBEKeySpec(PW.toCharArray(), salt, iterations, limitedEncryption ? 128 : 256);
             SecretKey secretKey = keyFactory.generateSecret(spec);
-            SecretKeySpec secretKeySpec = new SecretKeySpec(secretKey.getEncoded(), "AES");
-            cipher.init(opmode, secretKeySpec, new IvParameterSpec(initializationVector));
-            return cipher;
+            key = new DerivedKey(limitedEncryption, new SecretKeySpec(secretKey.getEncoded(), "AES"));
+            derivedKey = key;
+        }
+        return key.secretKeySpec;
     }
 
     private byte[] initializeSalt() {
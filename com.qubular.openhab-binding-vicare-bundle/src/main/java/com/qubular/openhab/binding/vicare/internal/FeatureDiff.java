@@ -0,0 +1,69 @@
+package com.qubular.openhab.binding.vicare.internal;
+
+import com.qubular.vicare.model.Feature;
+
+import java.util.*;
+
+/**
+ * The features that were added, removed or changed in value between two snapshots of the same device.
+ */
+public class FeatureDiff {
+    private final long previousVersion;
+    private final Map<String, Feature> added = new LinkedHashMap<>();
+    private final Map<String, Feature> removed = new LinkedHashMap<>();
+    private final Map<String, Feature> changed = new LinkedHashMap<>();
+
+    FeatureDiff(FeatureSnapshot previous, Map<String, Feature> currentFeaturesByName) {
+        this.previousVersion = previous.getVersion();
+        for (Feature feature : previous.getFeatures()) {
+            if (!currentFeaturesByName.containsKey(feature.getName())) {
+                removed.putIfAbsent(feature.getName(), feature);
+            }
+        }
+        currentFeaturesByName.forEach((name, feature) -> {
+            Optional<Feature> previousFeature = previous.getFeature(name);
+            if (previousFeature.isEmpty()) {
+                added.put(name, feature);
+            } else if (!previousFeature.get().equals(feature)) {
+                changed.put(name, feature);
+            }
+        });
+    }
+
+    /**
+     * @return The version of the snapshot that this diff was computed against.
+     */
+    public long getPreviousVersion() {
+        return previousVersion;
+    }
+
+    public Collection<Feature> getAdded() {
+        return Collections.unmodifiableCollection(added.values());
+    }
+
+    /**
+     * @return The features from the previous snapshot that are no longer present.
+     */
+    public Collection<Feature> getRemoved() {
+        return Collections.unmodifiableCollection(removed.values());
+    }
+
+    public Collection<Feature> getChanged() {
+        return Collections.unmodifiableCollection(changed.values());
+    }
+
+    /**
+     * @return true if the named feature is new or its value differs from the previous snapshot.
+     */
+    public boolean isChanged(String featureName) {
+        return added.containsKey(featureName) || changed.containsKey(featureName);
+    }
+
+    public boolean hasAddedOrRemoved() {
+        return !added.isEmpty() || !removed.isEmpty();
+    }
+
+    public boolean isEmpty() {
+        return !hasAddedOrRemoved() && changed.isEmpty();
+    }
+}
@@ -0,0 +1,183 @@
+package com.qubular.openhab.binding.vicare.internal;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.thing.ThingUID;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Assigns each feature to a polling tier by matching its name against patterns, and keeps track of when each tier
+ * was last polled for each device, so that rarely changing features are not refreshed as often as sensors. Fetching
+ * every feature of a device at once is a single request, as is fetching one feature on its own, so a lone due feature
+ * is fetched on its own and anything more brings the whole device up to date.
+ */
+public class FeaturePollingTiers {
+    public enum Tier {
+        FAST,
+        NORMAL,
+        SLOW
+    }
+
+    /**
+     * The requests that bring the due tiers of a device up to date.
+     * @param tiers        The tiers that are polled.
+     * @param featureNames The features to fetch on their own, or null to fetch every feature of the device at once.
+     */
+    public record Poll(Set<Tier> tiers, @Nullable Set<String> featureNames) {
+        public boolean isWholeDevice() {
+            return featureNames == null;
+        }
+
+        public boolean isEmpty() {
+            return tiers.isEmpty();
+        }
+    }
+
+    public static final List<String> DEFAULT_FAST_FEATURES = List.of(
+            ".*\\.sensors\\..*",
+            "heating\\.(burners|compressors)\\.\\d+",
+            "heating\\.burners\\.\\d+\\.modulation",
+            "heating\\.circuits\\.\\d+\\.circulation\\.pump",
+            "heating\\.(dhw|solar)\\.pumps\\..*",
+            "heating\\.solar\\.power\\.production"
+    );
+
+    public static final List<String> DEFAULT_SLOW_FEATURES = List.of(
+            "device(\\..*)?",
+            "heating\\.boiler\\.serial",
+            "heating\\.circuits\\.\\d+",
+            "heating\\.circuits\\.\\d+\\.heating\\.curve",
+            "heating\\.operating\\.programs\\.holiday(AtHome)?",
+            "heating\\.(burners|compressors)\\.\\d+\\.statistics"
+    );
+
+    private volatile Map<Tier, Duration> intervals = Map.of(
+            Tier.FAST, Duration.ofSeconds(VicareBridgeHandler.DEFAULT_POLLING_INTERVAL),
+            Tier.NORMAL, Duration.ofSeconds(VicareBridgeHandler.DEFAULT_NORMAL_POLLING_INTERVAL),
+            Tier.SLOW, Duration.ofSeconds(VicareBridgeHandler.DEFAULT_SLOW_POLLING_INTERVAL));
+    private volatile List<Pattern> fastFeatures = compile(DEFAULT_FAST_FEATURES);
+    private volatile List<Pattern> slowFeatures = compile(DEFAULT_SLOW_FEATURES);
+    private final ConcurrentMap<String, Tier> tiersByFeatureName = new ConcurrentHashMap<>();
+    private final ConcurrentMap<ThingUID, Map<Tier, Instant>> lastPolled = new ConcurrentHashMap<>();
+
+    private static List<Pattern> compile(Collection<String> regexes) {
+        return regexes.stream()
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(Pattern::compile)
+                .collect(Collectors.toList());
+    }
+
+    public void setIntervals(Duration fast, Duration normal, Duration slow) {
+        intervals = Map.of(Tier.FAST, fast, Tier.NORMAL, normal, Tier.SLOW, slow);
+    }
+
+    /**
+     * @param fastFeatures Regular expressions matching the names of features to poll in the fast tier.
+     * @param slowFeatures Regular expressions matching the names of features to poll in the slow tier.
+     */
+    public void setPatterns(Collection<String> fastFeatures, Collection<String> slowFeatures) {
+        this.fastFeatures = compile(fastFeatures);
+        this.slowFeatures = compile(slowFeatures);
+        tiersByFeatureName.clear();
+    }
+
+    public Duration getInterval(Tier tier) {
+        return intervals.get(tier);
+    }
+
+    public Tier getTier(String featureName) {
+        return tiersByFeatureName.computeIfAbsent(featureName, name -> {
+            if (matchesAny(fastFeatures, name)) {
+                return Tier.FAST;
+            } else if (matchesAny(slowFeatures, name)) {
+                return Tier.SLOW;
+            }
+            return Tier.NORMAL;
+        });
+    }
+
+    private static boolean matchesAny(List<Pattern> patterns, String featureName) {
+        for (Pattern pattern : patterns) {
+            if (pattern.matcher(featureName).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The tiers among the given features that are due to be polled for a device.
+     */
+    public Set<Tier> getDueTiers(ThingUID thingUID, Collection<String> featureNames, Instant now) {
+        Map<Tier, Instant> polled = lastPolled.getOrDefault(thingUID, Collections.emptyMap());
+        Set<Tier> due = EnumSet.noneOf(Tier.class);
+        for (String featureName : featureNames) {
+            Tier tier = getTier(featureName);
+            if (isDue(polled.get(tier), tier, now)) {
+                due.add(tier);
+            }
+        }
+        return due;
+    }
+
+    /**
+     * @return How to poll the tiers among the given features that are due for a device. A single due feature is
+     * fetched on its own. Otherwise every feature is fetched at once, as it is the first time and when the slowest
+     * tier of the device is due, and that brings every tier of the device up to date.
+     */
+    public Poll getPoll(ThingUID thingUID, Collection<String> featureNames, Instant now) {
+        Map<Tier, Instant> polled = lastPolled.getOrDefault(thingUID, Collections.emptyMap());
+        Set<Tier> tiers = EnumSet.noneOf(Tier.class);
+        Set<Tier> due = EnumSet.noneOf(Tier.class);
+        Set<String> dueFeatures = new HashSet<>();
+        for (String featureName : featureNames) {
+            Tier tier = getTier(featureName);
+            tiers.add(tier);
+            if (isDue(polled.get(tier), tier, now)) {
+                due.add(tier);
+                dueFeatures.add(featureName);
+            }
+        }
+        if (due.isEmpty()) {
+            return new Poll(due, Set.of());
+        }
+        Tier slowest = Collections.max(tiers, Comparator.comparing(this::getInterval));
+        if (due.contains(slowest) || !polled.keySet().containsAll(due) || dueFeatures.size() > 1) {
+            return new Poll(tiers, null);
+        }
+        return new Poll(due, dueFeatures);
+    }
+
+    private boolean isDue(@Nullable Instant lastPolledAt, Tier tier, Instant now) {
+        // allow for some jitter in when polls are scheduled
+        return lastPolledAt == null || !now.isBefore(lastPolledAt.plus(getInterval(tier)).minusSeconds(1));
+    }
+
+    /**
+     * @return The shortest interval of the given tiers, which is how long a cached response remains usable for them.
+     */
+    public Duration getShortestInterval(Set<Tier> tiers) {
+        return tiers.stream()
+                .map(this::getInterval)
+                .min(Comparator.naturalOrder())
+                .orElse(getInterval(Tier.NORMAL));
+    }
+
+    public void polled(ThingUID thingUID, Set<Tier> tiers, Instant when) {
+        Map<Tier, Instant> polled = lastPolled.computeIfAbsent(thingUID, k -> new ConcurrentHashMap<>());
+        for (Tier tier : tiers) {
+            polled.put(tier, when);
+        }
+    }
+
+    public void clear(ThingUID thingUID) {
+        lastPolled.remove(thingUID);
+    }
+}
@@ -6,10 +6,52 @@ import org.openhab.core.thing.Thing;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
+/**
+ * The one place the binding gets device features from. Features are cached per thing and concurrent requests for
+ * the same thing share one fetch, so the thing handlers, the poller and the channel type preloader should all get
+ * features through here rather than from the {@link com.qubular.vicare.VicareService} directly.
+ */
 public interface FeatureService {
     void clear();
 
+    /**
+     * @param staleWhileRevalidate If true, expired features continue to be served while they are refreshed in the
+     *                             background, rather than callers waiting on the refresh.
+     */
+    void setStaleWhileRevalidate(boolean staleWhileRevalidate);
+
+    /**
+     * @param listener Told of the thing each time a request is made to the API for its features, on the thread that
+     *                 asked for them.
+     */
+    void addRequestListener(Consumer<Thing> listener);
+
+    void removeRequestListener(Consumer<Thing> listener);
+
+    /**
+     * @return The named feature from the cached features of the thing, which are refreshed as a whole if they are too
+     * old to provide it. Use {@link #refreshFeature} to fetch a feature on its own.
+     */
     CompletableFuture<Optional<Feature>> getFeature(Thing thing, String featureName, int expiresInSecs);
+
+    /**
+     * Fetches the named feature on its own, and merges it into the cached features of the thing.
+     */
+    CompletableFuture<Optional<Feature>> refreshFeature(Thing thing, String featureName);
+
     CompletableFuture<List<Feature>> getFeatures(Thing thing, int expiresInSecs);
+
+    /**
+     * @return The features of the thing, indexed by feature name.
+     */
+    CompletableFuture<FeatureSnapshot> getSnapshot(Thing thing, int expiresInSecs);
+
+    /**
+     * @return The features of the thing, indexed by feature name. Features older than the expiry are waited for while
+     * they are refreshed, even when stale-while-revalidate serves other callers the expired features meanwhile, so
+     * that the poller renders and accounts for the features it actually fetched.
+     */
+    CompletableFuture<FeatureSnapshot> getFreshSnapshot(Thing thing, int expiresInSecs);
 }
@@ -0,0 +1,150 @@
+package com.qubular.openhab.binding.vicare.internal;
+
+import com.qubular.vicare.model.Feature;
+import com.qubular.vicare.model.Value;
+import com.qubular.vicare.model.values.*;
+import org.eclipse.jdt.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Optional.ofNullable;
+
+/**
+ * The features of a single device as returned by one request, indexed by feature name.
+ */
+public class FeatureSnapshot {
+    private static final AtomicLong versions = new AtomicLong();
+    /** Estimated size of a feature object with its property map and its entries in the snapshot */
+    private static final int FEATURE_BYTES = 120;
+    /** Estimated size of a property map entry and its value object */
+    private static final int PROPERTY_BYTES = 56;
+    private static final int STRING_BYTES = 40;
+    private static final int ARRAY_BYTES = 16;
+
+    private final long version = versions.incrementAndGet();
+    private final List<Feature> features;
+    private final Map<String, Feature> featuresByName;
+    private final @Nullable FeatureDiff diff;
+    private volatile long estimatedSize = -1;
+
+    public FeatureSnapshot(List<Feature> features) {
+        this(features, null);
+    }
+
+    /**
+     * @param previous The previous snapshot of the same device, if there is one, to compute the diff against.
+     */
+    public FeatureSnapshot(List<Feature> features, @Nullable FeatureSnapshot previous) {
+        this.features = List.copyOf(features);
+        Map<String, Feature> featuresByName = new HashMap<>((int) (this.features.size() / 0.75f) + 1);
+        for (Feature feature : this.features) {
+            featuresByName.putIfAbsent(feature.getName(), feature);
+        }
+        this.featuresByName = Collections.unmodifiableMap(featuresByName);
+        this.diff = previous == null ? null : new FeatureDiff(previous, this.featuresByName);
+    }
+
+    /**
+     * @return A number that uniquely identifies this snapshot, and increases with each snapshot taken.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return The features in the order they were returned by the API.
+     */
+    public List<Feature> getFeatures() {
+        return features;
+    }
+
+    public Optional<Feature> getFeature(String featureName) {
+        return ofNullable(featuresByName.get(featureName));
+    }
+
+    /**
+     * @return A new snapshot with the given feature added, or replacing the feature of the same name.
+     */
+    public FeatureSnapshot withFeature(Feature feature) {
+        List<Feature> merged = new ArrayList<>(features.size() + 1);
+        boolean replaced = false;
+        for (Feature existing : features) {
+            if (existing.getName().equals(feature.getName())) {
+                if (!replaced) {
+                    merged.add(feature);
+                    replaced = true;
+                }
+            } else {
+                merged.add(existing);
+            }
+        }
+        if (!replaced) {
+            merged.add(feature);
+        }
+        return new FeatureSnapshot(merged, this);
+    }
+
+    /**
+     * @return A rough estimate of the heap retained by the features of this snapshot, in bytes. Feature and property
+     * names, units and command descriptors are shared between snapshots by the feature decoder, so they are not counted.
+     */
+    public long getEstimatedSize() {
+        long size = estimatedSize;
+        if (size < 0) {
+            long[] bytes = {0};
+            Value.Visitor valueSize = new Value.Visitor() {
+                @Override
+                public void visit(ArrayValue v) {
+                    bytes[0] += ARRAY_BYTES + 8L * v.getValues().length;
+                }
+
+                @Override
+                public void visit(BooleanValue v) {
+                }
+
+                @Override
+                public void visit(DimensionalValue v) {
+                }
+
+                @Override
+                public void visit(LocalDateValue v) {
+                }
+
+                @Override
+                public void visit(StatusValue v) {
+                    bytes[0] += STRING_BYTES + v.getName().length();
+                }
+
+                @Override
+                public void visit(StringValue v) {
+                    bytes[0] += STRING_BYTES + v.getValue().length();
+                }
+            };
+            for (Feature feature : features) {
+                bytes[0] += FEATURE_BYTES + 8L * feature.getCommands().size();
+                for (Value value : feature.getProperties().values()) {
+                    bytes[0] += PROPERTY_BYTES;
+                    if (value != null) {
+                        value.accept(valueSize);
+                    }
+                }
+            }
+            size = bytes[0];
+            estimatedSize = size;
+        }
+        return size;
+    }
+
+    /**
+     * @return The changes since the previous snapshot of the device, or empty if there was no previous snapshot.
+     */
+    public Optional<FeatureDiff> getDiff() {
+        return ofNullable(diff);
+    }
+}
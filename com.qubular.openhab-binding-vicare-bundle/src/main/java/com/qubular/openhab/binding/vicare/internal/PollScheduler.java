@@ -0,0 +1,172 @@
+package com.qubular.openhab.binding.vicare.internal;
+
+import com.qubular.vicare.VicareError;
+import com.qubular.vicare.VicareServiceException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+
+/**
+ * Decides how often devices are polled. Every request made to the API is counted against a rolling daily request
+ * quota. The requests other than polls made over the last day are assumed to recur, as is the number of requests
+ * each device poll made on average, since a poll fetches nothing when none of a device's tiers are due. The polling
+ * interval is stretched if necessary so that polling every device once per interval fits in what is left of the
+ * quota, and device polls are spaced evenly across the interval. When the quota has been used up, or the API reports that the
+ * rate limit has been exceeded, polling is suspended until requests are available again.
+ */
+public class PollScheduler {
+    public static final int RATE_LIMIT_EXCEEDED = 429;
+    private static final Duration QUOTA_PERIOD = Duration.ofDays(1);
+    /** Back off limit when the API does not say when the rate limit resets */
+    private static final Duration MAX_BACKOFF = Duration.ofHours(1);
+
+    private final Clock clock;
+    private volatile Duration pollingInterval = Duration.ofSeconds(VicareBridgeHandler.DEFAULT_POLLING_INTERVAL);
+    private volatile int dailyRequestLimit = VicareBridgeHandler.DEFAULT_DAILY_REQUEST_LIMIT;
+    private volatile Instant suspendedUntil = Instant.MIN;
+    private int consecutiveRateLimits;
+    /** When each request was sent, over the last quota period */
+    private final Deque<Instant> requests = new ArrayDeque<>();
+    /** When each request made by polling was sent, over the last quota period */
+    private final Deque<Instant> pollRequests = new ArrayDeque<>();
+    /** When each device was polled, over the last quota period */
+    private final Deque<Instant> polls = new ArrayDeque<>();
+
+    public PollScheduler() {
+        this(Clock.systemUTC());
+    }
+
+    PollScheduler(Clock clock) {
+        this.clock = clock;
+    }
+
+    public void setPollingInterval(Duration pollingInterval) {
+        this.pollingInterval = pollingInterval;
+    }
+
+    public void setDailyRequestLimit(int dailyRequestLimit) {
+        this.dailyRequestLimit = dailyRequestLimit;
+    }
+
+    /**
+     * Counts a request made to the API against the daily request quota.
+     * @param polling Whether the request was made by polling a device.
+     */
+    public synchronized void requestSent(boolean polling) {
+        Instant now = clock.instant();
+        requests.add(now);
+        if (polling) {
+            pollRequests.add(now);
+        }
+        expireRequests(now);
+    }
+
+    /**
+     * Counts a device being polled, whether or not it made any requests.
+     */
+    public synchronized void devicePolled() {
+        Instant now = clock.instant();
+        polls.add(now);
+        expireRequests(now);
+    }
+
+    /**
+     * @return The number of requests made over the last quota period.
+     */
+    public synchronized int getRequestCount() {
+        expireRequests(clock.instant());
+        return requests.size();
+    }
+
+    private void expireRequests(Instant now) {
+        Instant periodStart = now.minus(QUOTA_PERIOD);
+        while (!requests.isEmpty() && !requests.peekFirst().isAfter(periodStart)) {
+            requests.removeFirst();
+        }
+        while (!pollRequests.isEmpty() && !pollRequests.peekFirst().isAfter(periodStart)) {
+            pollRequests.removeFirst();
+        }
+        while (!polls.isEmpty() && !polls.peekFirst().isAfter(periodStart)) {
+            polls.removeFirst();
+        }
+    }
+
+    /**
+     * @return The interval at which each device is polled, which is the configured polling interval unless that
+     * would exceed what the other requests leave of the daily request quota.
+     */
+    public synchronized Duration getEffectiveInterval(int deviceCount) {
+        if (dailyRequestLimit <= 0) {
+            return pollingInterval;
+        }
+        expireRequests(clock.instant());
+        int otherRequests = requests.size() - pollRequests.size();
+        long pollBudget = Math.max(1, dailyRequestLimit - otherRequests);
+        long quotaSeconds = QUOTA_PERIOD.toSeconds() * Math.max(1, deviceCount);
+        if (!polls.isEmpty()) {
+            // budget the requests that polls have actually been making, rather than one per poll
+            quotaSeconds *= pollRequests.size();
+            pollBudget *= polls.size();
+        }
+        Duration quotaInterval = Duration.ofSeconds((quotaSeconds + pollBudget - 1) / pollBudget);
+        return quotaInterval.compareTo(pollingInterval) > 0 ? quotaInterval : pollingInterval;
+    }
+
+    /**
+     * @return The delay between polling one device and the next.
+     */
+    public Duration getPollSpacing(int deviceCount) {
+        return getEffectiveInterval(deviceCount).dividedBy(Math.max(1, deviceCount));
+    }
+
+    /**
+     * @return How long polling should be suspended for, if the rate limit has been exceeded or the daily request
+     * quota has been used up.
+     */
+    public synchronized Optional<Duration> getSuspension() {
+        Instant now = clock.instant();
+        Instant resumeAt = suspendedUntil;
+        expireRequests(now);
+        if (dailyRequestLimit > 0 && requests.size() >= dailyRequestLimit) {
+            // until enough of the requests counted have left the quota period
+            Instant quotaAvailable = requests.stream()
+                    .skip(requests.size() - dailyRequestLimit)
+                    .findFirst()
+                    .orElseThrow()
+                    .plus(QUOTA_PERIOD);
+            resumeAt = quotaAvailable.isAfter(resumeAt) ? quotaAvailable : resumeAt;
+        }
+        Duration remaining = Duration.between(now, resumeAt);
+        return remaining.isNegative() || remaining.isZero() ? Optional.empty() : Optional.of(remaining);
+    }
+
+    /**
+     * Checks whether a failed request was rejected by the rate limit, and if so suspends polling until the limit
+     * resets, or for an increasing period if the API did not say when that will be.
+     * @return true if the failure was caused by the rate limit.
+     */
+    public synchronized boolean requestFailed(Throwable t) {
+        if (!(t instanceof VicareServiceException e) || e.getVicareError().getStatusCode() != RATE_LIMIT_EXCEEDED) {
+            return false;
+        }
+        Instant now = clock.instant();
+        VicareError.ExtendedPayload payload = e.getVicareError().getExtendedPayload();
+        Instant limitReset = payload == null ? Instant.MIN : Instant.ofEpochMilli(payload.getLimitReset());
+        if (limitReset.isAfter(now)) {
+            suspendedUntil = limitReset;
+        } else {
+            Duration backoff = pollingInterval.multipliedBy(1L << Math.min(consecutiveRateLimits, 16));
+            suspendedUntil = now.plus(backoff.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff);
+        }
+        ++consecutiveRateLimits;
+        return true;
+    }
+
+    public synchronized void requestSucceeded() {
+        consecutiveRateLimits = 0;
+    }
+}
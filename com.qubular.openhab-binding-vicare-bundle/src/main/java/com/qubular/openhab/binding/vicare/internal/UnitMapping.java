@@ -8,6 +8,7 @@ import org.openhab.core.types.State;
 import javax.measure.Unit;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.DoubleFunction;
 
 public enum UnitMapping {
     CUBIC_METRE(com.qubular.vicare.model.Unit.CUBIC_METRE, tech.units.indriya.unit.Units.CUBIC_METRE, "Number:Volume"),
@@ -36,6 +37,19 @@ public enum UnitMapping {
                 new QuantityType<>(value, unitMapping.openhabUnit);
     }
 
+    /**
+     * @return A conversion of values in the given unit to states, for when the unit is known in advance and should
+     * only be looked up once.
+     */
+    public static DoubleFunction<State> apiToOpenHab(com.qubular.vicare.model.Unit unit) {
+        UnitMapping unitMapping = unit == null ? null : mappings.get(unit);
+        if (unitMapping == null) {
+            return DecimalType::new;
+        }
+        Unit<?> openhabUnit = unitMapping.openhabUnit;
+        return value -> new QuantityType<>(value, openhabUnit);
+    }
+
     public static String apiToItemType(com.qubular.vicare.model.Unit unit) {
         UnitMapping unitMapping = mappings.get(unit);
         return unitMapping != null ?
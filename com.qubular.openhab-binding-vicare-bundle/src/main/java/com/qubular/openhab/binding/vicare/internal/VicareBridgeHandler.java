@@ -18,7 +18,6 @@ import org.openhab.core.thing.binding.ThingHandlerService;
 import org.openhab.core.thing.type.AutoUpdatePolicy;
 import org.openhab.core.thing.type.ChannelType;
 import org.openhab.core.types.Command;
-import org.openhab.core.types.RefreshType;
 import org.openhab.core.types.State;
 import org.osgi.service.cm.Configuration;
 import org.slf4j.Logger;
@@ -26,12 +25,15 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.regex.PatternSyntaxException;
 
 import static com.qubular.openhab.binding.vicare.internal.VicareConstants.*;
-import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
 import static java.util.Objects.requireNonNullElse;
 import static java.util.Objects.requireNonNullElseGet;
@@ -40,6 +42,14 @@ import static java.util.Optional.empty;
 public class VicareBridgeHandler extends BaseBridgeHandler implements VicareThingHandler {
     public static final String CONFIG_USE_LIMITED_ENCRYPTION = "useLimitedEncryption";
     public static final String CONFIG_POLLING_INTERVAL = "pollingInterval";
+    public static final String CONFIG_STALE_WHILE_REVALIDATE = "staleWhileRevalidate";
+    public static final String CONFIG_PUBLISH_ON_CHANGE = "publishOnChange";
+    public static final String CONFIG_PUBLISH_KEEP_ALIVE_INTERVAL = "publishKeepAliveInterval";
+    public static final String CONFIG_DAILY_REQUEST_LIMIT = "dailyRequestLimit";
+    public static final String CONFIG_NORMAL_POLLING_INTERVAL = "normalPollingInterval";
+    public static final String CONFIG_SLOW_POLLING_INTERVAL = "slowPollingInterval";
+    public static final String CONFIG_FAST_FEATURES = "fastFeatures";
+    public static final String CONFIG_SLOW_FEATURES = "slowFeatures";
     private static final Logger logger = LoggerFactory.getLogger(VicareBridgeHandler.class);
     public static final int POLLING_STARTUP_DELAY_SECS = 10;
     private final ThingRegistry thingRegistry;
@@ -50,6 +60,21 @@ public class VicareBridgeHandler extends BaseBridgeHandler implements VicareThin
     private final VicareServiceProvider vicareServiceProvider;
 
     public static final int DEFAULT_POLLING_INTERVAL = 90;
+    public static final int DEFAULT_PUBLISH_KEEP_ALIVE_INTERVAL = 3600;
+    public static final int DEFAULT_DAILY_REQUEST_LIMIT = 1450;
+    public static final int DEFAULT_NORMAL_POLLING_INTERVAL = 300;
+    public static final int DEFAULT_SLOW_POLLING_INTERVAL = 3600;
+
+    private final ChangeDetectingStatePublisher statePublisher = new ChangeDetectingStatePublisher();
+    private final PollScheduler pollScheduler = new PollScheduler();
+    private final FeaturePollingTiers pollingTiers = new FeaturePollingTiers();
+    /** Set while the poller asks for features, so that the requests this causes are counted as polls */
+    private final ThreadLocal<Boolean> polling = ThreadLocal.withInitial(() -> false);
+    private final Consumer<Thing> requestListener = thing -> {
+        if (getThing().getUID().equals(thing.getBridgeUID())) {
+            pollScheduler.requestSent(polling.get());
+        }
+    };
 
     private volatile ScheduledFuture<?> featurePollingJob;
 
@@ -70,21 +95,48 @@ public class VicareBridgeHandler extends BaseBridgeHandler implements VicareThin
         updateProperty(VicareConstants.PROPERTY_BINDING_VERSION, bindingVersion);
         updateProperty(PROPERTY_RESPONSE_CAPTURE_FOLDER, config.getResponseCaptureFolder() != null ? config.getResponseCaptureFolder().getAbsolutePath() : "");
         updateStatus(ThingStatus.UNKNOWN);
-        featurePollingJob = scheduler.scheduleAtFixedRate(featurePoller(), POLLING_STARTUP_DELAY_SECS, getPollingInterval(), TimeUnit.SECONDS);
+        vicareServiceProvider.getFeatureService().addRequestListener(requestListener);
+        featurePollingJob = scheduler.schedule(this::startPollingCycle, POLLING_STARTUP_DELAY_SECS, TimeUnit.SECONDS);
         logger.debug("VicareBridgeHandler initialised");
     }
 
     @Override
     public void dispose() {
         logger.debug("VicareBridgeHandler disposing");
-        if (featurePollingJob != null) {
-            featurePollingJob.cancel(false);
+        synchronized (this) {
+            if (featurePollingJob != null) {
+                featurePollingJob.cancel(false);
+                featurePollingJob = null;
+            }
         }
+        vicareServiceProvider.getFeatureService().removeRequestListener(requestListener);
         super.dispose();
     }
 
+    /**
+     * @return The regular expressions of a multi-valued parameter, or one per line if it was given as text, since a
+     * regular expression may itself contain commas.
+     */
+    private static List<String> featurePatterns(Map<String, Object> configurationParameters, String key,
+                                                List<String> defaultPatterns) {
+        Object patterns = configurationParameters.get(key);
+        List<String> values;
+        if (patterns instanceof Collection<?> collection) {
+            values = collection.stream().map(String::valueOf).toList();
+        } else if (patterns instanceof String text) {
+            values = List.of(text.split("\\R"));
+        } else {
+            values = List.of();
+        }
+        return values.stream().allMatch(String::isBlank) ? defaultPatterns : values;
+    }
+
     private int getPollingInterval() {
-        BigDecimal pollingInterval = (BigDecimal) getConfig().getProperties().get(CONFIG_POLLING_INTERVAL);
+        return getPollingInterval(getConfig().getProperties());
+    }
+
+    private static int getPollingInterval(Map<String, Object> configurationParameters) {
+        BigDecimal pollingInterval = (BigDecimal) configurationParameters.get(CONFIG_POLLING_INTERVAL);
         return pollingInterval == null ? DEFAULT_POLLING_INTERVAL : pollingInterval.intValue();
     }
 
@@ -98,30 +150,121 @@ public class VicareBridgeHandler extends BaseBridgeHandler implements VicareThin
 
     }
 
-    private Runnable featurePoller() {
-        return () -> {
-            record HandlerChannel(ThingHandler handler, Channel channel){}
-
-            getThing().getThings().stream()
-                    .map(Thing::getHandler)
-                    .filter(Objects::nonNull)
-                    .map(VicareDeviceThingHandler.class::cast)
-                    .forEach(handler -> {
-                        // prime the feature cache
-                        if (!handler.getThing().getChannels().isEmpty()) {
-                            // don't poll devices with no channels, in case people include TCU which has none
-                            logger.debug("Prefetching features for {}", handler.getThing().getUID());
-                            vicareServiceProvider.getFeatureService().getFeatures(handler.getThing(), getPollingInterval())
-                                    .exceptionally(ex -> {
-                                        logger.warn("Unable to prefetch features", ex);
-                                        return emptyList();
-                                    })
-                                    .thenRun(() -> handler.getThing().getChannels().stream().map(c -> new HandlerChannel(handler, c))
-                                            .forEach(handlerChannel -> handler.handleCommand(handlerChannel.channel.getUID(), RefreshType.REFRESH))
-                                    );
-                        }
-                    });
-        };
+    /**
+     * Polls every feature of every device immediately.
+     */
+    void pollFeatures() {
+        pollableDevices().forEach(handler -> pollDevice(handler,
+                new FeaturePollingTiers.Poll(EnumSet.allOf(FeaturePollingTiers.Tier.class), null)));
+    }
+
+    /**
+     * Polls the devices one at a time, spaced evenly across the polling interval, then starts the next cycle.
+     */
+    private void startPollingCycle() {
+        List<VicareDeviceThingHandler> devices = pollableDevices();
+        Duration spacing = pollScheduler.getPollSpacing(devices.size());
+        logger.debug("Polling {} devices every {}", devices.size(), pollScheduler.getEffectiveInterval(devices.size()));
+        pollNextDevice(devices, 0, spacing);
+    }
+
+    private void pollNextDevice(List<VicareDeviceThingHandler> devices, int index, Duration spacing) {
+        Optional<Duration> suspension = pollScheduler.getSuspension();
+        if (suspension.isPresent()) {
+            logger.warn("Viessmann API request limit reached, polling suspended for {}", suspension.get());
+            schedulePoll(this::startPollingCycle, suspension.get());
+            return;
+        }
+        if (index < devices.size()) {
+            pollDueTiers(devices.get(index));
+        } else {
+            logger.debug("Channel state updates published: {}, suppressed as unchanged: {}",
+                    statePublisher.getPublishedCount(), statePublisher.getSuppressedCount());
+        }
+        Runnable next = index + 1 < devices.size() ?
+                () -> pollNextDevice(devices, index + 1, spacing) :
+                this::startPollingCycle;
+        schedulePoll(next, spacing);
+    }
+
+    private synchronized void schedulePoll(Runnable poll, Duration delay) {
+        // don't reschedule once disposed
+        if (featurePollingJob != null) {
+            featurePollingJob = scheduler.schedule(poll, delay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private List<VicareDeviceThingHandler> pollableDevices() {
+        return getThing().getThings().stream()
+                .map(Thing::getHandler)
+                .filter(Objects::nonNull)
+                .map(VicareDeviceThingHandler.class::cast)
+                // don't poll devices with no channels, in case people include TCU which has none
+                .filter(handler -> !handler.getThing().getChannels().isEmpty())
+                .toList();
+    }
+
+    private void pollDueTiers(VicareDeviceThingHandler handler) {
+        pollScheduler.devicePolled();
+        FeaturePollingTiers.Poll poll = pollingTiers.getPoll(handler.getThing().getUID(),
+                handler.getPolledFeatureNames(), Instant.now());
+        if (poll.isEmpty()) {
+            logger.trace("No features due for polling for {}", handler.getThing().getUID());
+        } else {
+            pollDevice(handler, poll);
+        }
+    }
+
+    private void pollDevice(VicareDeviceThingHandler handler, FeaturePollingTiers.Poll poll) {
+        Set<FeaturePollingTiers.Tier> tiers = poll.tiers();
+        Thing thing = handler.getThing();
+        Instant pollTime = Instant.now();
+        FeatureService featureService = vicareServiceProvider.getFeatureService();
+        CompletableFuture<FeatureSnapshot> snapshot;
+        polling.set(true);
+        try {
+            if (poll.isWholeDevice()) {
+                logger.debug("Polling {} features for {}", tiers, thing.getUID());
+                int expiresInSecs = (int) pollingTiers.getShortestInterval(tiers).toSeconds();
+                // wait for expired features to be revalidated, rather than render and account for the stale ones
+                snapshot = featureService.getFreshSnapshot(thing, expiresInSecs);
+            } else {
+                logger.debug("Polling {} features {} for {}", tiers, poll.featureNames(), thing.getUID());
+                // the fetched features are merged into the cached snapshot, which is then rendered
+                snapshot = CompletableFuture.allOf(poll.featureNames().stream()
+                                .map(featureName -> featureService.refreshFeature(thing, featureName))
+                                .toArray(CompletableFuture[]::new))
+                        .thenCompose(v -> featureService.getSnapshot(thing, Integer.MAX_VALUE));
+            }
+        } finally {
+            polling.set(false);
+        }
+        snapshot = snapshot.whenComplete((features, t) -> {
+            if (t == null) {
+                pollingTiers.polled(thing.getUID(), tiers, pollTime);
+                pollScheduler.requestSucceeded();
+                if (getThing().getStatus() != ThingStatus.ONLINE) {
+                    updateStatus(ThingStatus.ONLINE);
+                }
+            } else {
+                logger.warn("Unable to poll features", t);
+                featureFetchFailed(t instanceof CompletionException ce ? ce : new CompletionException(t));
+            }
+        });
+        handler.refreshChannels(snapshot, statePublisher, poll.isWholeDevice() ?
+                featureName -> tiers.contains(pollingTiers.getTier(featureName)) :
+                poll.featureNames()::contains);
+    }
+
+    ChangeDetectingStatePublisher getStatePublisher() {
+        return statePublisher;
+    }
+
+    @Override
+    public void childHandlerDisposed(ThingHandler childHandler, Thing childThing) {
+        statePublisher.clear(childThing.getUID());
+        pollingTiers.clear(childThing.getUID());
+        super.childHandlerDisposed(childHandler, childThing);
     }
 
     @Override
@@ -143,6 +286,30 @@ public class VicareBridgeHandler extends BaseBridgeHandler implements VicareThin
         } catch (IOException e) {
             logger.warn("Unable to write PersistedTokenStore configuration", e);
         }
+        vicareServiceProvider.getFeatureService().setStaleWhileRevalidate(
+                requireNonNullElse((Boolean) configurationParameters.get(CONFIG_STALE_WHILE_REVALIDATE), true));
+        statePublisher.setPublishOnChange(
+                requireNonNullElse((Boolean) configurationParameters.get(CONFIG_PUBLISH_ON_CHANGE), false));
+        BigDecimal keepAliveInterval = (BigDecimal) configurationParameters.get(CONFIG_PUBLISH_KEEP_ALIVE_INTERVAL);
+        statePublisher.setKeepAliveInterval(Duration.ofSeconds(
+                keepAliveInterval == null ? DEFAULT_PUBLISH_KEEP_ALIVE_INTERVAL : keepAliveInterval.longValue()));
+        statePublisher.clear();
+        pollScheduler.setPollingInterval(Duration.ofSeconds(getPollingInterval(configurationParameters)));
+        pollingTiers.setIntervals(Duration.ofSeconds(getPollingInterval(configurationParameters)),
+                Duration.ofSeconds(requireNonNullElse((BigDecimal) configurationParameters.get(CONFIG_NORMAL_POLLING_INTERVAL),
+                        BigDecimal.valueOf(DEFAULT_NORMAL_POLLING_INTERVAL)).longValue()),
+                Duration.ofSeconds(requireNonNullElse((BigDecimal) configurationParameters.get(CONFIG_SLOW_POLLING_INTERVAL),
+                        BigDecimal.valueOf(DEFAULT_SLOW_POLLING_INTERVAL)).longValue()));
+        try {
+            pollingTiers.setPatterns(featurePatterns(configurationParameters, CONFIG_FAST_FEATURES, FeaturePollingTiers.DEFAULT_FAST_FEATURES),
+                    featurePatterns(configurationParameters, CONFIG_SLOW_FEATURES, FeaturePollingTiers.DEFAULT_SLOW_FEATURES));
+        } catch (PatternSyntaxException e) {
+            logger.warn("Invalid feature polling pattern, using the default polling tiers: {}", e.getMessage());
+            pollingTiers.setPatterns(FeaturePollingTiers.DEFAULT_FAST_FEATURES, FeaturePollingTiers.DEFAULT_SLOW_FEATURES);
+        }
+        pollScheduler.setDailyRequestLimit(
+                requireNonNullElse((BigDecimal) configurationParameters.get(CONFIG_DAILY_REQUEST_LIMIT),
+                        BigDecimal.valueOf(DEFAULT_DAILY_REQUEST_LIMIT)).intValue());
     }
 
     public Optional<Feature> handleBridgedRefreshCommand(ChannelUID channelUID) throws AuthenticationException, IOException {
@@ -164,16 +331,10 @@ public class VicareBridgeHandler extends BaseBridgeHandler implements VicareThin
                 })
                 .join();
         } catch (CompletionException e) {
+            featureFetchFailed(e);
             Throwable t = e.getCause();
             if (t instanceof AuthenticationException ae) {
-                updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR,
-                             "Unable to authenticate with Viessmann API: " + e.getMessage());
                 throw ae;
-            } else if (!(t instanceof VicareServiceException)) {
-                    // VicareServiceException handled by device
-                    updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR,
-                                     "Unable to communicate with Viessmann API: " + e.getMessage());
-                        logger.debug("Unexpected exception refreshing", e);
             }
             if (t instanceof IOException ioe) {
                 throw ioe;
@@ -182,6 +343,20 @@ public class VicareBridgeHandler extends BaseBridgeHandler implements VicareThin
         }
     }
 
+    private void featureFetchFailed(CompletionException e) {
+        Throwable t = e.getCause();
+        pollScheduler.requestFailed(t);
+        if (t instanceof AuthenticationException) {
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR,
+                         "Unable to authenticate with Viessmann API: " + e.getMessage());
+        } else if (!(t instanceof VicareServiceException)) {
+            // VicareServiceException handled by device
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR,
+                         "Unable to communicate with Viessmann API: " + e.getMessage());
+            logger.debug("Unexpected exception refreshing", e);
+        }
+    }
+
     public Optional<State> handleBridgedDeviceCommand(ChannelUID channelUID, State command) throws AuthenticationException, IOException, CommandFailureException {
         logger.trace("Handling command {} for channel {} from thing {}", command, channelUID, channelUID.getThingUID());
         Thing targetThing = thingRegistry.get(channelUID.getThingUID());
@@ -216,13 +391,32 @@ public class VicareBridgeHandler extends BaseBridgeHandler implements VicareThin
             String paramName = channel.getProperties().get(PROPERTY_PARAM_NAME);
             if (paramName != null) {
                 values.put(paramName, value);
+                requestSent();
                 vicareService.sendCommand(commandDescriptor.getUri(), values);
             } else if (Boolean.TRUE.equals(value)) {
+                requestSent();
                 vicareService.sendCommand(commandDescriptor.getUri(), emptyMap());
+            } else {
+                return;
             }
+            // read back just the affected feature rather than waiting for the next poll of the whole device
+            String featureName = channel.getProperties().get(PROPERTY_FEATURE_NAME);
+            vicareServiceProvider.getFeatureService().refreshFeature(targetThing, featureName)
+                    .exceptionally(t -> {
+                        logger.debug("Unable to refresh feature {} after command", featureName, t);
+                        return empty();
+                    });
         }
     }
 
+    /**
+     * Counts a request made to the API other than for features, such as a command or a device scan, against the
+     * daily request quota.
+     */
+    void requestSent() {
+        pollScheduler.requestSent(false);
+    }
+
     @Override
     public Collection<Class<? extends ThingHandlerService>> getServices() {
         return Collections.singleton(VicareDiscoveryService.class);
@@ -263,7 +457,8 @@ public class VicareBridgeHandler extends BaseBridgeHandler implements VicareThin
     }
 
     boolean isFeatureScanRunning() {
-        return !(featurePollingJob.isCancelled() || featurePollingJob.isDone());
+        ScheduledFuture<?> job = featurePollingJob;
+        return job != null && !(job.isCancelled() || job.isDone());
     }
 
     private void upgradeConfiguration() {
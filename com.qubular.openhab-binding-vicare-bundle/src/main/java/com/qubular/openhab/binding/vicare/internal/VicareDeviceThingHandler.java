@@ -3,17 +3,9 @@ package com.qubular.openhab.binding.vicare.internal;
 import com.qubular.openhab.binding.vicare.VicareServiceProvider;
 import com.qubular.openhab.binding.vicare.internal.channeltype.VicareChannelBuilder;
 import com.qubular.vicare.*;
-import com.qubular.vicare.model.Unit;
-import com.qubular.vicare.model.Value;
-import com.qubular.vicare.model.values.*;
-import com.qubular.vicare.model.values.DimensionalValue;
 import com.qubular.vicare.model.Feature;
 import com.qubular.vicare.model.features.*;
 import org.eclipse.jdt.annotation.Nullable;
-import org.openhab.core.library.types.DateTimeType;
-import org.openhab.core.library.types.DecimalType;
-import org.openhab.core.library.types.OnOffType;
-import org.openhab.core.library.types.StringType;
 import org.openhab.core.thing.*;
 import org.openhab.core.thing.binding.BaseThingHandler;
 import org.openhab.core.thing.binding.ThingHandlerService;
@@ -28,15 +20,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.time.LocalDate;
-import java.time.LocalTime;
-import java.time.ZoneId;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import static com.qubular.openhab.binding.vicare.internal.DeviceDiscoveryEvent.generateTopic;
-import static com.qubular.openhab.binding.vicare.internal.UnitMapping.apiToOpenHab;
 import static com.qubular.openhab.binding.vicare.internal.VicareConstants.*;
 import static com.qubular.openhab.binding.vicare.internal.VicareUtil.decodeThingUniqueId;
 import static java.lang.String.format;
@@ -72,9 +65,16 @@ public class VicareDeviceThingHandler extends BaseThingHandler {
     private static final Logger logger = LoggerFactory.getLogger(VicareDeviceThingHandler.class);
     private final VicareService vicareService;
     private final VicareServiceProvider vicareServiceProvider;
+    private final Executor executor;
     private ServiceRegistration<EventHandler> discoveryListenerRegistration;
-
-    private static final Map<String, ConsumptionFeature.Stat> CONSUMPTION_STATS_BY_CHANNEL_NAME =
+    /** The last state rendered for each channel from a polled snapshot */
+    private final Map<ChannelUID, State> renderedStates = new ConcurrentHashMap<>();
+    /** The version of the snapshot that renderedStates was last brought up to date with */
+    private volatile long renderedVersion;
+    /** The compiled render plan of each channel that has been rendered */
+    private final Map<ChannelUID, ChannelRenderPlan> renderPlans = new ConcurrentHashMap<>();
+
+    static final Map<String, ConsumptionFeature.Stat> CONSUMPTION_STATS_BY_CHANNEL_NAME =
             CONSUMPTION_CHANNEL_NAMES_BY_STAT.entrySet().stream()
                     .collect(toMap(Map.Entry::getValue, Map.Entry::getKey));
 
@@ -83,6 +83,7 @@ public class VicareDeviceThingHandler extends BaseThingHandler {
                                     VicareService vicareService) {
         super(thing);
         this.vicareServiceProvider = vicareServiceProvider;
+        this.executor = vicareServiceProvider.getExecutor();
         logger.info("Creating handler for {}", thing.getUID());
         this.vicareService = vicareService;
     }
@@ -93,6 +94,9 @@ public class VicareDeviceThingHandler extends BaseThingHandler {
             discoveryListenerRegistration.unregister();
             discoveryListenerRegistration = null;
         }
+        renderedStates.clear();
+        renderedVersion = 0;
+        renderPlans.clear();
         super.dispose();
     }
 
@@ -107,7 +111,7 @@ public class VicareDeviceThingHandler extends BaseThingHandler {
         subscriptionProps.put(EVENT_TOPIC, generateTopic(thing.getUID()));
         discoveryListenerRegistration = vicareServiceProvider.getBundleContext().registerService(
                 EventHandler.class, new DiscoveryEventHandler(), subscriptionProps);
-        CompletableFuture.supplyAsync(new VicareChannelBuilder(vicareServiceProvider, igd, thing, this::createChannelBuilder, vicareServiceProvider.getChannelTypeProvider()::addChannelType))
+        CompletableFuture.supplyAsync(new VicareChannelBuilder(vicareServiceProvider, igd, thing, this::createChannelBuilder, vicareServiceProvider.getChannelTypeProvider()::addChannelType), executor)
                 .thenAccept(memo -> {
                     try {
                         VicareChannelBuilder.Result result = memo.get();
@@ -126,6 +130,7 @@ public class VicareDeviceThingHandler extends BaseThingHandler {
                             updateThing(thingBuilder.build());
                         }
                         updateStatus(ThingStatus.ONLINE);
+                        publishInitialStates();
                     } catch (AuthenticationException e) {
                         logger.warn("Unable to authenticate while fetching device features", e);
                         updateStatus(ThingStatus.OFFLINE,
@@ -141,21 +146,29 @@ public class VicareDeviceThingHandler extends BaseThingHandler {
                 .exceptionally(t -> { logger.warn("Unexpected error initializing Thing", t); return null; });
     }
 
+    /**
+     * Publishes the channel states from the features the channels were built from, which after a restart are
+     * those persisted by the last run, rather than leaving them undefined until the device is first polled.
+     */
+    private void publishInitialStates() {
+        VicareBridgeHandler bridgeHandler = getBridge() == null ? null : getBridgeHandler();
+        if (bridgeHandler != null) {
+            refreshChannels(vicareServiceProvider.getFeatureService().getSnapshot(thing, Integer.MAX_VALUE),
+                    bridgeHandler.getStatePublisher(), featureName -> true);
+        }
+    }
+
     @Override
     public void handleCommand(ChannelUID channelUID, Command command) {
         CompletableFuture.runAsync(() -> {
                     try {
                         syncHandleCommand(channelUID, command);
-                    } catch (AuthenticationException e) {
-                        updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.BRIDGE_OFFLINE, "Unable to authenticate with Viessmann API: " + e.getMessage());
-                    } catch (VicareServiceException e) {
-                        updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, "Unable to communicate with device: " + e.getMessage());
-                    } catch (IOException e) {
-                        updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.BRIDGE_OFFLINE, "Unable to communicate with Viessmann API: " + e.getMessage());
+                    } catch (AuthenticationException | IOException e) {
+                        updateStatusForFailure(e);
                     } catch (CommandFailureException e) {
                         logger.warn("Unable to perform command {} for channel {} {}: {}", command, channelUID, e.getReason(), e.getMessage());
                     }
-                })
+                }, executor)
                 .exceptionally(t -> {
                     // reduce amount of log spam for failed REFRESH
                     if (command != RefreshType.REFRESH) {
@@ -177,149 +190,160 @@ public class VicareDeviceThingHandler extends BaseThingHandler {
 
     private void syncHandleOtherCommand(ChannelUID channelUID, State command) throws AuthenticationException, IOException, CommandFailureException {
         Optional<State> newValue = getBridgeHandler().handleBridgedDeviceCommand(channelUID, command);
-        newValue.ifPresent(state -> updateState(channelUID, state));
+        newValue.ifPresent(state -> publishState(channelUID, state));
     }
 
     private void syncHandleRefreshCommand(ChannelUID channelUID) throws AuthenticationException, IOException {
         Optional<Feature> feature = ((VicareBridgeHandler) getBridge().getHandler()).handleBridgedRefreshCommand(
                 channelUID);
-        feature.ifPresent(f -> {
-            f.accept(new Feature.Visitor() {
-                @Override
-                public void visit(ConsumptionFeature f) {
-                    Channel channel = getThing().getChannel(channelUID);
-                    String statName = channel.getProperties().get(PROPERTY_PROP_NAME);
-                    Optional<DimensionalValue> stat = f.getConsumption(
-                            CONSUMPTION_STATS_BY_CHANNEL_NAME.get(statName));
-                    updateConsumptionStat(stat.map(DimensionalValue::getValue).orElse(0.0),
-                                          stat.map(DimensionalValue::getUnit).orElse(null));
-                }
+        feature.ifPresent(f -> updateChannelState(getThing().getChannel(channelUID), f, this::publishState));
+        if (thing.getStatus() != ThingStatus.ONLINE) {
+            updateStatus(ThingStatus.ONLINE);
+        }
+    }
 
-                private void updateConsumptionStat(Double value, Unit unit) {
-                    updateState(channelUID, apiToOpenHab(unit, value));
-                }
+    /**
+     * Publishes a state unconditionally, recording it so that polling does not repeat it.
+     */
+    private void publishState(ChannelUID channelUID, State state) {
+        updateState(channelUID, state);
+        getBridgeHandler().getStatePublisher().published(channelUID, state);
+    }
 
-                @Override
-                public void visit(NumericSensorFeature f) {
-                    Channel channel = getThing().getChannel(channelUID);
-                    String propName = channel.getProperties().get(PROPERTY_PROP_NAME);
-                    if ("active".equals(propName)) {
-                        updateState(channelUID, f.isActive() ? OnOffType.ON : OnOffType.OFF);
-                    } else if ("status".equals(propName)) {
-                        updateState(channelUID, StringType.valueOf(f.getStatus() == null ? null : f.getStatus().getName()));
-                    } else {
-                        Value v = f.getProperties().get(propName);
-                        if (v instanceof DimensionalValue) {
-                            double value = ((DimensionalValue) v).getValue();
-                            updateState(channelUID, new DecimalType(value));
+    /**
+     * Updates the state of every channel from the device's features in a single task, once they are available.
+     * Only channels whose features have changed since the last snapshot are rendered again, and updates are only
+     * published if the state publisher considers them necessary.
+     * @param featureFilter Selects the features whose channels are to be refreshed.
+     */
+    CompletableFuture<Void> refreshChannels(CompletableFuture<FeatureSnapshot> snapshot,
+                                            ChangeDetectingStatePublisher statePublisher,
+                                            Predicate<String> featureFilter) {
+        BiConsumer<ChannelUID, State> publisher = (uid, state) -> {
+            if (statePublisher.shouldPublish(uid, state)) {
+                updateState(uid, state);
+            }
+        };
+        BiConsumer<ChannelUID, State> renderer = (uid, state) -> {
+            renderedStates.put(uid, state);
+            publisher.accept(uid, state);
+        };
+        return snapshot.handleAsync((features, t) -> {
+            if (t != null) {
+                updateStatusForFailure(t instanceof CompletionException ? t.getCause() : t);
+                return null;
+            }
+            boolean unchanged = features.getVersion() == renderedVersion;
+            // The diff can only be used if it is relative to what was last rendered
+            FeatureDiff diff = features.getDiff()
+                    .filter(d -> d.getPreviousVersion() == renderedVersion)
+                    .orElse(null);
+            if (diff != null && diff.hasAddedOrRemoved()) {
+                updateChannelsForDiff(diff);
+            }
+            for (Channel channel : getThing().getChannels()) {
+                String featureName = channel.getProperties().get(PROPERTY_FEATURE_NAME);
+                // Don't refresh channels that represent commands
+                if (featureName != null && channel.getProperties().containsKey(PROPERTY_PROP_NAME)) {
+                    if (!featureFilter.test(featureName)) {
+                        // Not refreshed this time, so its rendered state must not be reused against a later diff
+                        if (!unchanged && (diff == null || diff.isChanged(featureName))) {
+                            renderedStates.remove(channel.getUID());
                         }
+                        continue;
                     }
-                }
-
-                @Override
-                public void visit(StatusSensorFeature f) {
-                    Channel channel = getThing().getChannel(channelUID);
-                    String propertyName = channel.getProperties().get(PROPERTY_PROP_NAME);
-                    State state;
-                    switch (propertyName) {
-                        case "status":
-                            state = StringType.valueOf(f.getStatus() == null ? null : f.getStatus().getName());
-                            break;
-                        default:
-                            Value value = f.getProperties().get(propertyName);
-                            var visitor = new Value.Visitor() {
-                                State state = UnDefType.UNDEF;
-
-                                @Override
-                                public void visit(ArrayValue v) {
-                                    unsupportedValue(v);
-                                }
-
-                                @Override
-                                public void visit(BooleanValue v) {
-                                    state = v.getValue() ? OnOffType.ON : OnOffType.OFF;
-                                }
-
-                                @Override
-                                public void visit(DimensionalValue v) {
-                                    state = new DecimalType(v.getValue());
-                                }
-
-                                @Override
-                                public void visit(LocalDateValue v) {
-                                    unsupportedValue(v);
-                                }
-
-                                @Override
-                                public void visit(StatusValue v) {
-                                    unsupportedValue(v);
-                                }
-
-                                @Override
-                                public void visit(StringValue v) {
-                                    state = new StringType(v.getValue());
-                                }
-
-                                private void unsupportedValue(Value v) {
-                                    logger.trace("Unable to update unsupported value {} for property {}.{}",
-                                            v, f.getName(), propertyName);
-                                }
-                            };
-                            value.accept(visitor);
-                            state = visitor.state;
-                            break;
+                    try {
+                        State rendered = renderedStates.get(channel.getUID());
+                        if (rendered != null && (unchanged || diff != null && !diff.isChanged(featureName))) {
+                            publisher.accept(channel.getUID(), rendered);
+                        } else {
+                            features.getFeature(featureName).ifPresent(f -> updateChannelState(channel, f, renderer));
+                        }
+                    } catch (RuntimeException e) {
+                        logger.debug("Unexpected exception refreshing channel {}", channel.getUID(), e);
                     }
-                    updateState(channelUID, state);
                 }
+            }
+            renderedVersion = features.getVersion();
+            if (thing.getStatus() != ThingStatus.ONLINE) {
+                updateStatus(ThingStatus.ONLINE);
+            }
+            return null;
+        }, executor);
+    }
 
-                @Override
-                public void visit(TextFeature f) {
-                    logger.trace("Update {} with {}", channelUID, f.getValue());
-                    updateState(channelUID, new StringType(f.getValue()));
-                }
+    /**
+     * @return The names of the features that channels are refreshed from.
+     */
+    Set<String> getPolledFeatureNames() {
+        Set<String> featureNames = new HashSet<>();
+        for (Channel channel : getThing().getChannels()) {
+            String featureName = channel.getProperties().get(PROPERTY_FEATURE_NAME);
+            if (featureName != null && channel.getProperties().containsKey(PROPERTY_PROP_NAME)) {
+                featureNames.add(featureName);
+            }
+        }
+        return featureNames;
+    }
 
-                @Override
-                public void visit(CurveFeature f) {
-                    Channel channel = getThing().getChannel(channelUID);
-                    switch (channel.getProperties().get(PROPERTY_PROP_NAME)) {
-                        case "slope":
-                            State slopeState = new DecimalType(f.getSlope().getValue());
-                            updateState(channelUID, slopeState);
-                            break;
-                        case "shift":
-                            State shiftState = new DecimalType(f.getShift().getValue());
-                            updateState(channelUID, shiftState);
-                            break;
-                    }
-                }
+    /**
+     * Adds channels for features that have appeared and removes those of features that have disappeared.
+     */
+    private void updateChannelsForDiff(FeatureDiff diff) {
+        logger.debug("Features of {} added: {}, removed: {}", thing.getUID(), diff.getAdded().size(),
+                diff.getRemoved().size());
+        Set<String> removedFeatures = diff.getRemoved().stream()
+                .map(Feature::getName)
+                .collect(Collectors.toSet());
+        List<Channel> channels = new ArrayList<>();
+        for (Channel channel : getThing().getChannels()) {
+            if (removedFeatures.contains(channel.getProperties().get(PROPERTY_FEATURE_NAME))) {
+                renderedStates.remove(channel.getUID());
+                renderPlans.remove(channel.getUID());
+            } else {
+                channels.add(channel);
+            }
+        }
+        Set<ChannelUID> existingChannels = channels.stream()
+                .map(Channel::getUID)
+                .collect(Collectors.toSet());
+        new VicareChannelBuilder(vicareServiceProvider, decodeThingUniqueId(VicareUtil.getDeviceUniqueId(thing)),
+                thing, this::createChannelBuilder, vicareServiceProvider.getChannelTypeProvider()::addChannelType)
+                .buildChannelsForFeatures(diff.getAdded()).stream()
+                .filter(c -> !existingChannels.contains(c.getUID()))
+                .forEach(channels::add);
+        if (channels.size() != existingChannels.size() || existingChannels.size() != getThing().getChannels().size()) {
+            channels.sort(Comparator.comparing(c -> c.getUID().getId()));
+            updateThing(editThing().withChannels(channels).build());
+        }
+    }
 
-                @Override
-                public void visit(DatePeriodFeature datePeriodFeature) {
-                    Channel channel = getThing().getChannel(channelUID);
-                    State newState = UnDefType.UNDEF;
-                    switch (channel.getProperties().get(PROPERTY_PROP_NAME)) {
-                        case "active":
-                            newState = StatusValue.ON.equals(datePeriodFeature.getActive()) ? OnOffType.ON : OnOffType.OFF;
-                            break;
-                        case "start":
-                            LocalDate startDate = datePeriodFeature.getStart();
-                            if (startDate != null) {
-                                newState = new DateTimeType(startDate.atStartOfDay(ZoneId.systemDefault()));
-                            }
-                            break;
-                        case "end":
-                            LocalDate endDate = datePeriodFeature.getEnd();
-                            if (endDate != null) {
-                                newState = new DateTimeType(endDate.atTime(LocalTime.MAX).atZone(ZoneId.systemDefault()));
-                            }
-                            break;
-                    }
-                    updateState(channelUID, newState);
-                }
-            });
-        });
-        if (thing.getStatus() != ThingStatus.ONLINE) {
-            updateStatus(ThingStatus.ONLINE);
+    private void updateStatusForFailure(Throwable t) {
+        if (t instanceof AuthenticationException e) {
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.BRIDGE_OFFLINE, "Unable to authenticate with Viessmann API: " + e.getMessage());
+        } else if (t instanceof VicareServiceException e) {
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, "Unable to communicate with device: " + e.getMessage());
+        } else if (t instanceof IOException e) {
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.BRIDGE_OFFLINE, "Unable to communicate with Viessmann API: " + e.getMessage());
+        } else {
+            logger.debug("Unexpected exception refreshing {}", thing.getUID(), t);
+        }
+    }
+
+    /**
+     * Renders the channel's state from its feature with the channel's render plan, which is compiled the first time
+     * the channel is rendered.
+     */
+    private void updateChannelState(Channel channel, Feature feature, BiConsumer<ChannelUID, State> publisher) {
+        ChannelUID channelUID = channel.getUID();
+        ChannelRenderPlan renderPlan = renderPlans.get(channelUID);
+        if (renderPlan == null || !renderPlan.isFor(channel, feature)) {
+            renderPlan = ChannelRenderPlan.compile(channel, feature);
+            renderPlans.put(channelUID, renderPlan);
+        }
+        State state = renderPlan.render(feature);
+        if (state != null) {
+            publisher.accept(channelUID, state);
         }
     }
 
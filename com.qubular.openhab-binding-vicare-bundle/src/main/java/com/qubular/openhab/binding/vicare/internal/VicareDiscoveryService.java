@@ -90,6 +90,7 @@ public class VicareDiscoveryService extends AbstractDiscoveryService
         return () -> {
             logger.info("Starting Viessmann bridge scan");
             try {
+                getBridgeHandler().requestSent();
                 List<Installation> installations = getVicareService().getInstallations();
                 for (Installation installation : installations) {
                     for (Gateway gateway : installation.getGateways()) {
@@ -199,7 +200,8 @@ public class VicareDiscoveryService extends AbstractDiscoveryService
     public void activate() {
         ThingHandlerService.super.activate();
         Hashtable<String, Object> properties = new Hashtable<>();
-        properties.put(EVENT_TOPIC, TokenEvent.TOPIC_NEW_ACCESS_TOKEN);
+        // routine access token refreshes don't change what there is to discover
+        properties.put(EVENT_TOPIC, TokenEvent.TOPIC_AUTHORISED);
         BundleContext bundleContext = FrameworkUtil.getBundle(getClass()).getBundleContext();
         eventHandlerRegistration = bundleContext.registerService(EventHandler.class, new TokenEventHandler(), properties);
         eventAdmin = bundleContext.getService(bundleContext.getServiceReference(EventAdmin.class));
@@ -42,7 +42,26 @@ public class VicareUtil {
         return new IGD(Long.valueOf(split[0]), split[1], split[2]);
     }
 
+    /**
+     * @return The string with every character other than a letter, digit or underscore replaced by an underscore.
+     */
     public static String escapeUIDSegment(String s) {
-        return s == null ? null : s.replaceAll("\\W", "_");
+        if (s == null) {
+            return null;
+        }
+        char[] chars = null;
+        for (int i = 0; i < s.length(); ++i) {
+            if (!isWordChar(s.charAt(i))) {
+                if (chars == null) {
+                    chars = s.toCharArray();
+                }
+                chars[i] = '_';
+            }
+        }
+        return chars == null ? s : new String(chars);
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
     }
 }
@@ -1,7 +1,6 @@
 package com.qubular.openhab.binding.vicare.internal.channeltype;
 
 import com.qubular.openhab.binding.vicare.VicareServiceProvider;
-import com.qubular.vicare.model.Feature;
 import org.openhab.core.thing.Channel;
 import org.openhab.core.thing.Thing;
 import org.openhab.core.thing.ThingRegistry;
@@ -15,8 +14,11 @@ import org.osgi.service.component.annotations.Reference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Optional;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.qubular.openhab.binding.vicare.internal.VicareConstants.BINDING_ID;
 import static com.qubular.openhab.binding.vicare.internal.VicareConstants.PROPERTY_FEATURE_NAME;
@@ -44,7 +46,7 @@ public class ChannelTypeManager {
 
             @Override
             public void removed(Thing thing) {
-                // don't care
+                evictUnreferencedChannelTypes();
             }
 
             @Override
@@ -55,14 +57,33 @@ public class ChannelTypeManager {
         };
         thingRegistry.addRegistryChangeListener(thingRegistryChangeListener);
         // Defer loading the channels to allow the thing-types.xml to be loaded
-        CompletableFuture.runAsync(this::preloadThingChannels, CompletableFuture.delayedExecutor(5, SECONDS));
+        CompletableFuture.runAsync(this::preloadThingChannels,
+                CompletableFuture.delayedExecutor(5, SECONDS, vicareServiceProvider.getExecutor()));
     }
 
     private void preloadThingChannels() {
-        vicareServiceProvider.getThingRegistry().getAll()
+        vicareThings().forEach(this::preloadChannelTypes);
+        evictUnreferencedChannelTypes();
+    }
+
+    private Stream<Thing> vicareThings() {
+        return vicareServiceProvider.getThingRegistry().getAll()
                 .stream()
-                .filter(thing -> BINDING_ID.equals(thing.getUID().getBindingId()))
-                .forEach(this::preloadChannelTypes);
+                .filter(thing -> BINDING_ID.equals(thing.getUID().getBindingId()));
+    }
+
+    /**
+     * Removes generated channel types that were persisted for channels that no longer exist, so that they do not
+     * accumulate as devices are removed or their features change. This is not done when a thing is updated, because
+     * a handler adds the channel types for its new channels before it updates the thing with them.
+     */
+    private void evictUnreferencedChannelTypes() {
+        Set<ChannelTypeUID> referenced = vicareThings()
+                .flatMap(thing -> thing.getChannels().stream())
+                .map(Channel::getChannelTypeUID)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        vicareServiceProvider.getChannelTypeProvider().evictUnreferenced(referenced);
     }
 
     @SuppressWarnings("unused")
@@ -72,27 +93,31 @@ public class ChannelTypeManager {
         vicareServiceProvider.getThingRegistry().removeRegistryChangeListener(thingRegistryChangeListener);
     }
 
+    /**
+     * Builds the channel types that are missing for the thing's channels. They are all built from one snapshot of the
+     * thing's features, which comes from the same cache as the features the thing handler and the poller use, so
+     * that preloading does not fetch features of its own.
+     */
     private void preloadChannelTypes(Thing thing) {
         logger.debug("Preloading channels for {}", thing.getUID());
-        thing.getChannels().forEach(channel -> {
-            ChannelTypeUID channelTypeUID = channel.getChannelTypeUID();
-            ChannelType channelType = vicareServiceProvider.getChannelTypeRegistry().getChannelType(channelTypeUID);
-            if (channelType == null) {
-                preloadChannelType(channel, channelTypeUID);
-            }
-        });
-    }
-
-    private void preloadChannelType(Channel channel, ChannelTypeUID channelTypeUID) {
-        String featureName = channel.getProperties().get(PROPERTY_FEATURE_NAME);
-        if (featureName != null) {
-            Thing thing = vicareServiceProvider.getThingRegistry().get(channel.getUID().getThingUID());
-            CompletableFuture<Optional<Feature>> featureFuture = vicareServiceProvider.getFeatureService()
-                    .getFeature(thing, featureName, FEATURE_VALIDITY_SECS);
-            VicareChannelBuilder vicareChannelBuilder = new VicareChannelBuilder(vicareServiceProvider, thing, ct -> {
-                vicareServiceProvider.getChannelTypeProvider().addChannelType(ct);
-            });
-            featureFuture.thenAccept(feature -> feature.ifPresent(vicareChannelBuilder::buildChannelTypeForFeature));
+        Set<String> featureNames = thing.getChannels().stream()
+                .filter(channel -> vicareServiceProvider.getChannelTypeRegistry()
+                        .getChannelType(channel.getChannelTypeUID()) == null)
+                .map(channel -> channel.getProperties().get(PROPERTY_FEATURE_NAME))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        if (featureNames.isEmpty()) {
+            return;
         }
+        VicareChannelBuilder vicareChannelBuilder = new VicareChannelBuilder(vicareServiceProvider, thing, ct -> {
+            vicareServiceProvider.getChannelTypeProvider().addChannelType(ct);
+        });
+        vicareServiceProvider.getFeatureService().getSnapshot(thing, FEATURE_VALIDITY_SECS)
+                .thenAccept(snapshot -> featureNames.forEach(featureName ->
+                        snapshot.getFeature(featureName).ifPresent(vicareChannelBuilder::buildChannelTypeForFeature)))
+                .exceptionally(t -> {
+                    logger.debug("Unable to preload channel types for {}", thing.getUID(), t);
+                    return null;
+                });
     }
 }
@@ -0,0 +1,100 @@
+package com.qubular.openhab.binding.vicare.internal.channeltype;
+
+import com.qubular.vicare.model.Feature;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.thing.type.ChannelType;
+import org.openhab.core.thing.type.ChannelTypeRegistry;
+import org.openhab.core.thing.type.ChannelTypeUID;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.qubular.openhab.binding.vicare.internal.VicareConstants.BINDING_ID;
+import static java.util.Collections.emptyMap;
+
+/**
+ * Resolves the channel type templates declared in the binding's thing-types.xml. The templates are indexed by id
+ * once thing-types.xml has been loaded, and the template resolved for each feature property is remembered, so that
+ * building the channels of a large device does not search the channel type registry several times per property.
+ */
+@Component(service = ChannelTypeTemplates.class)
+public class ChannelTypeTemplates {
+    private static final Logger logger = LoggerFactory.getLogger(ChannelTypeTemplates.class);
+    private static final String TEMPLATE_PREFIX = "template_";
+
+    private final ChannelTypeRegistry channelTypeRegistry;
+    private final VicareChannelTypeProvider channelTypeProvider;
+    private volatile Map<String, ChannelType> templatesById = emptyMap();
+    private final ConcurrentMap<String, Optional<ChannelType>> templatesByFeatureProperty = new ConcurrentHashMap<>();
+
+    @Activate
+    public ChannelTypeTemplates(@Reference ChannelTypeRegistry channelTypeRegistry,
+                                @Reference VicareChannelTypeProvider channelTypeProvider) {
+        this.channelTypeRegistry = channelTypeRegistry;
+        this.channelTypeProvider = channelTypeProvider;
+    }
+
+    /**
+     * @return The template declared for the feature property, trying the feature and property, then the feature
+     * with any property, then the feature with its last segment wildcarded.
+     */
+    public Optional<ChannelType> findTemplate(Feature feature, String propertyNameSuffix) {
+        Map<String, ChannelType> templates = getTemplatesById();
+        if (templates.isEmpty()) {
+            // thing-types.xml has not been loaded yet, don't remember that nothing was found
+            return Optional.empty();
+        }
+        return templatesByFeatureProperty.computeIfAbsent(feature.getName() + "#" + propertyNameSuffix,
+                k -> resolveTemplate(templates, feature, propertyNameSuffix));
+    }
+
+    /**
+     * @return The named template, which may be one that was generated rather than declared in thing-types.xml.
+     */
+    public @Nullable ChannelType getTemplate(String templateId) {
+        ChannelType template = getTemplatesById().get(templateId);
+        return template != null ? template :
+                channelTypeRegistry.getChannelType(new ChannelTypeUID(BINDING_ID, templateId));
+    }
+
+    private static Optional<ChannelType> resolveTemplate(Map<String, ChannelType> templates, Feature feature,
+                                                         String propertyNameSuffix) {
+        int truncation = -1;
+        do {
+            String templateId = FeatureUtil.templateId(feature, propertyNameSuffix, truncation);
+            ChannelType template = templates.get(templateId);
+            if (template != null) {
+                logger.debug("Found template {} for {} {}", templateId, feature.getName(), propertyNameSuffix);
+                return Optional.of(template);
+            }
+        } while (truncation++ < 1);
+        return Optional.empty();
+    }
+
+    private Map<String, ChannelType> getTemplatesById() {
+        Map<String, ChannelType> templates = templatesById;
+        if (templates.isEmpty()) {
+            // only the declared templates, generated channel types may be restored before thing-types.xml is loaded
+            templates = channelTypeRegistry.getChannelTypes().stream()
+                    .filter(channelType -> BINDING_ID.equals(channelType.getUID().getBindingId()) &&
+                            channelType.getUID().getId().startsWith(TEMPLATE_PREFIX) &&
+                            channelTypeProvider.getChannelType(channelType.getUID(), null) == null)
+                    .collect(Collectors.toUnmodifiableMap(channelType -> channelType.getUID().getId(),
+                            Function.identity(), (a, b) -> a));
+            if (!templates.isEmpty()) {
+                logger.debug("Indexed {} channel type templates", templates.size());
+                templatesById = templates;
+            }
+        }
+        return templates;
+    }
+}
@@ -30,12 +30,16 @@ class ChannelTypeUtil {
             "heating.dhw.temperature.temp2/value", "setTargetTemperature"
     );
 
+    private static final Pattern PATTERN_CHANNEL_INDEX = Pattern.compile("(_[\\d+])(_?)");
     private static final Pattern FEATURE_SUFFIX_PATTERN = Pattern.compile(".*\\.([^.]+)$");
 
     static String substitutePropertyValues(String template, Map<String, String> props) {
         for (Map.Entry<String, String> e : props.entrySet()) {
-            template = template.replaceAll("\\$\\{" + e.getKey() + "}", e.getValue());
-            template = template.replaceAll("\\$\\{pretty:" + e.getKey() + "}", FeatureUtil.prettyFormat(e.getValue()));
+            template = template.replace("${" + e.getKey() + "}", e.getValue());
+            String prettyPlaceholder = "${pretty:" + e.getKey() + "}";
+            if (template.contains(prettyPlaceholder)) {
+                template = template.replace(prettyPlaceholder, FeatureUtil.prettyFormat(e.getValue()));
+            }
         }
         return template;
     }
@@ -55,7 +59,7 @@ class ChannelTypeUtil {
     }
 
     static String channelIdToChannelType(String channelId) {
-        return channelId.replaceAll("(_[\\d+])(_?)", "$2");
+        return PATTERN_CHANNEL_INDEX.matcher(channelId).replaceAll("$2");
     }
 
     static Optional<StateDescriptionFragment> stateDescription(Feature feature, StateChannelTypeBuilder builder, ChannelType template,
@@ -6,6 +6,8 @@ import com.qubular.vicare.model.Feature;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -19,6 +21,10 @@ public class FeatureUtil {
 
     private static final Pattern PATTERN_FORCED_LAST_FROM_SCHEDULE_OPERATING_PROGRAM = Pattern.compile("heating\\.circuits\\.[\\d+]\\.operating\\.programs\\.forcedLastFromSchedule");
 
+    /** Feature names come from the device models the API supports, so there are only so many of them */
+    private static final int MAX_INDEXLESS_NAMES = 10000;
+    private static final ConcurrentMap<String, String> INDEXLESS_NAMES = new ConcurrentHashMap<>();
+
     static String prettyFormat(String camelCase) {
         int wordStart = 0;
         List<String> words = new ArrayList<>();
@@ -42,26 +48,87 @@ public class FeatureUtil {
         Matcher energySavingOperatingProgramMatcher = PATTERN_ENERGY_SAVING_OPERATING_PROGRAM.matcher(f.getName());
         String parentRoot;
         if (energySavingOperatingProgramMatcher.matches()) {
-            parentRoot = "template_" + energySavingOperatingProgramMatcher.group(1) + "energySaving";
-            parentRoot = parentRoot.replaceAll("\\.\\d+", "");
+            parentRoot = "template_" + withoutIndices(energySavingOperatingProgramMatcher.group(1)) + "energySaving";
         } else {
             Matcher forcedLastFromScheduleMatcher = PATTERN_FORCED_LAST_FROM_SCHEDULE_OPERATING_PROGRAM.matcher(f.getName());
             if (forcedLastFromScheduleMatcher.matches()) {
-                parentRoot = "template_" + f.getName().replaceAll("\\.\\d+", "");
+                parentRoot = "template_" + withoutIndices(f.getName());
             } else {
-                String truncated = f.getName().replaceAll("\\.\\d+", "");
+                String truncated = withoutIndices(f.getName());
                 int featureTruncation = truncation;
                 while (featureTruncation-- > 0) {
-                    truncated = truncated.replaceAll("\\.[^.]+?$", ".-");
+                    truncated = wildcardLastSegment(truncated);
                 }
                 parentRoot = "template_" + truncated;
             }
         }
         parentRoot = parentRoot
-                .replace(".", "_");
+                .replace('.', '_');
         return parentRoot + "_" + (truncation == 0 ? "-" : propertyNameSuffix);
     }
 
+    /**
+     * @return The feature name without its numeric segments, e.g. heating.circuits.0.name becomes
+     * heating.circuits.name. This is the same for every instance of a feature so the result is shared.
+     */
+    static String withoutIndices(String featureName) {
+        String indexless = INDEXLESS_NAMES.get(featureName);
+        if (indexless == null) {
+            indexless = removeIndices(featureName);
+            if (INDEXLESS_NAMES.size() < MAX_INDEXLESS_NAMES) {
+                INDEXLESS_NAMES.putIfAbsent(featureName, indexless);
+            }
+        }
+        return indexless;
+    }
+
+    /**
+     * Removes every '.' that is followed by digits, together with the digits.
+     */
+    private static String removeIndices(String featureName) {
+        StringBuilder sb = null;
+        int copied = 0;
+        int length = featureName.length();
+        for (int i = 0; i < length; ++i) {
+            if (featureName.charAt(i) == '.' && i + 1 < length && isAsciiDigit(featureName.charAt(i + 1))) {
+                if (sb == null) {
+                    sb = new StringBuilder(length);
+                }
+                sb.append(featureName, copied, i);
+                int end = i + 1;
+                while (end < length && isAsciiDigit(featureName.charAt(end))) {
+                    ++end;
+                }
+                copied = end;
+                i = end - 1;
+            }
+        }
+        return sb == null ? featureName : sb.append(featureName, copied, length).toString();
+    }
+
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * @return The name with its last segment replaced by "-", or the name itself if it has no non-empty last segment.
+     */
+    static String wildcardLastSegment(String name) {
+        int lastDot = name.lastIndexOf('.');
+        if (lastDot < 0 || lastDot == name.length() - 1) {
+            return name;
+        }
+        return name.substring(0, lastDot + 1) + "-";
+    }
+
+    /**
+     * @return The part of the name after the last '.', or the name itself if it has none.
+     */
+    static String lastSegment(String name) {
+        int lastDot = name.lastIndexOf('.');
+        return lastDot < 0 ? name : name.substring(lastDot + 1);
+    }
+
      private static String heatingCircuit(String featureName) {
         Matcher matcher = PATTERN_HEATING_CIRCUIT.matcher(featureName);
         return matcher.matches() ? matcher.group(1) : null;
@@ -74,7 +141,7 @@ public class FeatureUtil {
 
     static Map<String, String> extractTemplatePropertiesFromFeature(Feature feature, Map<String, String> props) {
 
-        props.put("0", feature.getName().replaceAll(".*\\.([^.]*$)", "$1"));
+        props.put("0", lastSegment(feature.getName()));
         String heatingCircuit = FeatureUtil.heatingCircuit(feature.getName());
         if (heatingCircuit != null) {
             props.put("heatingCircuit", heatingCircuit);
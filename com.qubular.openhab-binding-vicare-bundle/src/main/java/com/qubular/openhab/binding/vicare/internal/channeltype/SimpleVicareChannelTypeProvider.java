@@ -1,20 +1,66 @@
 package com.qubular.openhab.binding.vicare.internal.channeltype;
 
-import com.qubular.openhab.binding.vicare.internal.channeltype.VicareChannelTypeProvider;
 import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.storage.Storage;
+import org.openhab.core.storage.StorageService;
+import org.openhab.core.thing.type.AutoUpdatePolicy;
 import org.openhab.core.thing.type.ChannelType;
+import org.openhab.core.thing.type.ChannelTypeBuilder;
 import org.openhab.core.thing.type.ChannelTypeProvider;
 import org.openhab.core.thing.type.ChannelTypeUID;
+import org.openhab.core.thing.type.StateChannelTypeBuilder;
+import org.openhab.core.types.StateDescription;
+import org.openhab.core.types.StateDescriptionFragmentBuilder;
+import org.openhab.core.types.StateOption;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.Collection;
-import java.util.Locale;
-import java.util.Map;
+import java.math.BigDecimal;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
+/**
+ * Provides the channel types that are generated from device features. They are kept in openHAB's storage so that
+ * after a restart they are available straight away instead of being generated again from freshly fetched features.
+ */
 @Component(service = {ChannelTypeProvider.class, VicareChannelTypeProvider.class})
 public class SimpleVicareChannelTypeProvider implements VicareChannelTypeProvider {
+    private static final Logger logger = LoggerFactory.getLogger(SimpleVicareChannelTypeProvider.class);
+    static final String STORAGE_NAME = "com.qubular.openhab.binding.vicare.ChannelTypes";
+
     private final Map<ChannelTypeUID, ChannelType> channelTypes = new ConcurrentHashMap<>();
+    private final Map<ChannelTypeUID, PersistedChannelType> persistedChannelTypes = new ConcurrentHashMap<>();
+    private final @Nullable Storage<PersistedChannelType> storage;
+
+    /**
+     * Creates a provider that keeps channel types in memory only.
+     */
+    public SimpleVicareChannelTypeProvider() {
+        this.storage = null;
+    }
+
+    @Activate
+    public SimpleVicareChannelTypeProvider(@Reference StorageService storageService) {
+        this.storage = storageService.getStorage(STORAGE_NAME, getClass().getClassLoader());
+        for (String key : storage.getKeys()) {
+            PersistedChannelType persisted = storage.get(key);
+            try {
+                if (persisted != null) {
+                    ChannelType channelType = persisted.toChannelType();
+                    channelTypes.put(channelType.getUID(), channelType);
+                    persistedChannelTypes.put(channelType.getUID(), persisted);
+                }
+            } catch (RuntimeException e) {
+                logger.debug("Discarding unreadable channel type {}", key, e);
+                storage.remove(key);
+            }
+        }
+        logger.debug("Restored {} channel types", channelTypes.size());
+    }
 
     @Override
     public Collection<ChannelType> getChannelTypes(@Nullable Locale locale) {
@@ -28,5 +74,184 @@ public class SimpleVicareChannelTypeProvider implements VicareChannelTypeProvide
 
     public void addChannelType(ChannelType channelType) {
         channelTypes.put(channelType.getUID(), channelType);
+        if (storage != null) {
+            PersistedChannelType persisted = PersistedChannelType.of(channelType);
+            // channel types are rebuilt whenever things are initialized, only write those that have changed
+            if (!persisted.equals(persistedChannelTypes.put(channelType.getUID(), persisted))) {
+                storage.put(channelType.getUID().getAsString(), persisted);
+            }
+        }
+    }
+
+    @Override
+    public int evictUnreferenced(Set<ChannelTypeUID> referencedChannelTypes) {
+        int evicted = 0;
+        for (ChannelTypeUID channelTypeUID : channelTypes.keySet()) {
+            if (!referencedChannelTypes.contains(channelTypeUID)) {
+                channelTypes.remove(channelTypeUID);
+                persistedChannelTypes.remove(channelTypeUID);
+                if (storage != null) {
+                    storage.remove(channelTypeUID.getAsString());
+                }
+                ++evicted;
+            }
+        }
+        if (evicted > 0) {
+            logger.debug("Evicted {} channel types that are no longer used", evicted);
+        }
+        return evicted;
+    }
+
+    /**
+     * The parts of a generated channel type that are persisted, which are those that {@link VicareChannelBuilder} sets.
+     */
+    static class PersistedChannelType {
+        String uid;
+        String label;
+        @Nullable String itemType;
+        @Nullable String description;
+        @Nullable String category;
+        @Nullable String autoUpdatePolicy;
+        @Nullable PersistedStateDescription state;
+
+        static PersistedChannelType of(ChannelType channelType) {
+            PersistedChannelType persisted = new PersistedChannelType();
+            persisted.uid = channelType.getUID().getAsString();
+            persisted.label = channelType.getLabel();
+            persisted.itemType = channelType.getItemType();
+            persisted.description = channelType.getDescription();
+            persisted.category = channelType.getCategory();
+            AutoUpdatePolicy autoUpdatePolicy = channelType.getAutoUpdatePolicy();
+            persisted.autoUpdatePolicy = autoUpdatePolicy != null ? autoUpdatePolicy.name() : null;
+            StateDescription state = channelType.getState();
+            persisted.state = state != null ? PersistedStateDescription.of(state) : null;
+            return persisted;
+        }
+
+        ChannelType toChannelType() {
+            StateChannelTypeBuilder builder = ChannelTypeBuilder.state(new ChannelTypeUID(uid), label, itemType);
+            if (description != null) {
+                builder.withDescription(description);
+            }
+            if (category != null) {
+                builder.withCategory(category);
+            }
+            if (autoUpdatePolicy != null) {
+                builder.withAutoUpdatePolicy(AutoUpdatePolicy.valueOf(autoUpdatePolicy));
+            }
+            if (state != null) {
+                builder.withStateDescriptionFragment(state.toFragmentBuilder().build());
+            }
+            return builder.build();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            PersistedChannelType that = (PersistedChannelType) o;
+            return Objects.equals(uid, that.uid) &&
+                    Objects.equals(label, that.label) &&
+                    Objects.equals(itemType, that.itemType) &&
+                    Objects.equals(description, that.description) &&
+                    Objects.equals(category, that.category) &&
+                    Objects.equals(autoUpdatePolicy, that.autoUpdatePolicy) &&
+                    Objects.equals(state, that.state);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(uid, label, itemType, description, category, autoUpdatePolicy, state);
+        }
+    }
+
+    static class PersistedStateDescription {
+        @Nullable BigDecimal minimum;
+        @Nullable BigDecimal maximum;
+        @Nullable BigDecimal step;
+        @Nullable String pattern;
+        boolean readOnly;
+        List<PersistedOption> options = new ArrayList<>();
+
+        static PersistedStateDescription of(StateDescription state) {
+            PersistedStateDescription persisted = new PersistedStateDescription();
+            persisted.minimum = state.getMinimum();
+            persisted.maximum = state.getMaximum();
+            persisted.step = state.getStep();
+            persisted.pattern = state.getPattern();
+            persisted.readOnly = state.isReadOnly();
+            if (state.getOptions() != null) {
+                persisted.options = state.getOptions().stream()
+                        .map(PersistedOption::of)
+                        .collect(Collectors.toList());
+            }
+            return persisted;
+        }
+
+        StateDescriptionFragmentBuilder toFragmentBuilder() {
+            StateDescriptionFragmentBuilder builder = StateDescriptionFragmentBuilder.create()
+                    .withReadOnly(readOnly);
+            if (minimum != null) {
+                builder.withMinimum(minimum);
+            }
+            if (maximum != null) {
+                builder.withMaximum(maximum);
+            }
+            if (step != null) {
+                builder.withStep(step);
+            }
+            if (pattern != null) {
+                builder.withPattern(pattern);
+            }
+            if (!options.isEmpty()) {
+                builder.withOptions(options.stream()
+                        .map(option -> new StateOption(option.value, option.label))
+                        .collect(Collectors.toList()));
+            }
+            return builder;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            PersistedStateDescription that = (PersistedStateDescription) o;
+            return readOnly == that.readOnly &&
+                    Objects.equals(minimum, that.minimum) &&
+                    Objects.equals(maximum, that.maximum) &&
+                    Objects.equals(step, that.step) &&
+                    Objects.equals(pattern, that.pattern) &&
+                    Objects.equals(options, that.options);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(minimum, maximum, step, pattern, readOnly, options);
+        }
+    }
+
+    static class PersistedOption {
+        String value;
+        @Nullable String label;
+
+        static PersistedOption of(StateOption option) {
+            PersistedOption persisted = new PersistedOption();
+            persisted.value = option.getValue();
+            persisted.label = option.getLabel();
+            return persisted;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            PersistedOption that = (PersistedOption) o;
+            return Objects.equals(value, that.value) && Objects.equals(label, that.label);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(value, label);
+        }
     }
 }
@@ -22,6 +22,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletionException;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -49,6 +50,7 @@ public class VicareChannelBuilder implements Supplier<VicareChannelBuilder.Memo>
     }
 
     private static final Logger logger = LoggerFactory.getLogger(VicareChannelBuilder.class);
+    private static final int FEATURE_VALIDITY_SECS = 60;
     private final VicareServiceProvider vicareServiceProvider;
     private final VicareUtil.IGD igd;
     private final Thing thing;
@@ -75,21 +77,40 @@ public class VicareChannelBuilder implements Supplier<VicareChannelBuilder.Memo>
     @Override
     public Memo get() {
         Result result = new Result(thing.getProperties());
+        List<Feature> features;
         try {
-            List<Feature> features = vicareServiceProvider.getVicareService().getFeatures(igd.installationId(),
-                                                                                          igd.gatewaySerial(),
-                                                                                          igd.deviceId());
-            for (Feature feature : features) {
-                buildChannelsForFeature(feature, result);
+            // shares the feature service's cache, which after a restart holds the features persisted by the last run
+            features = vicareServiceProvider.getFeatureService().getFeatures(thing, FEATURE_VALIDITY_SECS).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof AuthenticationException ae) {
+                return (() -> {
+                    throw ae;
+                });
+            } else if (e.getCause() instanceof IOException ioe) {
+                return (() -> {
+                    throw ioe;
+                });
             }
-        } catch (AuthenticationException | IOException e) {
-            return (() -> {
-                throw e;
-            });
+            throw e;
+        }
+        for (Feature feature : features) {
+            buildChannelsForFeature(feature, result);
         }
         return () -> result;
     }
 
+    /**
+     * Builds the channels for some of the device's features, such as those that have appeared since the thing
+     * was initialized, without fetching the features again.
+     */
+    public List<Channel> buildChannelsForFeatures(Collection<Feature> features) {
+        Result result = new Result(emptyMap());
+        for (Feature feature : features) {
+            buildChannelsForFeature(feature, result);
+        }
+        return result.channels;
+    }
+
     public void buildChannelTypeForFeature(Feature feature) {
         buildChannelsForFeature(feature, new Result(new HashMap<>()));
     }
@@ -100,19 +121,12 @@ public class VicareChannelBuilder implements Supplier<VicareChannelBuilder.Memo>
     }
 
     private ChannelType findTemplate(Feature f, String propertyNameSuffix) {
-        int truncation = -1;
-        do {
-            String templateId = FeatureUtil.templateId(f, propertyNameSuffix, truncation);
-            if (templateId != null) {
-                // Get the named template from the thing-types.xml
-                logger.debug("Searching for " + templateId);
-                ChannelType template = vicareServiceProvider.getChannelTypeRegistry().getChannelType(
-                        new ChannelTypeUID(BINDING_ID, templateId));
-                if (template != null) {
-                    return template;
-                }
-            }
-        } while (truncation++ < 1);
+        ChannelTypeTemplates templates = vicareServiceProvider.getChannelTypeTemplates();
+        // Get the named template from the thing-types.xml
+        Optional<ChannelType> declaredTemplate = templates.findTemplate(f, propertyNameSuffix);
+        if (declaredTemplate.isPresent()) {
+            return declaredTemplate.get();
+        }
 
         // try to find a default fallback template
         Value value = f.getProperties().get(propertyNameSuffix);
@@ -126,7 +140,7 @@ public class VicareChannelBuilder implements Supplier<VicareChannelBuilder.Memo>
 
                 @Override
                 public void visit(BooleanValue booleanValue) {
-                    template = vicareServiceProvider.getChannelTypeRegistry().getChannelType(new ChannelTypeUID(BINDING_ID, "template_boolean_value"));
+                    template = templates.getTemplate("template_boolean_value");
                 }
 
                 @Override
@@ -134,9 +148,9 @@ public class VicareChannelBuilder implements Supplier<VicareChannelBuilder.Memo>
                     Unit unit = dimensionalValue.getUnit();
                     String templateId = VicareUtil.escapeUIDSegment(
                             "template_dimensional_value_" + (unit != null ? unit.getName() : "unitless"));
-                    ChannelTypeUID templateUID = new ChannelTypeUID(BINDING_ID, templateId);
-                    template = vicareServiceProvider.getChannelTypeRegistry().getChannelType(templateUID);
+                    template = templates.getTemplate(templateId);
                     if (template == null) {
+                        ChannelTypeUID templateUID = new ChannelTypeUID(BINDING_ID, templateId);
                         String itemType = "Number";
                         if (unit != null) {
                             itemType = UnitMapping.apiToItemType(unit);
@@ -157,12 +171,12 @@ public class VicareChannelBuilder implements Supplier<VicareChannelBuilder.Memo>
 
                 @Override
                 public void visit(StatusValue statusValue) {
-                    template = vicareServiceProvider.getChannelTypeRegistry().getChannelType(new ChannelTypeUID(BINDING_ID, "template_status_value"));
+                    template = templates.getTemplate("template_status_value");
                 }
 
                 @Override
                 public void visit(StringValue stringValue) {
-                    template = vicareServiceProvider.getChannelTypeRegistry().getChannelType(new ChannelTypeUID(BINDING_ID, "template_string_value"));
+                    template = templates.getTemplate("template_string_value");
                 }
             };
             value.accept(visitor);
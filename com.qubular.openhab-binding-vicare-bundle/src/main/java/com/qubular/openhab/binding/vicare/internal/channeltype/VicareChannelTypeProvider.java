@@ -2,7 +2,16 @@ package com.qubular.openhab.binding.vicare.internal.channeltype;
 
 import org.openhab.core.thing.type.ChannelType;
 import org.openhab.core.thing.type.ChannelTypeProvider;
+import org.openhab.core.thing.type.ChannelTypeUID;
+
+import java.util.Set;
 
 public interface VicareChannelTypeProvider extends ChannelTypeProvider {
     void addChannelType(ChannelType channelType);
+
+    /**
+     * Removes the channel types that no channel uses any more.
+     * @return The number of channel types removed.
+     */
+    int evictUnreferenced(Set<ChannelTypeUID> referencedChannelTypes);
 }
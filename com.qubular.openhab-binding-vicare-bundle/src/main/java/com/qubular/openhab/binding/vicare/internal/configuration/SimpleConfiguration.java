@@ -2,6 +2,7 @@ package com.qubular.openhab.binding.vicare.internal.configuration;
 
 import com.qubular.openhab.binding.vicare.internal.VicareBridgeHandler;
 import com.qubular.vicare.VicareConfiguration;
+import org.openhab.core.OpenHAB;
 import org.osgi.framework.BundleContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
@@ -64,6 +65,14 @@ public class SimpleConfiguration implements VicareConfiguration {
         return (Boolean) ofNullable(configurationParameters.get("responseCapture")).orElse(false);
     }
 
+    @Override
+    public File getFeatureSnapshotFolder() {
+        String userDataFolder = OpenHAB.getUserDataFolder();
+        return userDataFolder != null ?
+                new File(userDataFolder, "vicare" + File.separator + "snapshots") :
+                bundleContext.getDataFile("snapshots");
+    }
+
     @Override
     public File getResponseInjectionFile() {
         return bundleContext.getDataFile("responseInjection.json");
@@ -33,11 +33,20 @@ public class PersistedTokenStore implements TokenStore {
     private static final String PROPERTY_SECURE_ACCESS_TOKEN = "secureAccessToken";
     private static final String PROPERTY_REFRESH_TOKEN = "refreshToken";
     private static final String PROPERTY_SECURE_REFRESH_TOKEN = "secureRefreshToken";
+    private static final Gson GSON = new GsonBuilder()
+            .setFieldNamingPolicy(FieldNamingPolicy.IDENTITY)
+            .registerTypeAdapter(Instant.class, new InstantDeserializer())
+            .registerTypeAdapter(Instant.class, new InstantSerializer())
+            .create();
 
     private final Logger logger = LoggerFactory.getLogger(PersistedTokenStore.class);
     private final ConfigurationAdmin configurationAdmin;
     private final EventAdmin eventAdmin;
     private final CryptUtil cryptUtil;
+    // The tokens are held in memory once loaded, and written through to the configuration when they change,
+    // so that requests do not have to read and decrypt them. null means not yet loaded.
+    private volatile Optional<AccessToken> accessToken;
+    private volatile Optional<String> refreshToken;
 
     @Activate
     public PersistedTokenStore(@Reference ConfigurationAdmin configurationAdmin,
@@ -82,14 +91,15 @@ public class PersistedTokenStore implements TokenStore {
     }
 
     @Override
-    public AccessToken storeAccessToken(String accessToken, Instant expiry) throws GeneralSecurityException {
+    public synchronized AccessToken storeAccessToken(String accessToken, Instant expiry) throws GeneralSecurityException {
         AccessToken token = new AccessToken(accessToken, expiry);
         try {
             Configuration configuration = configurationAdmin.getConfiguration(TOKEN_STORE_PID);
             if (configuration != null) {
                 Dictionary<String, Object> props = ofNullable(configuration.getProperties()).orElseGet(Hashtable::new);
-                String json = gson().toJson(token);
+                String json = GSON.toJson(token);
                 props.put(PROPERTY_SECURE_ACCESS_TOKEN, cryptUtil.encrypt(json));
+                this.accessToken = Optional.of(token);
                 configuration.update(props);
                 eventAdmin.postEvent(new Event(TokenEvent.TOPIC_NEW_ACCESS_TOKEN, emptyMap()));
             }
@@ -99,14 +109,6 @@ public class PersistedTokenStore implements TokenStore {
         return token;
     }
 
-    private Gson gson() {
-        return new GsonBuilder()
-                .setFieldNamingPolicy(FieldNamingPolicy.IDENTITY)
-                .registerTypeAdapter(Instant.class, new InstantDeserializer())
-                .registerTypeAdapter(Instant.class, new InstantSerializer())
-                .create();
-    }
-
     private static class InstantDeserializer implements JsonDeserializer<Instant> {
         @Override
         public Instant deserialize(JsonElement jsonElement, Type type, JsonDeserializationContext jsonDeserializationContext) throws JsonParseException {
@@ -121,14 +123,16 @@ public class PersistedTokenStore implements TokenStore {
         }
     }
     @Override
-    public void storeRefreshToken(String refreshToken) throws GeneralSecurityException {
+    public synchronized void storeRefreshToken(String refreshToken) throws GeneralSecurityException {
         try {
             Configuration configuration = configurationAdmin.getConfiguration(TOKEN_STORE_PID);
             if (configuration != null) {
                 Dictionary<String, Object> props = ofNullable(configuration.getProperties()).orElseGet(Hashtable::new);
                 String encrypted = cryptUtil.encrypt(refreshToken);
                 props.put(PROPERTY_SECURE_REFRESH_TOKEN, encrypted);
+                this.refreshToken = Optional.of(refreshToken);
                 configuration.update(props);
+                eventAdmin.postEvent(new Event(TokenEvent.TOPIC_AUTHORISED, emptyMap()));
             }
         } catch (IOException e) {
             logger.warn("Unable to store refresh token", e);
@@ -137,39 +141,69 @@ public class PersistedTokenStore implements TokenStore {
 
     @Override
     public Optional<AccessToken> getAccessToken() throws GeneralSecurityException {
-        try {
-            Configuration configuration = configurationAdmin.getConfiguration(TOKEN_STORE_PID);
-            if (configuration != null) {
-                Dictionary<String, Object> props = ofNullable(configuration.getProperties()).orElseGet(Hashtable::new);
-                String encryptedToken = (String) props.get(PROPERTY_SECURE_ACCESS_TOKEN);
-                if (encryptedToken != null) {
-                    String decryptedToken = cryptUtil.decrypt(encryptedToken);
-                    return Optional.of(gson().fromJson(decryptedToken, AccessToken.class));
+        Optional<AccessToken> accessToken = this.accessToken;
+        if (accessToken == null) {
+            synchronized (this) {
+                accessToken = this.accessToken;
+                if (accessToken == null) {
+                    try {
+                        accessToken = loadAccessToken();
+                    } catch (IOException e) {
+                        logger.warn("Unable to fetch access token from store.", e);
+                        return Optional.empty();
+                    }
+                    this.accessToken = accessToken;
                 }
-                return empty();
             }
-        } catch (IOException e) {
-            logger.warn("Unable to fetch access token from store.", e);
         }
-        return Optional.empty();
+        return accessToken;
+    }
+
+    private Optional<AccessToken> loadAccessToken() throws IOException, GeneralSecurityException {
+        Configuration configuration = configurationAdmin.getConfiguration(TOKEN_STORE_PID);
+        if (configuration != null) {
+            Dictionary<String, Object> props = ofNullable(configuration.getProperties()).orElseGet(Hashtable::new);
+            String encryptedToken = (String) props.get(PROPERTY_SECURE_ACCESS_TOKEN);
+            if (encryptedToken != null) {
+                String decryptedToken = cryptUtil.decrypt(encryptedToken);
+                return Optional.of(GSON.fromJson(decryptedToken, AccessToken.class));
+            }
+        }
+        return empty();
     }
 
     @Override
     public Optional<String> getRefreshToken() {
-        try {
-            Configuration configuration = configurationAdmin.getConfiguration(TOKEN_STORE_PID);
-            if (configuration != null) {
-                Optional<String> encryptedRefreshToken = ofNullable(configuration.getProperties())
-                        .map(c -> (String) c.get(PROPERTY_SECURE_REFRESH_TOKEN));
-                if (encryptedRefreshToken.isPresent()) {
-                    return Optional.of(cryptUtil.decrypt(encryptedRefreshToken.get()));
+        Optional<String> refreshToken = this.refreshToken;
+        if (refreshToken == null) {
+            synchronized (this) {
+                refreshToken = this.refreshToken;
+                if (refreshToken == null) {
+                    try {
+                        refreshToken = loadRefreshToken();
+                    } catch (IOException e) {
+                        logger.warn("Unable to fetch refresh token from store.");
+                        return Optional.empty();
+                    } catch (GeneralSecurityException e) {
+                        logger.warn("Unable to decrypt refresh token.");
+                        return Optional.empty();
+                    }
+                    this.refreshToken = refreshToken;
                 }
             }
-        } catch (IOException e) {
-            logger.warn("Unable to fetch refresh token from store.");
-        } catch (GeneralSecurityException e) {
-            logger.warn("Unable to decrypt refresh token.");
         }
-        return Optional.empty();
+        return refreshToken;
+    }
+
+    private Optional<String> loadRefreshToken() throws IOException, GeneralSecurityException {
+        Configuration configuration = configurationAdmin.getConfiguration(TOKEN_STORE_PID);
+        if (configuration != null) {
+            Optional<String> encryptedRefreshToken = ofNullable(configuration.getProperties())
+                    .map(c -> (String) c.get(PROPERTY_SECURE_REFRESH_TOKEN));
+            if (encryptedRefreshToken.isPresent()) {
+                return Optional.of(cryptUtil.decrypt(encryptedRefreshToken.get()));
+            }
+        }
+        return empty();
     }
 }
@@ -2,5 +2,8 @@ package com.qubular.openhab.binding.vicare.internal.tokenstore;
 
 public class TokenEvent {
     public static final String TYPE = TokenEvent.class.getName();
+    /** Posted whenever an access token is stored, including routine refreshes */
     public static final String TOPIC_NEW_ACCESS_TOKEN = TokenEvent.class.getName().replaceAll("\\.","/") + "/NEW_ACCESS_TOKEN";
+    /** Posted when the user has authorised access to the API, which grants a new refresh token */
+    public static final String TOPIC_AUTHORISED = TokenEvent.class.getName().replaceAll("\\.","/") + "/AUTHORISED";
 }
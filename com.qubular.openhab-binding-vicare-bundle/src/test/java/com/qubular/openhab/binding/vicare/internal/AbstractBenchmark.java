@@ -0,0 +1,94 @@
+package com.qubular.openhab.binding.vicare.internal;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Base of the benchmarks of the binding, which measure the CPU time and allocation of the calling thread.
+ * Benchmarks only run with mvn test -Dbenchmark=true
+ */
+@AbstractBenchmark.Benchmark
+public abstract class AbstractBenchmark {
+    /**
+     * Enables a benchmark only when the benchmark system property is set.
+     */
+    @Target(ElementType.TYPE)
+    @Retention(RetentionPolicy.RUNTIME)
+    @Inherited
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @interface Benchmark {
+    }
+
+    /** The folder of device feature responses captured from the API */
+    protected static final String FIXTURES = "../com.qubular.vicare-osgi/src/test/resources/com/qubular/vicare/test/response";
+
+    private final com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    protected long cpuTime() {
+        return threadMXBean.getCurrentThreadCpuTime();
+    }
+
+    protected long allocatedBytes() {
+        return threadMXBean.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * @return The fixture responses of every device, excluding the error responses.
+     */
+    protected static List<File> fixtures() throws IOException {
+        List<File> fixtures = new ArrayList<>();
+        File[] files = Objects.requireNonNull(new File(FIXTURES).listFiles((dir, name) -> name.endsWith(".json")));
+        Arrays.sort(files, Comparator.comparing(File::getName));
+        for (File file : files) {
+            try (Reader reader = new FileReader(file, StandardCharsets.UTF_8)) {
+                if (JsonParser.parseReader(reader).getAsJsonObject().has("data")) {
+                    fixtures.add(file);
+                }
+            }
+        }
+        return fixtures;
+    }
+
+    /**
+     * @param fixture The name of a device fixture response.
+     */
+    protected static File fixture(String fixture) {
+        return new File(FIXTURES, fixture);
+    }
+
+    /**
+     * @return The enabled feature objects of a device fixture response.
+     */
+    protected static List<JsonObject> readEnabledFeatures(File fixture) throws IOException {
+        List<JsonObject> features = new ArrayList<>();
+        try (Reader reader = new FileReader(fixture, StandardCharsets.UTF_8)) {
+            for (JsonElement element : JsonParser.parseReader(reader).getAsJsonObject().getAsJsonArray("data")) {
+                JsonObject featureObject = element.getAsJsonObject();
+                if (featureObject.get("isEnabled").getAsBoolean()) {
+                    features.add(featureObject);
+                }
+            }
+        }
+        return features;
+    }
+}
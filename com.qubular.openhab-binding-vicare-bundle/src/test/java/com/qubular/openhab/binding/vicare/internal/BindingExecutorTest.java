@@ -0,0 +1,129 @@
+package com.qubular.openhab.binding.vicare.internal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class BindingExecutorTest {
+    private BindingExecutor executor;
+
+    @AfterEach
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void boundsConcurrency() throws Exception {
+        executor = new BindingExecutor(2, false);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[6];
+        for (int i = 0; i < tasks.length; ++i) {
+            tasks[i] = CompletableFuture.runAsync(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+            }, executor);
+        }
+        Thread.sleep(200);
+        assertEquals(4, executor.getQueuedCount());
+        release.countDown();
+        CompletableFuture.allOf(tasks).get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, maxRunning.get());
+        assertEquals(0, executor.getQueuedCount());
+        assertTrue(executor.getPeakQueuedCount() >= 4);
+        assertEquals(6, executor.getCompletedCount());
+    }
+
+    @Test
+    public void runsOnCallerWhenQueueFull() throws Exception {
+        executor = new BindingExecutor(1, false, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.execute(() -> {});
+        Thread caller = Thread.currentThread();
+        AtomicInteger ranOnCaller = new AtomicInteger();
+        executor.execute(() -> {
+            if (Thread.currentThread() == caller) {
+                ranOnCaller.incrementAndGet();
+            }
+        });
+        release.countDown();
+
+        assertEquals(1, ranOnCaller.get());
+        assertEquals(1, executor.getRanOnCallerCount());
+    }
+
+    @Test
+    public void runsOnCallerWhenVirtualThreadsAreAllWaiting() throws Exception {
+        assumeTrue(Runtime.version().feature() >= 21);
+        executor = new BindingExecutor(1, true, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.execute(() -> {});
+        Thread caller = Thread.currentThread();
+        AtomicInteger ranOnCaller = new AtomicInteger();
+        executor.execute(() -> {
+            if (Thread.currentThread() == caller) {
+                ranOnCaller.incrementAndGet();
+            }
+        });
+        release.countDown();
+
+        assertEquals(1, ranOnCaller.get());
+        assertEquals(1, executor.getRanOnCallerCount());
+    }
+
+    @Test
+    public void shutdownRejectsNewWork() {
+        executor = new BindingExecutor(1, false);
+        executor.shutdown();
+        assertTrue(executor.isShutdown());
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {}));
+    }
+
+    @Test
+    public void reconfigureKeepsRunningWork() throws Exception {
+        executor = new BindingExecutor(1, false);
+        CompletableFuture<String> before = CompletableFuture.supplyAsync(() -> "before", executor);
+        executor.configure(2, false);
+        CompletableFuture<String> after = CompletableFuture.supplyAsync(() -> "after", executor);
+        assertEquals("before", before.get(5, TimeUnit.SECONDS));
+        assertEquals("after", after.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void virtualThreadsOnlyOnSupportingRuntimes() throws Exception {
+        executor = new BindingExecutor(2, true);
+        assertEquals(Runtime.version().feature() >= 21, executor.isVirtual());
+        assertEquals("done", CompletableFuture.supplyAsync(() -> "done", executor).get(5, TimeUnit.SECONDS));
+    }
+}
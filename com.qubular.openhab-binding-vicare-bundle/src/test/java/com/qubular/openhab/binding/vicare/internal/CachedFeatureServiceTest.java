@@ -0,0 +1,432 @@
+package com.qubular.openhab.binding.vicare.internal;
+
+import com.qubular.vicare.VicareService;
+import com.qubular.vicare.model.Feature;
+import com.qubular.vicare.model.features.StatusSensorFeature;
+import com.qubular.vicare.model.features.TextFeature;
+import com.qubular.vicare.model.values.StatusValue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.openhab.core.config.core.Configuration;
+import org.openhab.core.thing.Thing;
+import org.openhab.core.thing.ThingRegistry;
+import org.openhab.core.thing.ThingRegistryChangeListener;
+import org.openhab.core.thing.ThingUID;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static com.qubular.openhab.binding.vicare.internal.VicareConstants.*;
+import static com.qubular.openhab.binding.vicare.internal.VicareUtil.encodeThingId;
+import static com.qubular.openhab.binding.vicare.internal.VicareUtil.encodeThingUniqueId;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.failedFuture;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class CachedFeatureServiceTest {
+    private static final long INSTALLATION_ID = 1234L;
+    private static final String GATEWAY_SERIAL = "SERIAL_1234";
+    private static final String DEVICE_1_ID = "0";
+    private static final String DEVICE_2_ID = "1";
+    private static final ThingUID THING_UID_BRIDGE = new ThingUID(THING_TYPE_BRIDGE, UUID.randomUUID().toString());
+    private static final List<Feature> FEATURES_1 = List.of(new TextFeature("device.serial", "value", "1111111111111111"));
+    private static final List<Feature> FEATURES_2 = List.of(new TextFeature("device.serial", "value", "2222222222222222"));
+    private static final int EXPIRED = 1;
+    private static final int NOT_EXPIRED = 90;
+
+    private VicareService vicareService;
+    private ThingRegistry thingRegistry;
+    private CachedFeatureService featureService;
+    private Thing thing1;
+    private Thing thing2;
+
+    @BeforeEach
+    public void setUp() {
+        vicareService = mock(VicareService.class);
+        thingRegistry = mock(ThingRegistry.class);
+        featureService = new CachedFeatureService(vicareService, thingRegistry);
+        thing1 = deviceThing(DEVICE_1_ID);
+        thing2 = deviceThing(DEVICE_2_ID);
+    }
+
+    private static Thing deviceThing(String deviceId) {
+        Thing thing = mock(Thing.class);
+        doReturn(new ThingUID(THING_TYPE_HEATING, THING_UID_BRIDGE, encodeThingId(INSTALLATION_ID, GATEWAY_SERIAL, deviceId)))
+                .when(thing).getUID();
+        doReturn(new Configuration()).when(thing).getConfiguration();
+        doReturn(Map.of(PROPERTY_DEVICE_UNIQUE_ID, encodeThingUniqueId(INSTALLATION_ID, GATEWAY_SERIAL, deviceId)))
+                .when(thing).getProperties();
+        return thing;
+    }
+
+    @Test
+    public void concurrentCallersShareOneRequest() throws Exception {
+        CompletableFuture<List<Feature>> response = new CompletableFuture<>();
+        when(vicareService.getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID)).thenReturn(response);
+
+        CompletableFuture<List<Feature>> first = featureService.getFeatures(thing1, EXPIRED);
+        CompletableFuture<List<Feature>> second = featureService.getFeatures(thing1, EXPIRED);
+        response.complete(FEATURES_1);
+
+        assertSame(first, second);
+        assertEquals(FEATURES_1, first.get(5, TimeUnit.SECONDS));
+        verify(vicareService, times(1)).getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID);
+    }
+
+    @Test
+    public void loadingOneThingDoesNotBlockAnother() throws Exception {
+        CompletableFuture<List<Feature>> response = new CompletableFuture<>();
+        when(vicareService.getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID)).thenReturn(response);
+        when(vicareService.getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_2_ID)).thenReturn(completedFuture(FEATURES_2));
+
+        CompletableFuture<List<Feature>> first = featureService.getFeatures(thing1, NOT_EXPIRED);
+        assertEquals(FEATURES_2, featureService.getFeatures(thing2, NOT_EXPIRED).get(5, TimeUnit.SECONDS));
+        assertFalse(first.isDone());
+        response.complete(FEATURES_1);
+        assertEquals(FEATURES_1, first.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void servesStaleFeaturesWhileRevalidating() throws Exception {
+        CompletableFuture<List<Feature>> refresh = new CompletableFuture<>();
+        when(vicareService.getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID))
+                .thenReturn(completedFuture(FEATURES_1))
+                .thenReturn(refresh);
+
+        assertEquals(FEATURES_1, featureService.getFeatures(thing1, NOT_EXPIRED).get(5, TimeUnit.SECONDS));
+
+        CompletableFuture<List<Feature>> stale = featureService.getFeatures(thing1, EXPIRED);
+        assertTrue(stale.isDone());
+        assertEquals(FEATURES_1, stale.get());
+        assertEquals(FEATURES_1, featureService.getFeatures(thing1, EXPIRED).get());
+        verify(vicareService, timeout(1000).times(2)).getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID);
+
+        refresh.complete(FEATURES_2);
+        verify(vicareService, after(200).times(2)).getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID);
+        assertEquals(FEATURES_2, featureService.getFeatures(thing1, NOT_EXPIRED).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void freshSnapshotWaitsForRevalidation() throws Exception {
+        CompletableFuture<List<Feature>> refresh = new CompletableFuture<>();
+        when(vicareService.getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID))
+                .thenReturn(completedFuture(FEATURES_1))
+                .thenReturn(refresh);
+
+        assertEquals(FEATURES_1, featureService.getFeatures(thing1, NOT_EXPIRED).get(5, TimeUnit.SECONDS));
+
+        CompletableFuture<FeatureSnapshot> fresh = featureService.getFreshSnapshot(thing1, EXPIRED);
+        assertFalse(fresh.isDone());
+        // other callers are still served the stale features, from the same revalidation
+        assertEquals(FEATURES_1, featureService.getFeatures(thing1, EXPIRED).get());
+        assertSame(fresh, featureService.getFreshSnapshot(thing1, EXPIRED));
+        verify(vicareService, times(2)).getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID);
+
+        refresh.complete(FEATURES_2);
+        assertEquals(FEATURES_2, fresh.get(5, TimeUnit.SECONDS).getFeatures());
+    }
+
+    @Test
+    public void failedRefreshKeepsServingStaleFeatures() throws Exception {
+        when(vicareService.getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID))
+                .thenReturn(completedFuture(FEATURES_1))
+                .thenReturn(failedFuture(new IOException("Timed out")))
+                .thenReturn(completedFuture(FEATURES_2));
+
+        assertEquals(FEATURES_1, featureService.getFeatures(thing1, NOT_EXPIRED).get(5, TimeUnit.SECONDS));
+        assertEquals(FEATURES_1, featureService.getFeatures(thing1, EXPIRED).get());
+        verify(vicareService, after(200).times(2)).getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID);
+
+        // the failed refresh leaves the stale features in place, and the next caller tries again
+        CompletableFuture<List<Feature>> stale = featureService.getFeatures(thing1, EXPIRED);
+        assertTrue(stale.isDone());
+        assertEquals(FEATURES_1, stale.get());
+        verify(vicareService, timeout(1000).times(3)).getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID);
+        assertEquals(FEATURES_2, featureService.getFeatures(thing1, NOT_EXPIRED).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void requestListenersAreToldOfEachRequest() throws Exception {
+        when(vicareService.getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID))
+                .thenReturn(completedFuture(FEATURES_1));
+        when(vicareService.getFeatureAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID, "device.serial"))
+                .thenReturn(completedFuture(Optional.of(FEATURES_1.get(0))));
+        List<Thing> requests = new ArrayList<>();
+        Consumer<Thing> listener = requests::add;
+        featureService.addRequestListener(listener);
+
+        featureService.getFeatures(thing1, NOT_EXPIRED).get(5, TimeUnit.SECONDS);
+        featureService.getFeatures(thing1, NOT_EXPIRED).get(5, TimeUnit.SECONDS);
+        featureService.refreshFeature(thing1, "device.serial").get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(thing1, thing1), requests);
+
+        featureService.removeRequestListener(listener);
+        featureService.refreshFeature(thing1, "device.serial").get(5, TimeUnit.SECONDS);
+        assertEquals(2, requests.size());
+    }
+
+    @Test
+    public void snapshotIndexesFeaturesByName() throws Exception {
+        Feature serial = new TextFeature("device.serial", "value", "1111111111111111");
+        Feature name = new TextFeature("heating.circuits.0.name", "name", "Circuit 0");
+        when(vicareService.getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID)).thenReturn(completedFuture(List.of(serial, name)));
+
+        FeatureSnapshot snapshot = featureService.getSnapshot(thing1, NOT_EXPIRED).get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(serial, name), snapshot.getFeatures());
+        assertSame(name, snapshot.getFeature("heating.circuits.0.name").orElseThrow());
+        assertTrue(snapshot.getFeature("heating.circuits.1.name").isEmpty());
+        assertSame(serial, featureService.getFeature(thing1, "device.serial", NOT_EXPIRED).get(5, TimeUnit.SECONDS).orElseThrow());
+        verify(vicareService, times(1)).getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID);
+    }
+
+    @Test
+    public void refreshedSnapshotHasDiffAgainstPreviousSnapshot() throws Exception {
+        featureService.setStaleWhileRevalidate(false);
+        Feature serial = new TextFeature("device.serial", "value", "1111111111111111");
+        Feature name = new TextFeature("heating.circuits.0.name", "name", "Circuit 0");
+        Feature renamed = new TextFeature("heating.circuits.0.name", "name", "Downstairs");
+        Feature pump = new StatusSensorFeature("heating.circuits.0.circulation.pump", new StatusValue("on"), null);
+        Feature otherName = new TextFeature("heating.circuits.1.name", "name", "Circuit 1");
+        when(vicareService.getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID))
+                .thenReturn(completedFuture(List.of(serial, name, pump)))
+                .thenReturn(completedFuture(List.of(new TextFeature("device.serial", "value", "1111111111111111"), renamed,
+                        otherName)));
+
+        FeatureSnapshot first = featureService.getSnapshot(thing1, NOT_EXPIRED).get(5, TimeUnit.SECONDS);
+        assertTrue(first.getDiff().isEmpty());
+        FeatureSnapshot second = featureService.getSnapshot(thing1, EXPIRED).get(5, TimeUnit.SECONDS);
+
+        FeatureDiff diff = second.getDiff().orElseThrow();
+        assertEquals(first.getVersion(), diff.getPreviousVersion());
+        assertTrue(second.getVersion() > first.getVersion());
+        assertEquals(List.of(otherName), List.copyOf(diff.getAdded()));
+        assertEquals(List.of(pump), List.copyOf(diff.getRemoved()));
+        assertEquals(List.of(renamed), List.copyOf(diff.getChanged()));
+        assertFalse(diff.isChanged("device.serial"));
+        assertTrue(diff.isChanged("heating.circuits.0.name"));
+        assertTrue(diff.isChanged("heating.circuits.1.name"));
+        assertTrue(diff.hasAddedOrRemoved());
+    }
+
+    @Test
+    public void refreshedFeatureIsFetchedOnItsOwnAndMergedIntoSnapshot() throws Exception {
+        Feature serial = new TextFeature("device.serial", "value", "1111111111111111");
+        Feature name = new TextFeature("heating.circuits.0.name", "name", "Circuit 0");
+        Feature renamed = new TextFeature("heating.circuits.0.name", "name", "Downstairs");
+        when(vicareService.getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID)).thenReturn(completedFuture(List.of(serial, name)));
+        when(vicareService.getFeatureAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID, "heating.circuits.0.name"))
+                .thenReturn(completedFuture(Optional.of(renamed)));
+
+        FeatureSnapshot first = featureService.getSnapshot(thing1, NOT_EXPIRED).get(5, TimeUnit.SECONDS);
+        assertEquals(Optional.of(renamed),
+                featureService.refreshFeature(thing1, "heating.circuits.0.name").get(5, TimeUnit.SECONDS));
+
+        FeatureSnapshot merged = featureService.getSnapshot(thing1, NOT_EXPIRED).get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(serial, renamed), merged.getFeatures());
+        FeatureDiff diff = merged.getDiff().orElseThrow();
+        assertEquals(first.getVersion(), diff.getPreviousVersion());
+        assertEquals(List.of(renamed), List.copyOf(diff.getChanged()));
+        assertSame(renamed, featureService.getFeature(thing1, "heating.circuits.0.name", NOT_EXPIRED)
+                .get(5, TimeUnit.SECONDS).orElseThrow());
+        verify(vicareService, times(1)).getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID);
+        verify(vicareService, times(1)).getFeatureAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID, "heating.circuits.0.name");
+    }
+
+    @Test
+    public void staleChannelsShareOneRevalidation() throws Exception {
+        List<Feature> features = List.of(
+                new TextFeature("device.serial", "value", "1111111111111111"),
+                new TextFeature("heating.circuits.0.name", "name", "Circuit 0"),
+                new TextFeature("heating.circuits.1.name", "name", "Circuit 1"));
+        CompletableFuture<List<Feature>> refresh = new CompletableFuture<>();
+        when(vicareService.getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID))
+                .thenReturn(completedFuture(features))
+                .thenReturn(refresh);
+        featureService.getSnapshot(thing1, NOT_EXPIRED).get(5, TimeUnit.SECONDS);
+        clearInvocations(vicareService);
+
+        for (Feature feature : features) {
+            assertEquals(Optional.of(feature),
+                    featureService.getFeature(thing1, feature.getName(), EXPIRED).get(5, TimeUnit.SECONDS));
+        }
+        verify(vicareService, times(1)).getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID);
+        verify(vicareService, never()).getFeatureAsync(anyLong(), anyString(), anyString(), anyString());
+        refresh.complete(features);
+    }
+
+    @Test
+    public void featureFetchedOnItsOwnIsServedWithoutRefreshingDevice() throws Exception {
+        Feature name = new TextFeature("heating.circuits.0.name", "name", "Circuit 0");
+        Feature renamed = new TextFeature("heating.circuits.0.name", "name", "Downstairs");
+        when(vicareService.getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID))
+                .thenReturn(completedFuture(List.of(name)));
+        when(vicareService.getFeatureAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID, "heating.circuits.0.name"))
+                .thenReturn(completedFuture(Optional.of(renamed)));
+        // features are fresh until a second before they expire
+        int expiresInSecs = 3;
+
+        featureService.getSnapshot(thing1, expiresInSecs).get(5, TimeUnit.SECONDS);
+        Thread.sleep(1100);
+        featureService.refreshFeature(thing1, "heating.circuits.0.name").get(5, TimeUnit.SECONDS);
+        Thread.sleep(1100);
+
+        assertEquals(Optional.of(renamed),
+                featureService.getFeature(thing1, "heating.circuits.0.name", expiresInSecs).get(5, TimeUnit.SECONDS));
+        verify(vicareService, times(1)).getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID);
+    }
+
+    @Test
+    public void absentFeatureIsNotMergedIntoSnapshot() throws Exception {
+        when(vicareService.getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID)).thenReturn(completedFuture(FEATURES_1));
+        when(vicareService.getFeatureAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID, "device.serial"))
+                .thenReturn(completedFuture(Optional.empty()));
+
+        FeatureSnapshot first = featureService.getSnapshot(thing1, NOT_EXPIRED).get(5, TimeUnit.SECONDS);
+        assertEquals(Optional.empty(), featureService.refreshFeature(thing1, "device.serial").get(5, TimeUnit.SECONDS));
+        assertSame(first, featureService.getSnapshot(thing1, NOT_EXPIRED).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void warmStartServesPersistedFeaturesWhileRevalidatingOnce() throws Exception {
+        CompletableFuture<List<Feature>> refresh = new CompletableFuture<>();
+        when(vicareService.getPersistedFeatures(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID))
+                .thenReturn(Optional.of(new VicareService.PersistedFeatures(Instant.now().minusSeconds(3600), FEATURES_1)));
+        when(vicareService.getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID)).thenReturn(refresh);
+
+        CompletableFuture<List<Feature>> restored = featureService.getFeatures(thing1, NOT_EXPIRED);
+        assertTrue(restored.isDone());
+        assertEquals(FEATURES_1, restored.get());
+        assertEquals(FEATURES_1.get(0), featureService.getFeature(thing1, "device.serial", NOT_EXPIRED).get().orElseThrow());
+        verify(vicareService, times(1)).getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID);
+        verify(vicareService, never()).getFeatureAsync(anyLong(), anyString(), anyString(), anyString());
+
+        refresh.complete(FEATURES_2);
+        assertEquals(FEATURES_2, featureService.getFeatures(thing1, NOT_EXPIRED).get(5, TimeUnit.SECONDS));
+        verify(vicareService, times(1)).getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID);
+        verify(vicareService, times(1)).getPersistedFeatures(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID);
+    }
+
+    @Test
+    public void clearForgetsWarmStartAndFeatureRequests() throws Exception {
+        when(vicareService.getPersistedFeatures(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID))
+                .thenReturn(Optional.of(new VicareService.PersistedFeatures(Instant.now().minusSeconds(3600), FEATURES_1)));
+        when(vicareService.getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID)).thenReturn(new CompletableFuture<>());
+        CompletableFuture<Optional<Feature>> pending = new CompletableFuture<>();
+        when(vicareService.getFeatureAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID, "device.serial"))
+                .thenReturn(pending)
+                .thenReturn(completedFuture(Optional.of(FEATURES_2.get(0))));
+
+        assertEquals(FEATURES_1, featureService.getFeatures(thing1, NOT_EXPIRED).get());
+        CompletableFuture<Optional<Feature>> abandoned = featureService.refreshFeature(thing1, "device.serial");
+        featureService.clear();
+
+        // the persisted features are restored again, and the feature is fetched anew
+        assertEquals(FEATURES_1, featureService.getFeatures(thing1, NOT_EXPIRED).get(5, TimeUnit.SECONDS));
+        verify(vicareService, times(2)).getPersistedFeatures(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID);
+        assertEquals(FEATURES_2.get(0), featureService.refreshFeature(thing1, "device.serial").get(5, TimeUnit.SECONDS).orElseThrow());
+        assertFalse(abandoned.isDone());
+    }
+
+    @Test
+    public void waitsForRefreshWhenStaleWhileRevalidateDisabled() throws Exception {
+        featureService.setStaleWhileRevalidate(false);
+        when(vicareService.getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID))
+                .thenReturn(completedFuture(FEATURES_1))
+                .thenReturn(completedFuture(FEATURES_2));
+
+        assertEquals(FEATURES_1, featureService.getFeatures(thing1, NOT_EXPIRED).get(5, TimeUnit.SECONDS));
+        assertEquals(FEATURES_2, featureService.getFeatures(thing1, EXPIRED).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void failedResponseIsNotCached() throws Exception {
+        when(vicareService.getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID))
+                .thenReturn(failedFuture(new IOException("Timed out")))
+                .thenReturn(completedFuture(FEATURES_1));
+
+        CompletableFuture<List<Feature>> failed = featureService.getFeatures(thing1, NOT_EXPIRED);
+        assertThrows(Exception.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertEquals(FEATURES_1, featureService.getFeatures(thing1, NOT_EXPIRED).get(5, TimeUnit.SECONDS));
+        verify(vicareService, times(2)).getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID);
+    }
+
+    @Test
+    public void removedThingIsInvalidated() throws Exception {
+        when(vicareService.getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID)).thenReturn(completedFuture(FEATURES_1));
+        when(vicareService.getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_2_ID)).thenReturn(completedFuture(FEATURES_2));
+        ArgumentCaptor<ThingRegistryChangeListener> listener = ArgumentCaptor.forClass(ThingRegistryChangeListener.class);
+        verify(thingRegistry).addRegistryChangeListener(listener.capture());
+
+        featureService.getFeatures(thing1, NOT_EXPIRED).get(5, TimeUnit.SECONDS);
+        featureService.getFeatures(thing2, NOT_EXPIRED).get(5, TimeUnit.SECONDS);
+        listener.getValue().removed(thing1);
+        featureService.getFeatures(thing1, NOT_EXPIRED).get(5, TimeUnit.SECONDS);
+        featureService.getFeatures(thing2, NOT_EXPIRED).get(5, TimeUnit.SECONDS);
+
+        verify(vicareService, times(2)).getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID);
+        verify(vicareService, times(1)).getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_2_ID);
+
+        featureService.deactivate();
+        verify(thingRegistry).removeRegistryChangeListener(listener.getValue());
+    }
+
+    @Test
+    public void leastRecentlyUsedThingIsEvictedBeyondMaxEntries() throws Exception {
+        featureService = new CachedFeatureService(vicareService, thingRegistry, 1,
+                CachedFeatureService.DEFAULT_MAX_BYTES, CachedFeatureService.DEFAULT_MAX_AGE);
+        when(vicareService.getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID)).thenReturn(completedFuture(FEATURES_1));
+        when(vicareService.getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_2_ID)).thenReturn(completedFuture(FEATURES_2));
+
+        featureService.getFeatures(thing1, NOT_EXPIRED).get(5, TimeUnit.SECONDS);
+        featureService.getFeatures(thing2, NOT_EXPIRED).get(5, TimeUnit.SECONDS);
+        featureService.getFeatures(thing2, NOT_EXPIRED).get(5, TimeUnit.SECONDS);
+        assertEquals(FEATURES_1, featureService.getFeatures(thing1, NOT_EXPIRED).get(5, TimeUnit.SECONDS));
+
+        verify(vicareService, times(2)).getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID);
+        verify(vicareService, times(1)).getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_2_ID);
+    }
+
+    @Test
+    public void thingsAreEvictedBeyondMaxBytes() throws Exception {
+        when(vicareService.getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID)).thenReturn(completedFuture(FEATURES_1));
+        featureService.getFeatures(thing1, NOT_EXPIRED).get(5, TimeUnit.SECONDS);
+        long entrySize = featureService.getEstimatedSize();
+        assertTrue(entrySize > 0);
+
+        featureService = new CachedFeatureService(vicareService, thingRegistry, CachedFeatureService.DEFAULT_MAX_ENTRIES,
+                entrySize, CachedFeatureService.DEFAULT_MAX_AGE);
+        when(vicareService.getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_2_ID)).thenReturn(completedFuture(FEATURES_2));
+        featureService.getFeatures(thing1, NOT_EXPIRED).get(5, TimeUnit.SECONDS);
+        featureService.getFeatures(thing2, NOT_EXPIRED).get(5, TimeUnit.SECONDS);
+        featureService.getFeatures(thing1, NOT_EXPIRED).get(5, TimeUnit.SECONDS);
+
+        assertEquals(entrySize, featureService.getEstimatedSize());
+        verify(vicareService, times(3)).getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID);
+    }
+
+    @Test
+    public void unusedThingIsEvictedAfterMaxAge() throws Exception {
+        featureService = new CachedFeatureService(vicareService, thingRegistry, CachedFeatureService.DEFAULT_MAX_ENTRIES,
+                CachedFeatureService.DEFAULT_MAX_BYTES, Duration.ofMillis(100));
+        when(vicareService.getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID)).thenReturn(completedFuture(FEATURES_1));
+        when(vicareService.getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_2_ID)).thenReturn(completedFuture(FEATURES_2));
+
+        featureService.getFeatures(thing1, NOT_EXPIRED).get(5, TimeUnit.SECONDS);
+        Thread.sleep(200);
+        featureService.getFeatures(thing2, NOT_EXPIRED).get(5, TimeUnit.SECONDS);
+        featureService.getFeatures(thing1, NOT_EXPIRED).get(5, TimeUnit.SECONDS);
+
+        verify(vicareService, times(2)).getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID);
+    }
+}
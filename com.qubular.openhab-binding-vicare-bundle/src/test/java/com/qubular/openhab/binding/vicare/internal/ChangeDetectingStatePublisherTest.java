@@ -0,0 +1,88 @@
+package com.qubular.openhab.binding.vicare.internal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.thing.ChannelUID;
+import org.openhab.core.thing.ThingUID;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import static com.qubular.openhab.binding.vicare.internal.VicareConstants.THING_TYPE_HEATING;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ChangeDetectingStatePublisherTest {
+    private static final ThingUID THING_UID_1 = new ThingUID(THING_TYPE_HEATING, "device1");
+    private static final ThingUID THING_UID_2 = new ThingUID(THING_TYPE_HEATING, "device2");
+    private static final ChannelUID SLOPE_CHANNEL = new ChannelUID(THING_UID_1, "heating_circuits_0_heating_curve_slope");
+    private static final ChannelUID PUMP_CHANNEL = new ChannelUID(THING_UID_1, "heating_circuits_0_circulation_pump_status");
+    private static final ChannelUID OTHER_SLOPE_CHANNEL = new ChannelUID(THING_UID_2, "heating_circuits_0_heating_curve_slope");
+    private static final Instant START = Instant.parse("2022-10-18T12:00:00Z");
+
+    private Clock clock;
+    private ChangeDetectingStatePublisher publisher;
+
+    @BeforeEach
+    public void setUp() {
+        clock = mock(Clock.class);
+        when(clock.instant()).thenReturn(START);
+        publisher = new ChangeDetectingStatePublisher(clock);
+        publisher.setKeepAliveInterval(Duration.ofHours(1));
+    }
+
+    @Test
+    public void publishesEverythingByDefault() {
+        assertTrue(publisher.shouldPublish(SLOPE_CHANNEL, new DecimalType(1.4)));
+        assertTrue(publisher.shouldPublish(SLOPE_CHANNEL, new DecimalType(1.4)));
+        assertEquals(2, publisher.getPublishedCount());
+        assertEquals(0, publisher.getSuppressedCount());
+    }
+
+    @Test
+    public void suppressesUnchangedStates() {
+        publisher.setPublishOnChange(true);
+        assertTrue(publisher.shouldPublish(SLOPE_CHANNEL, new DecimalType(1.4)));
+        assertTrue(publisher.shouldPublish(PUMP_CHANNEL, new StringType("on")));
+        assertFalse(publisher.shouldPublish(SLOPE_CHANNEL, new DecimalType(1.4)));
+        assertTrue(publisher.shouldPublish(PUMP_CHANNEL, new StringType("off")));
+        assertTrue(publisher.shouldPublish(OTHER_SLOPE_CHANNEL, new DecimalType(1.4)));
+        assertEquals(4, publisher.getPublishedCount());
+        assertEquals(1, publisher.getSuppressedCount());
+    }
+
+    @Test
+    public void republishesUnchangedStatesAfterKeepAlive() {
+        publisher.setPublishOnChange(true);
+        assertTrue(publisher.shouldPublish(SLOPE_CHANNEL, new DecimalType(1.4)));
+        when(clock.instant()).thenReturn(START.plus(Duration.ofMinutes(59)));
+        assertFalse(publisher.shouldPublish(SLOPE_CHANNEL, new DecimalType(1.4)));
+        when(clock.instant()).thenReturn(START.plus(Duration.ofMinutes(60)));
+        assertTrue(publisher.shouldPublish(SLOPE_CHANNEL, new DecimalType(1.4)));
+        when(clock.instant()).thenReturn(START.plus(Duration.ofMinutes(61)));
+        assertFalse(publisher.shouldPublish(SLOPE_CHANNEL, new DecimalType(1.4)));
+    }
+
+    @Test
+    public void unconditionalPublishIsRecorded() {
+        publisher.setPublishOnChange(true);
+        publisher.published(SLOPE_CHANNEL, new DecimalType(1.4));
+        assertFalse(publisher.shouldPublish(SLOPE_CHANNEL, new DecimalType(1.4)));
+    }
+
+    @Test
+    public void clearingAThingRepublishesOnlyItsChannels() {
+        publisher.setPublishOnChange(true);
+        publisher.published(SLOPE_CHANNEL, new DecimalType(1.4));
+        publisher.published(OTHER_SLOPE_CHANNEL, new DecimalType(1.4));
+
+        publisher.clear(THING_UID_1);
+
+        assertTrue(publisher.shouldPublish(SLOPE_CHANNEL, new DecimalType(1.4)));
+        assertFalse(publisher.shouldPublish(OTHER_SLOPE_CHANNEL, new DecimalType(1.4)));
+    }
+}
@@ -0,0 +1,199 @@
+package com.qubular.openhab.binding.vicare.internal;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.qubular.vicare.model.Feature;
+import com.qubular.vicare.model.Unit;
+import com.qubular.vicare.model.Value;
+import com.qubular.vicare.model.features.*;
+import com.qubular.vicare.model.values.*;
+import org.junit.jupiter.api.Test;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.thing.Channel;
+import org.openhab.core.thing.ChannelUID;
+import org.openhab.core.thing.ThingUID;
+import org.openhab.core.thing.binding.builder.ChannelBuilder;
+import org.openhab.core.types.State;
+import org.openhab.core.types.UnDefType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+
+import static com.qubular.openhab.binding.vicare.internal.VicareConstants.*;
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the CPU and allocation cost of rendering the state of every channel in one poll cycle of a Vitovalor PT2,
+ * using a visitor per channel as the thing handler used to, against the compiled {@link ChannelRenderPlan}s.
+ */
+public class ChannelRenderBenchmark extends AbstractBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(ChannelRenderBenchmark.class);
+    private static final int WARMUP_ITERATIONS = 2000;
+    private static final int ITERATIONS = 10000;
+
+    @Test
+    public void channelRenderingPerPollCycle() throws IOException {
+        List<Feature> features = new ArrayList<>();
+        List<Channel> channels = new ArrayList<>();
+        ThingUID thingUID = new ThingUID(THING_TYPE_HEATING, "benchmark");
+        // Each enabled feature is represented by a status sensor feature with the same property values, and each
+        // of its properties by a channel
+        for (JsonObject featureObject : readEnabledFeatures(fixture("VitovalorPT2.json"))) {
+            String name = featureObject.get("feature").getAsString();
+            Map<String, Value> values = new HashMap<>();
+            for (Map.Entry<String, JsonElement> property : featureObject.getAsJsonObject("properties").entrySet()) {
+                values.put(property.getKey(), value(property.getValue().getAsJsonObject()));
+                channels.add(ChannelBuilder.create(new ChannelUID(thingUID,
+                                VicareUtil.escapeUIDSegment(name + "_" + property.getKey())))
+                        .withProperties(Map.of(PROPERTY_FEATURE_NAME, name,
+                                PROPERTY_PROP_NAME, property.getKey()))
+                        .build());
+            }
+            features.add(new StatusSensorFeature(name, values, emptyList()));
+        }
+        FeatureSnapshot snapshot = new FeatureSnapshot(features);
+        Map<ChannelUID, ChannelRenderPlan> renderPlans = new HashMap<>();
+
+        for (int i = 0; i < WARMUP_ITERATIONS; ++i) {
+            visitorPollCycle(snapshot, channels);
+            compiledPollCycle(snapshot, channels, renderPlans);
+        }
+
+        long start = cpuTime();
+        long allocated = allocatedBytes();
+        int rendered = 0;
+        for (int i = 0; i < ITERATIONS; ++i) {
+            rendered += visitorPollCycle(snapshot, channels);
+        }
+        long visitorNanos = (cpuTime() - start) / ITERATIONS;
+        long visitorBytes = (allocatedBytes() - allocated) / ITERATIONS;
+
+        start = cpuTime();
+        allocated = allocatedBytes();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            rendered -= compiledPollCycle(snapshot, channels, renderPlans);
+        }
+        long compiledNanos = (cpuTime() - start) / ITERATIONS;
+        long compiledBytes = (allocatedBytes() - allocated) / ITERATIONS;
+
+        assertEquals(0, rendered);
+        logger.info("{} features, {} channels: visitor {} ns/poll {} bytes/poll, compiled {} ns/poll {} bytes/poll",
+                features.size(), channels.size(), visitorNanos, visitorBytes, compiledNanos, compiledBytes);
+    }
+
+    private static Value value(JsonObject property) {
+        JsonElement value = property.get("value");
+        switch (property.get("type").getAsString()) {
+            case "number":
+                return new DimensionalValue(new Unit(property.has("unit") ? property.get("unit").getAsString() : ""),
+                        value.getAsDouble());
+            case "boolean":
+                return BooleanValue.valueOf(value.getAsBoolean());
+            case "string":
+                return new StringValue(value.getAsString());
+            default:
+                return new StatusValue(property.get("type").getAsString());
+        }
+    }
+
+    private static int compiledPollCycle(FeatureSnapshot snapshot, List<Channel> channels,
+                                         Map<ChannelUID, ChannelRenderPlan> renderPlans) {
+        int rendered = 0;
+        for (Channel channel : channels) {
+            Feature feature = snapshot.getFeature(channel.getProperties().get(PROPERTY_FEATURE_NAME)).orElseThrow();
+            ChannelRenderPlan renderPlan = renderPlans.get(channel.getUID());
+            if (renderPlan == null || !renderPlan.isFor(channel, feature)) {
+                renderPlan = ChannelRenderPlan.compile(channel, feature);
+                renderPlans.put(channel.getUID(), renderPlan);
+            }
+            if (renderPlan.render(feature) != null) {
+                ++rendered;
+            }
+        }
+        return rendered;
+    }
+
+    private static int visitorPollCycle(FeatureSnapshot snapshot, List<Channel> channels) {
+        int[] rendered = new int[1];
+        for (Channel channel : channels) {
+            Feature feature = snapshot.getFeature(channel.getProperties().get(PROPERTY_FEATURE_NAME)).orElseThrow();
+            // The fixture features are all status sensor features, so only their rendering is reproduced here
+            feature.accept(new Feature.Visitor() {
+                @Override
+                public void visit(ConsumptionFeature f) {
+                }
+
+                @Override
+                public void visit(NumericSensorFeature f) {
+                }
+
+                @Override
+                public void visit(StatusSensorFeature f) {
+                    String propertyName = channel.getProperties().get(PROPERTY_PROP_NAME);
+                    State state;
+                    switch (propertyName) {
+                        case "status":
+                            state = StringType.valueOf(f.getStatus() == null ? null : f.getStatus().getName());
+                            break;
+                        default:
+                            Value value = f.getProperties().get(propertyName);
+                            var visitor = new Value.Visitor() {
+                                State state = UnDefType.UNDEF;
+
+                                @Override
+                                public void visit(ArrayValue v) {
+                                }
+
+                                @Override
+                                public void visit(BooleanValue v) {
+                                    state = v.getValue() ? OnOffType.ON : OnOffType.OFF;
+                                }
+
+                                @Override
+                                public void visit(DimensionalValue v) {
+                                    state = new DecimalType(v.getValue());
+                                }
+
+                                @Override
+                                public void visit(LocalDateValue v) {
+                                }
+
+                                @Override
+                                public void visit(StatusValue v) {
+                                }
+
+                                @Override
+                                public void visit(StringValue v) {
+                                    state = new StringType(v.getValue());
+                                }
+                            };
+                            value.accept(visitor);
+                            state = visitor.state;
+                            break;
+                    }
+                    if (state != null) {
+                        ++rendered[0];
+                    }
+                }
+
+                @Override
+                public void visit(TextFeature f) {
+                }
+
+                @Override
+                public void visit(CurveFeature f) {
+                }
+
+                @Override
+                public void visit(DatePeriodFeature datePeriodFeature) {
+                }
+            });
+        }
+        return rendered[0];
+    }
+}
@@ -2,6 +2,7 @@ package com.qubular.openhab.binding.vicare.internal;
 
 import com.qubular.openhab.binding.vicare.VicareServiceProvider;
 import com.qubular.openhab.binding.vicare.internal.channeltype.ChannelTypeManager;
+import com.qubular.openhab.binding.vicare.internal.channeltype.ChannelTypeTemplates;
 import com.qubular.openhab.binding.vicare.internal.channeltype.VicareChannelTypeProvider;
 import com.qubular.vicare.model.Feature;
 import com.qubular.vicare.model.Unit;
@@ -20,6 +21,7 @@ import org.openhab.core.thing.type.ChannelTypeUID;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.qubular.openhab.binding.vicare.internal.VicareConstants.*;
 import static com.qubular.openhab.binding.vicare.internal.VicareUtil.encodeThingId;
@@ -52,7 +54,9 @@ public class ChannelTypeManagerTest {
         when(vicareServiceProvider.getThingRegistry()).thenReturn(thingRegistry);
         when(vicareServiceProvider.getChannelTypeRegistry()).thenReturn(channelTypeRegistry);
         when(vicareServiceProvider.getChannelTypeProvider()).thenReturn(channelTypeProvider);
+        when(vicareServiceProvider.getChannelTypeTemplates()).thenReturn(new ChannelTypeTemplates(channelTypeRegistry, channelTypeProvider));
         when(vicareServiceProvider.getFeatureService()).thenReturn(featureService);
+        when(vicareServiceProvider.getExecutor()).thenReturn(ForkJoinPool.commonPool());
     }
 
     @Test
@@ -92,6 +96,47 @@ public class ChannelTypeManagerTest {
         assertEquals("String", channelType.getItemType());
     }
 
+    @Test
+    public void managerEvictsUnreferencedChannelTypes_afterPreload() {
+        Thing thing = thingWithSomeChannels();
+        Set<ChannelTypeUID> referenced = channelTypesOf(thing);
+
+        ChannelTypeManager channelTypeManager = new ChannelTypeManager(vicareServiceProvider);
+
+        verify(channelTypeProvider, timeout(10000)).evictUnreferenced(referenced);
+    }
+
+    @Test
+    public void managerEvictsUnreferencedChannelTypes_onThingRemoved() {
+        Thing thing = thingWithSomeChannels();
+        Set<ChannelTypeUID> referenced = channelTypesOf(thing);
+        ChannelTypeManager channelTypeManager = new ChannelTypeManager(vicareServiceProvider);
+
+        var listenerCaptor = ArgumentCaptor.forClass(ThingRegistryChangeListener.class);
+        verify(thingRegistry).addRegistryChangeListener(listenerCaptor.capture());
+
+        // the channel types of things of other bindings are not the binding's to keep
+        ThingUID otherThingUID = new ThingUID(new ThingTypeUID("other", "device"), "1");
+        Thing otherThing = mock(Thing.class);
+        when(otherThing.getUID()).thenReturn(otherThingUID);
+        when(otherThing.getChannels()).thenReturn(List.of(ChannelBuilder.create(new ChannelUID(otherThingUID, "status"), "String")
+                .withType(new ChannelTypeUID(BINDING_ID, "heating_boiler_status"))
+                .build()));
+        when(thingRegistry.getAll()).thenReturn(List.of(thing, otherThing));
+        listenerCaptor.getValue().removed(otherThing);
+        verify(channelTypeProvider).evictUnreferenced(referenced);
+
+        when(thingRegistry.getAll()).thenReturn(List.of(otherThing));
+        listenerCaptor.getValue().removed(thing);
+        verify(channelTypeProvider).evictUnreferenced(Set.of());
+    }
+
+    private static Set<ChannelTypeUID> channelTypesOf(Thing thing) {
+        Set<ChannelTypeUID> channelTypes = new HashSet<>();
+        thing.getChannels().forEach(channel -> channelTypes.add(channel.getChannelTypeUID()));
+        return channelTypes;
+    }
+
     private Thing thingWithSomeChannels() {
         Thing thing = mock(Thing.class);
         when(thing.getConfiguration()).thenReturn(new Configuration());
@@ -108,8 +153,6 @@ public class ChannelTypeManagerTest {
         Feature dhwSensorsTemperatureOutletFeature = new NumericSensorFeature("heating.dhw.sensors.temperature.outlet", "value",
                                                              new DimensionalValue(new Unit("celsius"), 27.3), new StatusValue("connected"), null
         );
-        when(featureService.getFeature(same(thing), eq("heating.dhw.sensors.temperature.outlet"), anyInt()))
-                .thenReturn(CompletableFuture.completedFuture(Optional.of(dhwSensorsTemperatureOutletFeature)));
 
         ChannelTypeUID heatingBurnersStatisticsChannelTypeUID = new ChannelTypeUID(BINDING_ID, "heating_burners_statistics_starts");
         Channel heatingBurners0StatisticsStartsChannel = ChannelBuilder.create(new ChannelUID(thing.getUID(), "heating_burners_0_statistics_starts"), "Number")
@@ -122,8 +165,6 @@ public class ChannelTypeManagerTest {
                                                                            Map.of("starts", new DimensionalValue(Unit.EMPTY, 312),
                                                                                       "hours", new DimensionalValue(Unit.HOUR, 5.0)),
                                                                            emptyList());
-        when(featureService.getFeature(same(thing), eq("heating.burners.0.statistics"), anyInt()))
-                .thenReturn(CompletableFuture.completedFuture(Optional.of(heatingBurners0StatisticsFeature)));
 
 
         ChannelTypeUID heatingCircuits0CirculationPumpStatusChannelTypeUID = new ChannelTypeUID(BINDING_ID, "heating_circuits_0_circulation_pump_status");
@@ -136,9 +177,12 @@ public class ChannelTypeManagerTest {
         Feature heatingCircuits0CirculationPumpFeature = new StatusSensorFeature("heating.circuits.0.circulation.pump",
                                                                              new StatusValue("on"),
                                                                              null);
-        when(featureService.getFeature(same(thing), eq("heating.circuits.0.circulation.pump"), anyInt()))
-                .thenReturn(CompletableFuture.completedFuture(Optional.of(heatingCircuits0CirculationPumpFeature)));
 
+        // all the missing channel types are built from one snapshot of the thing's features
+        when(featureService.getSnapshot(same(thing), anyInt()))
+                .thenReturn(CompletableFuture.completedFuture(new FeatureSnapshot(List.of(dhwSensorsTemperatureOutletFeature,
+                                                                                          heatingBurners0StatisticsFeature,
+                                                                                          heatingCircuits0CirculationPumpFeature), null)));
         when(thing.getChannels()).thenReturn(List.of(dhwSensorsTemperatureOutletChannel,
                                                      heatingBurners0StatisticsStartsChannel,
                                                      heatingCircuits0CirculationPumpStatusChannel));
@@ -52,4 +52,29 @@ class CryptUtilTest {
         String decrypted = cryptUtil.decrypt(encrypted);
         assertEquals(message, decrypted);
     }
+
+    @Test
+    public void keyFollowsEncryptionStrengthSetting() throws GeneralSecurityException, IOException {
+        Hashtable<String, Object> properties = new Hashtable<>();
+        when(configuration.getProperties()).thenReturn(properties);
+        String message = "test message";
+
+        CryptUtil cryptUtil = new CryptUtil(configuration);
+        String strong = cryptUtil.encrypt(message);
+        assertEquals(message, cryptUtil.decrypt(strong));
+
+        properties.put(CryptUtil.CONFIG_USE_LIMITED_ENCRYPTION, true);
+        String limited = cryptUtil.encrypt(message);
+        assertEquals(message, cryptUtil.decrypt(limited));
+        String decryptedWithLimitedKey;
+        try {
+            decryptedWithLimitedKey = cryptUtil.decrypt(strong);
+        } catch (GeneralSecurityException e) {
+            decryptedWithLimitedKey = null;
+        }
+        assertNotEquals(message, decryptedWithLimitedKey);
+
+        properties.put(CryptUtil.CONFIG_USE_LIMITED_ENCRYPTION, false);
+        assertEquals(message, cryptUtil.decrypt(strong));
+    }
 }
\ No newline at end of file
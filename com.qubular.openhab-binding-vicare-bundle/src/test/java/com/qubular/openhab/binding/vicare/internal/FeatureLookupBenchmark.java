@@ -0,0 +1,87 @@
+package com.qubular.openhab.binding.vicare.internal;
+
+import com.google.gson.JsonObject;
+import com.qubular.vicare.model.Feature;
+import com.qubular.vicare.model.features.TextFeature;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the CPU cost of resolving every channel's feature in one poll cycle of a Vitocal 222-S, using a linear
+ * search of the feature list as the cache used to, against the name index of a {@link FeatureSnapshot}.
+ */
+public class FeatureLookupBenchmark extends AbstractBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(FeatureLookupBenchmark.class);
+    private static final int WARMUP_ITERATIONS = 2000;
+    private static final int ITERATIONS = 10000;
+
+    @Test
+    public void featureLookupPerPollCycle() throws IOException {
+        List<Feature> features = new ArrayList<>();
+        List<String> channelFeatureNames = new ArrayList<>();
+        // Only the names matter for lookup, so each enabled feature is represented by a text feature, and
+        // each of its properties by a channel
+        for (JsonObject featureObject : readEnabledFeatures(fixture("Vitocal222S.json"))) {
+            String name = featureObject.get("feature").getAsString();
+            features.add(new TextFeature(name, "value", ""));
+            int properties = featureObject.getAsJsonObject("properties").size();
+            for (int i = 0; i < Math.max(1, properties); ++i) {
+                channelFeatureNames.add(name);
+            }
+        }
+        FeatureSnapshot snapshot = new FeatureSnapshot(features);
+
+        for (int i = 0; i < WARMUP_ITERATIONS; ++i) {
+            linearPollCycle(features, channelFeatureNames);
+            indexedPollCycle(snapshot, channelFeatureNames);
+        }
+
+        long start = cpuTime();
+        int found = 0;
+        for (int i = 0; i < ITERATIONS; ++i) {
+            found += linearPollCycle(features, channelFeatureNames);
+        }
+        long linearNanos = (cpuTime() - start) / ITERATIONS;
+
+        start = cpuTime();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            found -= indexedPollCycle(snapshot, channelFeatureNames);
+        }
+        long indexedNanos = (cpuTime() - start) / ITERATIONS;
+
+        assertEquals(0, found);
+        logger.info("{} features, {} channels: linear search {} ns/poll, indexed {} ns/poll",
+                features.size(), channelFeatureNames.size(), linearNanos, indexedNanos);
+    }
+
+    private static int linearPollCycle(List<Feature> features, List<String> channelFeatureNames) {
+        int found = 0;
+        for (String featureName : channelFeatureNames) {
+            Optional<Feature> feature = features.stream()
+                    .filter(f -> f.getName().equals(featureName))
+                    .findFirst();
+            if (feature.isPresent()) {
+                ++found;
+            }
+        }
+        return found;
+    }
+
+    private static int indexedPollCycle(FeatureSnapshot snapshot, List<String> channelFeatureNames) {
+        int found = 0;
+        for (String featureName : channelFeatureNames) {
+            if (snapshot.getFeature(featureName).isPresent()) {
+                ++found;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,137 @@
+package com.qubular.openhab.binding.vicare.internal;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openhab.core.thing.ThingUID;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.PatternSyntaxException;
+
+import static com.qubular.openhab.binding.vicare.internal.FeaturePollingTiers.Tier.*;
+import static com.qubular.openhab.binding.vicare.internal.VicareConstants.THING_TYPE_HEATING;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FeaturePollingTiersTest {
+    private static final Instant NOW = Instant.parse("2022-10-18T12:00:00Z");
+    private static final ThingUID THING_UID = new ThingUID(THING_TYPE_HEATING, "device1");
+    private static final List<String> FEATURES = List.of(
+            "heating.dhw.sensors.temperature.hotWaterStorage",
+            "heating.circuits.0.operating.programs.comfort",
+            "heating.circuits.0.heating.curve");
+
+    private FeaturePollingTiers pollingTiers;
+
+    @BeforeEach
+    public void setUp() {
+        pollingTiers = new FeaturePollingTiers();
+        pollingTiers.setIntervals(Duration.ofSeconds(90), Duration.ofSeconds(300), Duration.ofSeconds(3600));
+    }
+
+    @Test
+    public void assignsDefaultTiers() {
+        assertEquals(FAST, pollingTiers.getTier("heating.dhw.sensors.temperature.hotWaterStorage"));
+        assertEquals(FAST, pollingTiers.getTier("heating.burners.0"));
+        assertEquals(FAST, pollingTiers.getTier("heating.circuits.1.circulation.pump"));
+        assertEquals(NORMAL, pollingTiers.getTier("heating.circuits.0.operating.programs.comfort"));
+        assertEquals(NORMAL, pollingTiers.getTier("heating.dhw.temperature.main"));
+        assertEquals(SLOW, pollingTiers.getTier("heating.circuits.0.heating.curve"));
+        assertEquals(SLOW, pollingTiers.getTier("heating.burners.0.statistics"));
+        assertEquals(SLOW, pollingTiers.getTier("device.messages.errors.raw"));
+    }
+
+    @Test
+    public void configuredPatternsOverrideDefaults() {
+        pollingTiers.setPatterns(List.of("heating\\.dhw\\..*"), List.of(" heating\\.circuits\\..* ", ""));
+        assertEquals(FAST, pollingTiers.getTier("heating.dhw.temperature.main"));
+        assertEquals(SLOW, pollingTiers.getTier("heating.circuits.0.operating.programs.comfort"));
+        assertEquals(NORMAL, pollingTiers.getTier("heating.burners.0"));
+    }
+
+    @Test
+    public void onlyDueTiersArePolled() {
+        assertEquals(EnumSet.allOf(FeaturePollingTiers.Tier.class),
+                pollingTiers.getDueTiers(THING_UID, FEATURES, NOW));
+        pollingTiers.polled(THING_UID, EnumSet.allOf(FeaturePollingTiers.Tier.class), NOW);
+
+        assertTrue(pollingTiers.getDueTiers(THING_UID, FEATURES, NOW.plusSeconds(60)).isEmpty());
+        assertEquals(Set.of(FAST), pollingTiers.getDueTiers(THING_UID, FEATURES, NOW.plusSeconds(90)));
+        pollingTiers.polled(THING_UID, Set.of(FAST), NOW.plusSeconds(90));
+
+        assertEquals(Set.of(FAST, NORMAL), pollingTiers.getDueTiers(THING_UID, FEATURES, NOW.plusSeconds(300)));
+        assertEquals(Set.of(FAST, NORMAL, SLOW), pollingTiers.getDueTiers(THING_UID, FEATURES, NOW.plusSeconds(3600)));
+    }
+
+    @Test
+    public void invalidPatternIsRejected() {
+        assertThrows(PatternSyntaxException.class,
+                () -> pollingTiers.setPatterns(List.of("heating\\.dhw\\.(.*"), List.of()));
+        pollingTiers.setPatterns(List.of("heating\\.sensors\\.temperature\\.\\w{1,10}"), List.of());
+        assertEquals(FAST, pollingTiers.getTier("heating.sensors.temperature.outside"));
+    }
+
+    @Test
+    public void loneDueFeatureIsFetchedOnItsOwn() {
+        int wholeDeviceRequests = 0;
+        Map<FeaturePollingTiers.Tier, Integer> featureRequests = new EnumMap<>(FeaturePollingTiers.Tier.class);
+        for (Instant now = NOW; !now.isAfter(NOW.plusSeconds(3600)); now = now.plusSeconds(90)) {
+            FeaturePollingTiers.Poll poll = pollingTiers.getPoll(THING_UID, FEATURES, now);
+            if (poll.isWholeDevice()) {
+                ++wholeDeviceRequests;
+            } else {
+                poll.featureNames().forEach(featureName ->
+                        featureRequests.merge(pollingTiers.getTier(featureName), 1, Integer::sum));
+            }
+            pollingTiers.polled(THING_UID, poll.tiers(), now);
+        }
+
+        // at the start, and every 360s when the normal feature falls due along with the fast one
+        assertEquals(11, wholeDeviceRequests);
+        // the fast feature alone at the other 30 polls
+        assertEquals(30, featureRequests.get(FAST));
+        assertNull(featureRequests.get(NORMAL));
+        assertNull(featureRequests.get(SLOW));
+    }
+
+    @Test
+    public void wholeDeviceIsFetchedWhenMoreThanOneFeatureIsDue() {
+        List<String> features = List.of(
+                "heating.sensors.temperature.outside",
+                "heating.dhw.sensors.temperature.outlet",
+                "heating.circuits.0.heating.curve");
+        pollingTiers.polled(THING_UID, EnumSet.allOf(FeaturePollingTiers.Tier.class), NOW);
+
+        FeaturePollingTiers.Poll poll = pollingTiers.getPoll(THING_UID, features, NOW.plusSeconds(90));
+        assertTrue(poll.isWholeDevice());
+        assertEquals(Set.of(FAST, SLOW), poll.tiers());
+
+        poll = pollingTiers.getPoll(THING_UID, features.subList(1, 3), NOW.plusSeconds(90));
+        assertEquals(Set.of(FAST), poll.tiers());
+        assertEquals(Set.of("heating.dhw.sensors.temperature.outlet"), poll.featureNames());
+    }
+
+    @Test
+    public void tiersWithoutFeaturesAreNeverDue() {
+        assertEquals(Set.of(FAST), pollingTiers.getDueTiers(THING_UID,
+                List.of("heating.dhw.sensors.temperature.hotWaterStorage"), NOW));
+    }
+
+    @Test
+    public void shortestIntervalDeterminesCacheExpiry() {
+        assertEquals(Duration.ofSeconds(90), pollingTiers.getShortestInterval(Set.of(FAST, SLOW)));
+        assertEquals(Duration.ofSeconds(300), pollingTiers.getShortestInterval(Set.of(NORMAL, SLOW)));
+    }
+
+    @Test
+    public void clearForgetsWhenDeviceWasPolled() {
+        pollingTiers.polled(THING_UID, EnumSet.allOf(FeaturePollingTiers.Tier.class), NOW);
+        pollingTiers.clear(THING_UID);
+        assertEquals(EnumSet.allOf(FeaturePollingTiers.Tier.class),
+                pollingTiers.getDueTiers(THING_UID, FEATURES, NOW));
+    }
+}
@@ -0,0 +1,152 @@
+package com.qubular.openhab.binding.vicare.internal;
+
+import com.qubular.vicare.VicareError;
+import com.qubular.vicare.VicareServiceException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PollSchedulerTest {
+    private static final Instant NOW = Instant.parse("2022-10-18T12:00:00Z");
+
+    private Clock clock;
+    private PollScheduler pollScheduler;
+
+    @BeforeEach
+    public void setUp() {
+        clock = mock(Clock.class);
+        when(clock.instant()).thenReturn(NOW);
+        pollScheduler = new PollScheduler(clock);
+        pollScheduler.setPollingInterval(Duration.ofSeconds(90));
+        pollScheduler.setDailyRequestLimit(1450);
+    }
+
+    private static VicareServiceException rateLimitExceeded(Long limitReset) {
+        VicareError error = mock(VicareError.class);
+        when(error.getStatusCode()).thenReturn(PollScheduler.RATE_LIMIT_EXCEEDED);
+        if (limitReset != null) {
+            VicareError.ExtendedPayload extendedPayload = mock(VicareError.ExtendedPayload.class);
+            when(extendedPayload.getLimitReset()).thenReturn(limitReset);
+            when(error.getExtendedPayload()).thenReturn(extendedPayload);
+        }
+        return new VicareServiceException(error);
+    }
+
+    @Test
+    public void usesPollingIntervalWhenWithinQuota() {
+        assertEquals(Duration.ofSeconds(90), pollScheduler.getEffectiveInterval(1));
+        assertEquals(Duration.ofSeconds(90), pollScheduler.getPollSpacing(1));
+    }
+
+    @Test
+    public void stretchesIntervalToStayWithinQuota() {
+        // 3 devices * 86400s / 1450 requests = 178.76s
+        assertEquals(Duration.ofSeconds(179), pollScheduler.getEffectiveInterval(3));
+        assertTrue(pollScheduler.getEffectiveInterval(3).dividedBy(Duration.ofSeconds(1)) * 1450 >= 3 * 86400);
+        assertEquals(Duration.ofSeconds(179).dividedBy(3), pollScheduler.getPollSpacing(3));
+
+        pollScheduler.setDailyRequestLimit(0);
+        assertEquals(Duration.ofSeconds(90), pollScheduler.getEffectiveInterval(3));
+        assertEquals(Duration.ofSeconds(30), pollScheduler.getPollSpacing(3));
+    }
+
+    @Test
+    public void stretchesIntervalForRequestsOtherThanPolls() {
+        for (int i = 0; i < 1000; ++i) {
+            pollScheduler.requestSent(true);
+        }
+        assertEquals(Duration.ofSeconds(179), pollScheduler.getEffectiveInterval(3));
+
+        for (int i = 0; i < 450; ++i) {
+            pollScheduler.requestSent(false);
+        }
+        assertEquals(1450, pollScheduler.getRequestCount());
+        // 3 devices * 86400s / (1450 - 450) requests left for polling = 259.2s
+        assertEquals(Duration.ofSeconds(260), pollScheduler.getEffectiveInterval(3));
+
+        when(clock.instant()).thenReturn(NOW.plus(Duration.ofDays(1)));
+        assertEquals(0, pollScheduler.getRequestCount());
+        assertEquals(Duration.ofSeconds(179), pollScheduler.getEffectiveInterval(3));
+    }
+
+    @Test
+    public void budgetsTheRequestsPollsActuallyMake() {
+        // one request for every other poll, when the devices have tiers due
+        for (int i = 0; i < 100; ++i) {
+            pollScheduler.devicePolled();
+            if (i % 2 == 0) {
+                pollScheduler.requestSent(true);
+            }
+        }
+        // 3 devices * 86400s * 50 requests / (1450 requests * 100 polls) = 89.38s
+        assertEquals(Duration.ofSeconds(90), pollScheduler.getEffectiveInterval(3));
+        pollScheduler.setPollingInterval(Duration.ofSeconds(60));
+        assertEquals(Duration.ofSeconds(90), pollScheduler.getEffectiveInterval(3));
+
+        // as many requests as polls
+        for (int i = 0; i < 50; ++i) {
+            pollScheduler.requestSent(true);
+        }
+        assertEquals(Duration.ofSeconds(179), pollScheduler.getEffectiveInterval(3));
+    }
+
+    @Test
+    public void suspendsUntilDailyQuotaAvailable() {
+        for (int i = 0; i < 1449; ++i) {
+            pollScheduler.requestSent(i % 2 == 0);
+        }
+        assertTrue(pollScheduler.getSuspension().isEmpty());
+
+        when(clock.instant()).thenReturn(NOW.plus(Duration.ofHours(6)));
+        pollScheduler.requestSent(false);
+        assertEquals(Optional.of(Duration.ofHours(18)), pollScheduler.getSuspension());
+
+        when(clock.instant()).thenReturn(NOW.plus(Duration.ofDays(1)));
+        assertTrue(pollScheduler.getSuspension().isEmpty());
+        assertEquals(1, pollScheduler.getRequestCount());
+    }
+
+    @Test
+    public void suspendsUntilLimitReset() {
+        assertTrue(pollScheduler.getSuspension().isEmpty());
+        assertTrue(pollScheduler.requestFailed(rateLimitExceeded(NOW.plus(Duration.ofHours(2)).toEpochMilli())));
+        assertEquals(Optional.of(Duration.ofHours(2)), pollScheduler.getSuspension());
+
+        when(clock.instant()).thenReturn(NOW.plus(Duration.ofHours(2)));
+        assertTrue(pollScheduler.getSuspension().isEmpty());
+    }
+
+    @Test
+    public void backsOffWhenLimitResetUnknown() {
+        assertTrue(pollScheduler.requestFailed(rateLimitExceeded(null)));
+        assertEquals(Optional.of(Duration.ofSeconds(90)), pollScheduler.getSuspension());
+        assertTrue(pollScheduler.requestFailed(rateLimitExceeded(null)));
+        assertEquals(Optional.of(Duration.ofSeconds(180)), pollScheduler.getSuspension());
+        for (int i = 0; i < 10; ++i) {
+            pollScheduler.requestFailed(rateLimitExceeded(null));
+        }
+        assertEquals(Optional.of(Duration.ofHours(1)), pollScheduler.getSuspension());
+
+        pollScheduler.requestSucceeded();
+        assertTrue(pollScheduler.requestFailed(rateLimitExceeded(null)));
+        assertEquals(Optional.of(Duration.ofSeconds(90)), pollScheduler.getSuspension());
+    }
+
+    @Test
+    public void ignoresOtherFailures() {
+        VicareError error = mock(VicareError.class);
+        when(error.getStatusCode()).thenReturn(400);
+        assertFalse(pollScheduler.requestFailed(new VicareServiceException(error)));
+        assertFalse(pollScheduler.requestFailed(new IOException("Timed out")));
+        assertTrue(pollScheduler.getSuspension().isEmpty());
+    }
+}
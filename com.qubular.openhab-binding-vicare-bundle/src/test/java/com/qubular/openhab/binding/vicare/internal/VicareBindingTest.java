@@ -1,6 +1,8 @@
 package com.qubular.openhab.binding.vicare.internal;
 
 import com.qubular.openhab.binding.vicare.VicareServiceProvider;
+import com.qubular.openhab.binding.vicare.internal.channeltype.ChannelTypeManager;
+import com.qubular.openhab.binding.vicare.internal.channeltype.ChannelTypeTemplates;
 import com.qubular.openhab.binding.vicare.internal.channeltype.SimpleVicareChannelTypeProvider;
 import com.qubular.openhab.binding.vicare.internal.channeltype.VicareChannelTypeProvider;
 import com.qubular.openhab.binding.vicare.internal.configuration.SimpleConfiguration;
@@ -52,6 +54,9 @@ import java.net.URI;
 import java.time.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -61,6 +66,8 @@ import static com.qubular.openhab.binding.vicare.internal.VicareUtil.encodeThing
 import static com.qubular.vicare.model.Device.DEVICE_TYPE_HEATING;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.failedFuture;
 import static java.util.function.Function.identity;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentCaptor.forClass;
@@ -561,8 +568,25 @@ public class VicareBindingTest {
         when(vicareServiceProvider.getConfigurationAdmin()).thenReturn(configurationAdmin);
         when(vicareServiceProvider.getChannelTypeRegistry()).thenReturn(myChannelTypeRegistry);
         when(vicareServiceProvider.getChannelTypeProvider()).thenReturn(channelTypeProvider);
-        FeatureService featureService = new CachedFeatureService(vicareService);
+        when(vicareServiceProvider.getChannelTypeTemplates()).thenReturn(new ChannelTypeTemplates(myChannelTypeRegistry, channelTypeProvider));
+        // the feature service fetches asynchronously, answer from whatever each test stubs for the blocking calls
+        when(vicareService.getFeaturesAsync(anyLong(), anyString(), anyString())).thenAnswer(i -> {
+            try {
+                return completedFuture(vicareService.getFeatures(i.getArgument(0), i.getArgument(1), i.getArgument(2)));
+            } catch (Exception e) {
+                return failedFuture(e);
+            }
+        });
+        when(vicareService.getFeatureAsync(anyLong(), anyString(), anyString(), anyString())).thenAnswer(i -> {
+            try {
+                return completedFuture(vicareService.getFeature(i.getArgument(0), i.getArgument(1), i.getArgument(2), i.getArgument(3)));
+            } catch (Exception e) {
+                return failedFuture(e);
+            }
+        });
+        FeatureService featureService = new CachedFeatureService(vicareService, mock(ThingRegistry.class));
         when(vicareServiceProvider.getFeatureService()).thenReturn(featureService);
+        when(vicareServiceProvider.getExecutor()).thenReturn(ForkJoinPool.commonPool());
         myChannelTypeRegistry.addChannelTypeProvider(xmlChannelTypeProvider);
     }
 
@@ -772,6 +796,78 @@ public class VicareBindingTest {
         verify(heatingThing.callback).statusUpdated(heatingThing.thingCaptor.getValue(), expectedStatus);
     }
 
+    @Test
+    public void featurePollUpdatesAllChannelsInOneTaskPerDevice() throws AuthenticationException, IOException {
+        AtomicInteger submittedTasks = new AtomicInteger();
+        Executor countingExecutor = command -> {
+            submittedTasks.incrementAndGet();
+            ForkJoinPool.commonPool().execute(command);
+        };
+        when(vicareServiceProvider.getExecutor()).thenReturn(countingExecutor);
+        HeatingThing heatingThing = initialiseHeatingThing();
+        verify(heatingThing.callback, timeout(1000)).statusUpdated(eq(heatingThing.thingCaptor.getValue()), argThat((ThingStatusInfo tsi) -> tsi.getStatus() == ThingStatus.ONLINE));
+        Thing childThing = mock(Thing.class);
+        doReturn(heatingThing.handler).when(childThing).getHandler();
+        doReturn(List.of(childThing)).when((Bridge) heatingThing.bridge).getThings();
+        Channel serialChannel = findChannelNoVerify(heatingThing.thingCaptor, "device_serial_value");
+        Channel pumpChannel = findChannelNoVerify(heatingThing.thingCaptor, "heating_circuits_0_circulation_pump_status");
+
+        submittedTasks.set(0);
+        ((VicareBridgeHandler) heatingThing.bridge.getHandler()).pollFeatures();
+
+        verify(heatingThing.callback, timeout(1000)).stateUpdated(serialChannel.getUID(), new StringType("7723181102527121"));
+        verify(heatingThing.callback, timeout(1000)).stateUpdated(pumpChannel.getUID(), new StringType("on"));
+        verify(vicareService, times(1)).getFeatures(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID);
+        assertEquals(1, submittedTasks.get());
+    }
+
+    @Test
+    public void coldStartFetchesFeaturesOncePerDevice() throws AuthenticationException, IOException {
+        oneHeatingInstallationTwoBoilers();
+        Bridge bridge = vicareBridge();
+        createBridgeHandler(bridge);
+        VicareHandlerFactory vicareHandlerFactory = new VicareHandlerFactory(bundleContext, vicareServiceProvider);
+        List<Thing> deviceThings = List.of(heatingDeviceThing(DEVICE_1_ID), heatingDeviceThing(DEVICE_2_ID));
+        for (Thing deviceThing : deviceThings) {
+            // the channels persisted by the last run, whose generated channel types are not known yet
+            Channel serialChannel = ChannelBuilder.create(new ChannelUID(deviceThing.getUID(), "device_serial_value"), "String")
+                    .withType(new ChannelTypeUID(BINDING_ID, "device_serial_value"))
+                    .withProperties(Map.of(PROPERTY_FEATURE_NAME, "device.serial",
+                                           PROPERTY_PROP_NAME, "value"))
+                    .build();
+            doReturn(List.of(serialChannel)).when(deviceThing).getChannels();
+        }
+        doReturn(deviceThings).when(thingRegistry).getAll();
+        ChannelTypeManager channelTypeManager = new ChannelTypeManager(vicareServiceProvider);
+        ArgumentCaptor<ThingRegistryChangeListener> listenerCaptor = forClass(ThingRegistryChangeListener.class);
+        verify(thingRegistry).addRegistryChangeListener(listenerCaptor.capture());
+
+        // each thing is loaded into the registry and its handler initialized, then the bridge polls
+        List<ThingHandlerCallback> callbacks = new ArrayList<>();
+        List<Thing> childThings = new ArrayList<>();
+        for (Thing deviceThing : deviceThings) {
+            listenerCaptor.getValue().added(deviceThing);
+            ThingHandler handler = vicareHandlerFactory.createHandler(deviceThing);
+            callbacks.add(simpleHandlerCallback(bridge, handler));
+            registerAndInitialize(handler);
+            Thing childThing = mock(Thing.class);
+            doReturn(handler).when(childThing).getHandler();
+            childThings.add(childThing);
+        }
+        for (ThingHandlerCallback callback : callbacks) {
+            verify(callback, timeout(1000)).statusUpdated(any(Thing.class), argThat((ThingStatusInfo tsi) -> tsi.getStatus() == ThingStatus.ONLINE));
+        }
+        doReturn(childThings).when(bridge).getThings();
+        ((VicareBridgeHandler) bridge.getHandler()).pollFeatures();
+
+        verify(callbacks.get(0), timeout(1000)).stateUpdated(any(ChannelUID.class), eq(new StringType("1111111111111111")));
+        verify(callbacks.get(1), timeout(1000)).stateUpdated(any(ChannelUID.class), eq(new StringType("2222222222222222")));
+        verify(vicareService, after(500).times(1)).getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_1_ID);
+        verify(vicareService, times(1)).getFeaturesAsync(INSTALLATION_ID, GATEWAY_SERIAL, DEVICE_2_ID);
+        verify(vicareService, never()).getFeatureAsync(anyLong(), anyString(), anyString(), anyString());
+        channelTypeManager.deactivate();
+    }
+
     @Test
     public void supportsHeatingCircuitOperatingProgramsActive() throws AuthenticationException, IOException {
         HeatingThing heatingThing = initialiseHeatingThing();
@@ -41,7 +41,10 @@ public class FeatureUtilTest {
                 Arguments.of("template_heating_circuits_circulation_pump_status", "heating.circuits.0.circulation.pump", "status", -1),
                 Arguments.of("template_heating_circuits_name", "heating.circuits.0", "name", -1),
                 Arguments.of("template_heating_circuits_-_name", "heating.circuits.0.name", "name", 1),
-                Arguments.of("template_heating_circuits_name_-", "heating.circuits.0.name", "name", 0)
+                Arguments.of("template_heating_circuits_name_-", "heating.circuits.0.name", "name", 0),
+                Arguments.of("template_heating_compressors_statistics_hours", "heating.compressors.12.statistics", "hours", -1),
+                Arguments.of("template_heating_circuits_operating_programs_forcedLastFromSchedule_active", "heating.circuits.1.operating.programs.forcedLastFromSchedule", "active", -1),
+                Arguments.of("template_device_value", "device", "value", 1)
         );
     }
 
@@ -57,7 +60,8 @@ public class FeatureUtilTest {
                 Arguments.of("heating.circuits.0.name", Map.of("0", "name",
                                                                "heatingCircuit", "0")),
                 Arguments.of("heating.circuits.0", Map.of("0", "0",
-                                                          "heatingCircuit", "0"))
+                                                          "heatingCircuit", "0")),
+                Arguments.of("device", Map.of("0", "device"))
         );
     }
 
@@ -0,0 +1,100 @@
+package com.qubular.openhab.binding.vicare.internal.channeltype;
+
+import com.google.gson.JsonObject;
+import com.qubular.openhab.binding.vicare.internal.AbstractBenchmark;
+import com.qubular.openhab.binding.vicare.internal.VicareUtil;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the CPU cost of the feature name transforms done while building the channels of every device in the
+ * fixture responses, using String.replaceAll as they used to, against the scanners in {@link FeatureUtil} and
+ * {@link VicareUtil}.
+ */
+public class NameTransformBenchmark extends AbstractBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(NameTransformBenchmark.class);
+    private static final int WARMUP_ITERATIONS = 200;
+    private static final int ITERATIONS = 1000;
+
+    @Test
+    public void nameTransformsPerChannelBuild() throws IOException {
+        // feature names and their property names
+        List<Map.Entry<String, Set<String>>> features = new ArrayList<>();
+        List<File> fixtures = fixtures();
+        for (File fixture : fixtures) {
+            for (JsonObject featureObject : readEnabledFeatures(fixture)) {
+                features.add(Map.entry(featureObject.get("feature").getAsString(),
+                        featureObject.getAsJsonObject("properties").keySet()));
+            }
+        }
+
+        for (int i = 0; i < WARMUP_ITERATIONS; ++i) {
+            regexTransforms(features);
+            scannerTransforms(features);
+        }
+
+        long start = cpuTime();
+        long checksum = 0;
+        for (int i = 0; i < ITERATIONS; ++i) {
+            checksum += regexTransforms(features);
+        }
+        long regexNanos = (cpuTime() - start) / ITERATIONS;
+
+        start = cpuTime();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            checksum -= scannerTransforms(features);
+        }
+        long scannerNanos = (cpuTime() - start) / ITERATIONS;
+
+        assertEquals(0, checksum);
+        logger.info("{} fixtures, {} features: replaceAll {} ns/build, precompiled {} ns/build",
+                fixtures.size(), features.size(), regexNanos, scannerNanos);
+    }
+
+    private static long regexTransforms(List<Map.Entry<String, Set<String>>> features) {
+        long checksum = 0;
+        for (Map.Entry<String, Set<String>> entry : features) {
+            String name = entry.getKey();
+            checksum += name.replaceAll(".*\\.([^.]*$)", "$1").hashCode();
+            for (String propertyName : entry.getValue()) {
+                for (int truncation = -1; truncation <= 1; ++truncation) {
+                    String truncated = name.replaceAll("\\.\\d+", "");
+                    int featureTruncation = truncation;
+                    while (featureTruncation-- > 0) {
+                        truncated = truncated.replaceAll("\\.[^.]+?$", ".-");
+                    }
+                    checksum += ("template_" + truncated).replace(".", "_").hashCode();
+                }
+                checksum += (name + "_" + propertyName).replaceAll("\\W", "_").hashCode();
+            }
+        }
+        return checksum;
+    }
+
+    private static long scannerTransforms(List<Map.Entry<String, Set<String>>> features) {
+        long checksum = 0;
+        for (Map.Entry<String, Set<String>> entry : features) {
+            String name = entry.getKey();
+            checksum += FeatureUtil.lastSegment(name).hashCode();
+            for (String propertyName : entry.getValue()) {
+                for (int truncation = -1; truncation <= 1; ++truncation) {
+                    String truncated = FeatureUtil.withoutIndices(name);
+                    int featureTruncation = truncation;
+                    while (featureTruncation-- > 0) {
+                        truncated = FeatureUtil.wildcardLastSegment(truncated);
+                    }
+                    checksum += ("template_" + truncated).replace('.', '_').hashCode();
+                }
+                checksum += VicareUtil.escapeUIDSegment(name + "_" + propertyName).hashCode();
+            }
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,189 @@
+package com.qubular.openhab.binding.vicare.internal.channeltype;
+
+import com.google.gson.Gson;
+import com.qubular.openhab.binding.vicare.internal.channeltype.SimpleVicareChannelTypeProvider.PersistedChannelType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openhab.core.storage.Storage;
+import org.openhab.core.storage.StorageService;
+import org.openhab.core.thing.type.AutoUpdatePolicy;
+import org.openhab.core.thing.type.ChannelType;
+import org.openhab.core.thing.type.ChannelTypeBuilder;
+import org.openhab.core.thing.type.ChannelTypeUID;
+import org.openhab.core.types.StateDescription;
+import org.openhab.core.types.StateDescriptionFragmentBuilder;
+import org.openhab.core.types.StateOption;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.qubular.openhab.binding.vicare.internal.VicareConstants.BINDING_ID;
+import static com.qubular.openhab.binding.vicare.internal.channeltype.SimpleVicareChannelTypeProvider.STORAGE_NAME;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class SimpleVicareChannelTypeProviderTest {
+    private static final ChannelTypeUID TEMPERATURE_CHANNEL_TYPE_UID = new ChannelTypeUID(BINDING_ID, "heating_dhw_temperature_main");
+    private static final ChannelTypeUID MODE_CHANNEL_TYPE_UID = new ChannelTypeUID(BINDING_ID, "heating_circuits_0_operating_modes_active");
+    private JsonStorage storage;
+    private StorageService storageService;
+
+    @BeforeEach
+    public void setUp() {
+        storage = spy(new JsonStorage());
+        storageService = mock(StorageService.class);
+        doReturn(storage).when(storageService).getStorage(eq(STORAGE_NAME), any(ClassLoader.class));
+    }
+
+    @Test
+    public void channelTypesAreRestoredFromStorage() {
+        new SimpleVicareChannelTypeProvider(storageService).addChannelType(temperatureChannelType("Hot Water Temperature"));
+        new SimpleVicareChannelTypeProvider(storageService).addChannelType(modeChannelType());
+
+        SimpleVicareChannelTypeProvider provider = new SimpleVicareChannelTypeProvider(storageService);
+
+        assertEquals(2, provider.getChannelTypes(null).size());
+        ChannelType temperature = provider.getChannelType(TEMPERATURE_CHANNEL_TYPE_UID, null);
+        assertNotNull(temperature);
+        assertEquals("Hot Water Temperature", temperature.getLabel());
+        assertEquals("Number:Temperature", temperature.getItemType());
+        assertEquals("Sets the hot water temperature", temperature.getDescription());
+        assertEquals("Temperature", temperature.getCategory());
+        assertEquals(AutoUpdatePolicy.VETO, temperature.getAutoUpdatePolicy());
+        StateDescription temperatureState = temperature.getState();
+        assertNotNull(temperatureState);
+        assertEquals(0, new BigDecimal("10").compareTo(temperatureState.getMinimum()));
+        assertEquals(0, new BigDecimal("60").compareTo(temperatureState.getMaximum()));
+        assertEquals(0, new BigDecimal("0.5").compareTo(temperatureState.getStep()));
+        assertEquals("%.1f %unit%", temperatureState.getPattern());
+        assertFalse(temperatureState.isReadOnly());
+
+        ChannelType mode = provider.getChannelType(MODE_CHANNEL_TYPE_UID, null);
+        assertNotNull(mode);
+        assertEquals("String", mode.getItemType());
+        StateDescription modeState = mode.getState();
+        assertNotNull(modeState);
+        assertTrue(modeState.isReadOnly());
+        assertEquals(Map.of("standby", "Standby", "dhwAndHeating", "Hot Water and Heating"),
+                modeState.getOptions().stream().collect(Collectors.toMap(StateOption::getValue, StateOption::getLabel)));
+    }
+
+    @Test
+    public void unchangedChannelTypeIsNotWrittenAgain() {
+        SimpleVicareChannelTypeProvider provider = new SimpleVicareChannelTypeProvider(storageService);
+        provider.addChannelType(temperatureChannelType("Hot Water Temperature"));
+        provider.addChannelType(temperatureChannelType("Hot Water Temperature"));
+        verify(storage, times(1)).put(eq(TEMPERATURE_CHANNEL_TYPE_UID.getAsString()), any());
+
+        // nor when it is generated again after a restart
+        SimpleVicareChannelTypeProvider restarted = new SimpleVicareChannelTypeProvider(storageService);
+        restarted.addChannelType(temperatureChannelType("Hot Water Temperature"));
+        verify(storage, times(1)).put(eq(TEMPERATURE_CHANNEL_TYPE_UID.getAsString()), any());
+
+        restarted.addChannelType(temperatureChannelType("DHW Temperature"));
+        verify(storage, times(2)).put(eq(TEMPERATURE_CHANNEL_TYPE_UID.getAsString()), any());
+        assertEquals("DHW Temperature",
+                new SimpleVicareChannelTypeProvider(storageService).getChannelType(TEMPERATURE_CHANNEL_TYPE_UID, null).getLabel());
+    }
+
+    @Test
+    public void unreadableChannelTypeIsDiscarded() {
+        new SimpleVicareChannelTypeProvider(storageService).addChannelType(modeChannelType());
+        PersistedChannelType unreadable = PersistedChannelType.of(temperatureChannelType("Hot Water Temperature"));
+        unreadable.autoUpdatePolicy = "SOMETIMES";
+        storage.put(TEMPERATURE_CHANNEL_TYPE_UID.getAsString(), unreadable);
+
+        SimpleVicareChannelTypeProvider provider = new SimpleVicareChannelTypeProvider(storageService);
+
+        assertNull(provider.getChannelType(TEMPERATURE_CHANNEL_TYPE_UID, null));
+        assertFalse(storage.containsKey(TEMPERATURE_CHANNEL_TYPE_UID.getAsString()));
+        assertNotNull(provider.getChannelType(MODE_CHANNEL_TYPE_UID, null));
+    }
+
+    @Test
+    public void unreferencedChannelTypesAreEvicted() {
+        SimpleVicareChannelTypeProvider provider = new SimpleVicareChannelTypeProvider(storageService);
+        provider.addChannelType(temperatureChannelType("Hot Water Temperature"));
+        provider.addChannelType(modeChannelType());
+
+        assertEquals(1, provider.evictUnreferenced(Set.of(MODE_CHANNEL_TYPE_UID)));
+
+        assertNull(provider.getChannelType(TEMPERATURE_CHANNEL_TYPE_UID, null));
+        assertNotNull(provider.getChannelType(MODE_CHANNEL_TYPE_UID, null));
+        assertFalse(storage.containsKey(TEMPERATURE_CHANNEL_TYPE_UID.getAsString()));
+        assertTrue(storage.containsKey(MODE_CHANNEL_TYPE_UID.getAsString()));
+        assertEquals(0, provider.evictUnreferenced(Set.of(MODE_CHANNEL_TYPE_UID)));
+    }
+
+    private static ChannelType temperatureChannelType(String label) {
+        return ChannelTypeBuilder.state(TEMPERATURE_CHANNEL_TYPE_UID, label, "Number:Temperature")
+                .withDescription("Sets the hot water temperature")
+                .withCategory("Temperature")
+                .withAutoUpdatePolicy(AutoUpdatePolicy.VETO)
+                .withStateDescriptionFragment(StateDescriptionFragmentBuilder.create()
+                        .withMinimum(new BigDecimal("10"))
+                        .withMaximum(new BigDecimal("60"))
+                        .withStep(new BigDecimal("0.5"))
+                        .withPattern("%.1f %unit%")
+                        .withReadOnly(false)
+                        .build())
+                .build();
+    }
+
+    private static ChannelType modeChannelType() {
+        return ChannelTypeBuilder.state(MODE_CHANNEL_TYPE_UID, "Heating Circuit 0 Operating Mode", "String")
+                .withStateDescriptionFragment(StateDescriptionFragmentBuilder.create()
+                        .withReadOnly(true)
+                        .withOptions(List.of(new StateOption("standby", "Standby"),
+                                             new StateOption("dhwAndHeating", "Hot Water and Heating")))
+                        .build())
+                .build();
+    }
+
+    /**
+     * Keeps entries as JSON, as openHAB's JSON storage does, so that what is restored is only what was serialized.
+     */
+    static class JsonStorage implements Storage<PersistedChannelType> {
+        private static final Gson GSON = new Gson();
+        private final Map<String, String> entries = new LinkedHashMap<>();
+
+        @Override
+        public PersistedChannelType put(String key, PersistedChannelType value) {
+            return deserialize(entries.put(key, GSON.toJson(value)));
+        }
+
+        @Override
+        public PersistedChannelType remove(String key) {
+            return deserialize(entries.remove(key));
+        }
+
+        @Override
+        public boolean containsKey(String key) {
+            return entries.containsKey(key);
+        }
+
+        @Override
+        public PersistedChannelType get(String key) {
+            return deserialize(entries.get(key));
+        }
+
+        @Override
+        public Collection<String> getKeys() {
+            return new ArrayList<>(entries.keySet());
+        }
+
+        @Override
+        public Collection<PersistedChannelType> getValues() {
+            return entries.values().stream()
+                    .map(JsonStorage::deserialize)
+                    .collect(Collectors.toList());
+        }
+
+        private static PersistedChannelType deserialize(String json) {
+            return json == null ? null : GSON.fromJson(json, PersistedChannelType.class);
+        }
+    }
+}
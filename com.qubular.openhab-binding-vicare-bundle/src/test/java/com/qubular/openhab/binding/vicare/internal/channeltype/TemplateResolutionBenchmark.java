@@ -0,0 +1,139 @@
+package com.qubular.openhab.binding.vicare.internal.channeltype;
+
+import com.google.gson.JsonObject;
+import com.qubular.openhab.binding.vicare.internal.AbstractBenchmark;
+import com.qubular.openhab.binding.vicare.internal.ThingTypeXmlReader;
+import com.qubular.vicare.model.Feature;
+import com.qubular.vicare.model.Value;
+import com.qubular.vicare.model.features.StatusSensorFeature;
+import com.qubular.vicare.model.values.StringValue;
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+import org.openhab.core.thing.type.ChannelType;
+import org.openhab.core.thing.type.ChannelTypeProvider;
+import org.openhab.core.thing.type.ChannelTypeRegistry;
+import org.openhab.core.thing.type.ChannelTypeUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import static com.qubular.openhab.binding.vicare.internal.VicareConstants.BINDING_ID;
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the CPU cost of resolving the thing-types.xml template of every property of every device in the fixture
+ * responses, by searching the channel type registry for each candidate template as channel building used to,
+ * against {@link ChannelTypeTemplates}.
+ */
+public class TemplateResolutionBenchmark extends AbstractBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(TemplateResolutionBenchmark.class);
+    private static final int WARMUP_ITERATIONS = 200;
+    private static final int ITERATIONS = 1000;
+
+    @Test
+    public void templateResolutionPerChannelBuild() throws IOException, XMLStreamException {
+        List<Feature> features = new ArrayList<>();
+        List<File> fixtures = fixtures();
+        for (File fixture : fixtures) {
+            features.addAll(readFeatures(fixture));
+        }
+        int properties = features.stream().mapToInt(f -> f.getProperties().size()).sum();
+        ChannelTypeRegistry channelTypeRegistry = new ChannelTypeRegistry() {
+            {
+                addChannelTypeProvider(xmlChannelTypeProvider());
+            }
+        };
+        ChannelTypeTemplates templates = new ChannelTypeTemplates(channelTypeRegistry,
+                new SimpleVicareChannelTypeProvider());
+
+        for (int i = 0; i < WARMUP_ITERATIONS; ++i) {
+            registryResolution(channelTypeRegistry, features);
+            indexedResolution(templates, features);
+        }
+
+        long start = cpuTime();
+        int found = 0;
+        for (int i = 0; i < ITERATIONS; ++i) {
+            found += registryResolution(channelTypeRegistry, features);
+        }
+        long registryNanos = (cpuTime() - start) / ITERATIONS;
+
+        start = cpuTime();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            found -= indexedResolution(templates, features);
+        }
+        long indexedNanos = (cpuTime() - start) / ITERATIONS;
+
+        assertEquals(0, found);
+        logger.info("{} fixtures, {} features, {} properties: registry search {} ns/build, indexed {} ns/build",
+                fixtures.size(), features.size(), properties, registryNanos, indexedNanos);
+    }
+
+    /**
+     * Only the feature and property names matter for template resolution, so each enabled feature is represented
+     * by a status sensor feature with the same properties.
+     */
+    private static List<Feature> readFeatures(File fixture) throws IOException {
+        List<Feature> features = new ArrayList<>();
+        for (JsonObject featureObject : readEnabledFeatures(fixture)) {
+            Map<String, Value> values = new HashMap<>();
+            featureObject.getAsJsonObject("properties").keySet()
+                    .forEach(propertyName -> values.put(propertyName, new StringValue("")));
+            features.add(new StatusSensorFeature(featureObject.get("feature").getAsString(), values, emptyList()));
+        }
+        return features;
+    }
+
+    private static ChannelTypeProvider xmlChannelTypeProvider() throws XMLStreamException {
+        ThingTypeXmlReader thingTypeXmlReader = new ThingTypeXmlReader();
+        thingTypeXmlReader.readChannelTypes(XMLInputFactory.newFactory().createXMLStreamReader(
+                TemplateResolutionBenchmark.class.getResourceAsStream("/OH-INF/thing/thing-types.xml")));
+        Map<ChannelTypeUID, ChannelType> channelTypes = thingTypeXmlReader.getChannelTypes();
+        return new ChannelTypeProvider() {
+            @Override
+            public Collection<ChannelType> getChannelTypes(@Nullable Locale locale) {
+                return channelTypes.values();
+            }
+
+            @Override
+            public @Nullable ChannelType getChannelType(ChannelTypeUID channelTypeUID, @Nullable Locale locale) {
+                return channelTypes.get(channelTypeUID);
+            }
+        };
+    }
+
+    private static int registryResolution(ChannelTypeRegistry channelTypeRegistry, List<Feature> features) {
+        int found = 0;
+        for (Feature feature : features) {
+            for (String propertyName : feature.getProperties().keySet()) {
+                int truncation = -1;
+                do {
+                    String templateId = FeatureUtil.templateId(feature, propertyName, truncation);
+                    if (channelTypeRegistry.getChannelType(new ChannelTypeUID(BINDING_ID, templateId)) != null) {
+                        ++found;
+                        break;
+                    }
+                } while (truncation++ < 1);
+            }
+        }
+        return found;
+    }
+
+    private static int indexedResolution(ChannelTypeTemplates templates, List<Feature> features) {
+        int found = 0;
+        for (Feature feature : features) {
+            for (String propertyName : feature.getProperties().keySet()) {
+                if (templates.findTemplate(feature, propertyName).isPresent()) {
+                    ++found;
+                }
+            }
+        }
+        return found;
+    }
+}
@@ -22,9 +22,11 @@ import java.util.Hashtable;
 import static com.qubular.openhab.binding.vicare.internal.CryptUtil.CONFIG_USE_LIMITED_ENCRYPTION;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
-@EnabledIfSystemProperty(named="test-limited-crypto", matches="true")
 class PersistedTokenStoreTest {
     @Mock
     private ConfigurationAdmin configurationAdmin;
@@ -46,12 +48,14 @@ class PersistedTokenStoreTest {
     }
 
     @Test
+    @EnabledIfSystemProperty(named="test-limited-crypto", matches="true")
     public void constructorSucceedsIfCryptoPolicyLimited() {
         Security.setProperty("crypto.policy", "limited");
         new PersistedTokenStore(configurationAdmin, eventAdmin);
     }
 
     @Test
+    @EnabledIfSystemProperty(named="test-limited-crypto", matches="true")
     public void storeAccessTokenFailsIfCryptoPolicyLimited() {
         Security.setProperty("crypto.policy", "limited");
         PersistedTokenStore persistedTokenStore = new PersistedTokenStore(configurationAdmin, eventAdmin);
@@ -59,6 +63,7 @@ class PersistedTokenStoreTest {
     }
 
     @Test
+    @EnabledIfSystemProperty(named="test-limited-crypto", matches="true")
     public void storeAccessTokenSucceedsIfCryptoPolicyLimitedAndUseLimitedEncryption() throws GeneralSecurityException {
         Security.setProperty("crypto.policy", "limited");
         Dictionary<String, Object> props = new Hashtable<>();
@@ -72,6 +77,7 @@ class PersistedTokenStoreTest {
     }
 
     @Test
+    @EnabledIfSystemProperty(named="test-limited-crypto", matches="true")
     public void storeRefreshTokenSucceedsIfCryptoPolicyLimitedAndUseLimitedEncryption() throws GeneralSecurityException {
         Security.setProperty("crypto.policy", "limited");
         Dictionary<String, Object> props = new Hashtable<>();
@@ -81,4 +87,18 @@ class PersistedTokenStoreTest {
         PersistedTokenStore persistedTokenStore = new PersistedTokenStore(configurationAdmin, eventAdmin);
         persistedTokenStore.storeRefreshToken("refreshtoken");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void onlyAuthorisationPostsAuthorisedEvent() throws GeneralSecurityException {
+        PersistedTokenStore persistedTokenStore = new PersistedTokenStore(configurationAdmin, eventAdmin);
+        persistedTokenStore.storeAccessToken("testtoken", Instant.now().plusSeconds(3600));
+        persistedTokenStore.storeRefreshToken("refreshtoken");
+        verify(eventAdmin).postEvent(argThat(e -> e.getTopic().equals(TokenEvent.TOPIC_NEW_ACCESS_TOKEN)));
+        verify(eventAdmin).postEvent(argThat(e -> e.getTopic().equals(TokenEvent.TOPIC_AUTHORISED)));
+
+        // routine refresh
+        persistedTokenStore.storeAccessToken("refreshedtoken", Instant.now().plusSeconds(3600));
+        verify(eventAdmin, times(2)).postEvent(argThat(e -> e.getTopic().equals(TokenEvent.TOPIC_NEW_ACCESS_TOKEN)));
+        verify(eventAdmin, times(1)).postEvent(argThat(e -> e.getTopic().equals(TokenEvent.TOPIC_AUTHORISED)));
+    }
+}
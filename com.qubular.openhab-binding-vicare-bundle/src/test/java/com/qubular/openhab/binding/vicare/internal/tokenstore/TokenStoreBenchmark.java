@@ -0,0 +1,86 @@
+package com.qubular.openhab.binding.vicare.internal.tokenstore;
+
+import com.qubular.openhab.binding.vicare.internal.AbstractBenchmark;
+import org.junit.jupiter.api.Test;
+import org.osgi.service.cm.Configuration;
+import org.osgi.service.cm.ConfigurationAdmin;
+import org.osgi.service.event.EventAdmin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.time.Instant;
+import java.util.Dictionary;
+import java.util.Hashtable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Compares the CPU cost of fetching the access token for each API request, reading and decrypting the persisted token
+ * with a newly derived key as the token store used to, against the token held in memory by the token store.
+ */
+public class TokenStoreBenchmark extends AbstractBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(TokenStoreBenchmark.class);
+    private static final int WARMUP_ITERATIONS = 1000;
+    private static final int REQUESTS = 10000;
+
+    @Test
+    public void accessTokenPerRequest() throws IOException, GeneralSecurityException {
+        Hashtable<String, Object> properties = new Hashtable<>();
+        Configuration configuration = mock(Configuration.class);
+        when(configuration.getProperties()).thenAnswer(i -> new Hashtable<>(properties));
+        doAnswer(i -> {
+            Dictionary<String, Object> updated = i.getArgument(0);
+            properties.clear();
+            updated.keys().asIterator().forEachRemaining(k -> properties.put(k, updated.get(k)));
+            return null;
+        }).when(configuration).update(any(Dictionary.class));
+        ConfigurationAdmin configurationAdmin = mock(ConfigurationAdmin.class);
+        when(configurationAdmin.getConfiguration(anyString())).thenReturn(configuration);
+        EventAdmin eventAdmin = mock(EventAdmin.class);
+
+        PersistedTokenStore tokenStore = new PersistedTokenStore(configurationAdmin, eventAdmin);
+        tokenStore.storeAccessToken("accesstoken", Instant.now().plusSeconds(3600));
+
+        for (int i = 0; i < WARMUP_ITERATIONS; ++i) {
+            persistedRequest(configurationAdmin, eventAdmin);
+            inMemoryRequest(tokenStore);
+        }
+
+        long start = cpuTime();
+        int tokens = 0;
+        for (int i = 0; i < REQUESTS; ++i) {
+            tokens += persistedRequest(configurationAdmin, eventAdmin);
+        }
+        long persistedNanos = (cpuTime() - start) / REQUESTS;
+
+        start = cpuTime();
+        for (int i = 0; i < REQUESTS; ++i) {
+            tokens -= inMemoryRequest(tokenStore);
+        }
+        long inMemoryNanos = (cpuTime() - start) / REQUESTS;
+
+        assertEquals(0, tokens);
+        logger.info("{} requests: persisted token {} ns/request, in-memory token {} ns/request",
+                REQUESTS, persistedNanos, inMemoryNanos);
+    }
+
+    /**
+     * A token store that has not loaded the token must read the configuration, derive the key and decrypt the token.
+     */
+    private static int persistedRequest(ConfigurationAdmin configurationAdmin, EventAdmin eventAdmin) throws GeneralSecurityException {
+        return new PersistedTokenStore(configurationAdmin, eventAdmin).getAccessToken()
+                .map(token -> token.token.length())
+                .orElse(0);
+    }
+
+    private static int inMemoryRequest(PersistedTokenStore tokenStore) throws GeneralSecurityException {
+        return tokenStore.getAccessToken()
+                .map(token -> token.token.length())
+                .orElse(0);
+    }
+}
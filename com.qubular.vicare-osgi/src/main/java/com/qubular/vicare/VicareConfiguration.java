@@ -35,6 +35,13 @@ public interface VicareConfiguration {
         return getResponseInjectionFile() != null;
     }
 
+    /**
+     * @return The folder in which the last feature response of each device is kept, or null not to keep them.
+     */
+    default File getFeatureSnapshotFolder() {
+        return null;
+    }
+
     default Long getDebugInjectedInstallationId() {
         return null;
     }
@@ -6,13 +6,67 @@ import com.qubular.vicare.model.Installation;
 
 import java.io.IOException;
 import java.net.URI;
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 public interface VicareService {
+    class PersistedFeatures {
+        public final Instant timestamp;
+        public final List<Feature> features;
+
+        public PersistedFeatures(Instant timestamp, List<Feature> features) {
+            this.timestamp = timestamp;
+            this.features = features;
+        }
+    }
+
     List<Installation> getInstallations() throws AuthenticationException, IOException;
 
+    /**
+     * As {@link #getInstallations()}, but without blocking the calling thread while the request is in flight.
+     */
+    CompletableFuture<List<Installation>> getInstallationsAsync();
+
     List<Feature> getFeatures(long installationId, String gatewaySerial, String deviceId) throws AuthenticationException, IOException;
 
+    /**
+     * As {@link #getFeatures(long, String, String)}, but without blocking the calling thread while the request is
+     * in flight.
+     */
+    CompletableFuture<List<Feature>> getFeaturesAsync(long installationId, String gatewaySerial, String deviceId);
+
+    /**
+     * Reads the features of a device from the last successful response to {@link #getFeatures(long, String, String)},
+     * which is persisted if {@link VicareConfiguration#getFeatureSnapshotFolder()} is configured, so that they are
+     * available straight after a restart without making a request.
+     * @return The persisted features, and when they were fetched, or empty if there are none.
+     */
+    Optional<PersistedFeatures> getPersistedFeatures(long installationId, String gatewaySerial, String deviceId);
+
+    /**
+     * Fetches a single feature of a device, which is much cheaper than fetching all of them.
+     * @return The feature, or empty if the device does not have the feature or it is not enabled.
+     */
+    Optional<Feature> getFeature(long installationId, String gatewaySerial, String deviceId, String featureName) throws AuthenticationException, IOException;
+
+    CompletableFuture<Optional<Feature>> getFeatureAsync(long installationId, String gatewaySerial, String deviceId, String featureName);
+
     void sendCommand(URI uri, Map<String, Object> params) throws AuthenticationException, IOException, CommandFailureException;
+
+    /**
+     * As {@link #sendCommand(URI, Map)}, but without blocking the calling thread while the request is in flight.
+     * @return A future that fails with the exception that sendCommand would throw.
+     */
+    CompletableFuture<Void> sendCommandAsync(URI uri, Map<String, Object> params);
+
+    /**
+     * Sets the executor that reads feature responses as they arrive, so that reading a response never blocks the
+     * HTTP client's network threads.
+     * @param executor The executor, or null to read responses on the HTTP client's executor.
+     */
+    void setResponseExecutor(Executor executor);
 }
@@ -0,0 +1,59 @@
+package com.qubular.vicare.internal;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.qubular.vicare.model.Feature;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Decodes the feature responses of a single device. The API gives each feature a timestamp of when it last changed,
+ * so a feature whose timestamp is the same as in the previous response is not read and decoded again, and the
+ * immutable feature decoded from the previous response is reused instead.
+ */
+class DeviceFeatureDecoder {
+    private record TimestampedFeature(String timestamp, Feature feature) {
+    }
+
+    private final FeatureStreamParser featureStreamParser;
+    private final FeatureDecoders featureDecoders;
+    /** The features of the previous response, by name, which are replaced once a response has been parsed */
+    private volatile Map<String, TimestampedFeature> previousFeatures = Map.of();
+
+    DeviceFeatureDecoder(FeatureStreamParser featureStreamParser, FeatureDecoders featureDecoders) {
+        this.featureStreamParser = featureStreamParser;
+        this.featureDecoders = featureDecoders;
+    }
+
+    /**
+     * @param reader The response content, this is not closed by the decoder.
+     * @return The decoded, enabled features in the order they appear in the response.
+     */
+    List<Feature> decode(Reader reader) throws IOException {
+        Map<String, TimestampedFeature> previous = previousFeatures;
+        Map<String, TimestampedFeature> current = new HashMap<>(previous.size() * 4 / 3 + 1);
+        List<Feature> features = featureStreamParser.parse(reader, featureObject -> {
+            Feature feature = featureDecoders.decode(featureObject);
+            JsonElement timestamp = featureObject.get("timestamp");
+            if (timestamp != null) {
+                current.put(featureObject.get("feature").getAsString(),
+                        new TimestampedFeature(timestamp.getAsString(), feature));
+            }
+            return feature;
+        }, (featureName, timestamp) -> {
+            TimestampedFeature decoded = previous.get(featureName);
+            if (decoded == null || !decoded.timestamp().equals(timestamp)) {
+                return null;
+            }
+            current.put(featureName, decoded);
+            return Optional.ofNullable(decoded.feature());
+        });
+        previousFeatures = current;
+        return features;
+    }
+}
@@ -0,0 +1,356 @@
+package com.qubular.vicare.internal;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.qubular.vicare.model.CommandDescriptor;
+import com.qubular.vicare.model.Feature;
+import com.qubular.vicare.model.ParamDescriptor;
+import com.qubular.vicare.model.Unit;
+import com.qubular.vicare.model.Value;
+import com.qubular.vicare.model.features.*;
+import com.qubular.vicare.model.params.EnumParamDescriptor;
+import com.qubular.vicare.model.params.NumericParamDescriptor;
+import com.qubular.vicare.model.params.StringParamDescriptor;
+import com.qubular.vicare.model.values.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static com.qubular.vicare.model.Value.*;
+import static com.qubular.vicare.model.values.StatusValue.NA;
+import static java.util.Optional.ofNullable;
+import static java.util.stream.StreamSupport.stream;
+
+/**
+ * Decodes the feature objects of API responses. Features with a value property are decoded according to the type
+ * of the value, and other features by the decoder registered for their family, which is identified by the feature
+ * name. The decoder for each feature name is remembered, since a device's features are decoded again on every poll.
+ * For the same reason the names, units and command descriptors of the decoded features are interned, so that the
+ * features of every poll and every device share one instance of each rather than each holding its own copy.
+ */
+class FeatureDecoders {
+    private static final Logger logger = LoggerFactory.getLogger(FeatureDecoders.class);
+    /** The most feature names to remember decoders for, feature names are not expected to come close to this */
+    private static final int MAX_REMEMBERED_NAMES = 10000;
+    /** The most names, units and commands to intern, beyond which they are no longer shared */
+    private static final int MAX_INTERNED = 10000;
+
+    /**
+     * Decodes a single enabled feature.
+     */
+    @FunctionalInterface
+    interface FeatureDecoder {
+        /**
+         * @return The feature, or null if the feature is not supported.
+         */
+        Feature decode(String featureName, JsonObject properties, JsonObject commands);
+    }
+
+    private record Family(Predicate<String> nameMatches, FeatureDecoder decoder) {
+    }
+
+    private final Map<String, FeatureDecoder> decodersByValueType = new HashMap<>();
+    /** Feature families, in order of precedence */
+    private final List<Family> families = new ArrayList<>();
+    private final FeatureDecoder defaultDecoder;
+    private final ConcurrentMap<String, FeatureDecoder> decodersByName = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> names = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Unit> unitsByName = new ConcurrentHashMap<>();
+    /** The descriptor of each command, by URI */
+    private final ConcurrentMap<URI, CommandDescriptor> commandsByUri = new ConcurrentHashMap<>();
+
+    FeatureDecoders() {
+        for (Unit unit : List.of(Unit.CELSIUS, Unit.KILOWATT_HOUR, Unit.LITRE, Unit.KELVIN, Unit.CUBIC_METRES_PER_HOUR,
+                Unit.HOUR, Unit.CUBIC_METRE, Unit.PERCENT, Unit.EMPTY)) {
+            unitsByName.put(unit.getName(), unit);
+        }
+        defaultDecoder = this::decodeStatusSensor;
+        decodersByValueType.put(TYPE_STRING, this::decodeTextValue);
+        decodersByValueType.put(TYPE_NUMBER, this::decodeNumericValue);
+        containing(".consumption.summary", this::decodeConsumptionSummary);
+        containing(".operating.programs.", this::decodeOperatingProgram);
+        endingWith(".heating.curve", this::decodeCurve);
+        endingWith(".production", this::decodeConsumptionTotal);
+        containing(".consumption.", this::decodeConsumptionTotal);
+        endingWith(".name", this::decodeName);
+    }
+
+    /**
+     * Registers the decoder for the family of features whose names contain the infix, taking precedence over the
+     * families registered after it.
+     */
+    private void containing(String infix, FeatureDecoder decoder) {
+        families.add(new Family(featureName -> featureName.contains(infix), decoder));
+    }
+
+    /**
+     * Registers the decoder for the family of features whose names end with the suffix, taking precedence over the
+     * families registered after it.
+     */
+    private void endingWith(String suffix, FeatureDecoder decoder) {
+        families.add(new Family(featureName -> featureName.endsWith(suffix), decoder));
+    }
+
+    /**
+     * @param featureObject The feature object from the response, with at least its isEnabled, feature, properties
+     *                      and commands members.
+     * @return The feature, or null if it is disabled or not supported.
+     */
+    Feature decode(JsonObject featureObject) {
+        if (!featureObject.get("isEnabled").getAsBoolean()) {
+            return null;
+        }
+        String featureName = intern(featureObject.get("feature").getAsString());
+        JsonObject properties = featureObject.getAsJsonObject("properties");
+        if (properties == null) {
+            return null;
+        }
+        JsonObject value = properties.getAsJsonObject("value");
+        FeatureDecoder decoder = value != null ?
+                decodersByValueType.get(value.get("type").getAsString()) :
+                decoderFor(featureName);
+        return decoder == null ? null : decoder.decode(featureName, properties, featureObject.getAsJsonObject("commands"));
+    }
+
+    private FeatureDecoder decoderFor(String featureName) {
+        FeatureDecoder decoder = decodersByName.get(featureName);
+        if (decoder == null) {
+            decoder = defaultDecoder;
+            for (Family family : families) {
+                if (family.nameMatches().test(featureName)) {
+                    decoder = family.decoder();
+                    break;
+                }
+            }
+            if (decodersByName.size() < MAX_REMEMBERED_NAMES) {
+                decodersByName.put(featureName, decoder);
+            }
+        }
+        return decoder;
+    }
+
+    /**
+     * @return The shared instance of a feature or property name.
+     */
+    private String intern(String name) {
+        return intern(names, name, name);
+    }
+
+    private Unit unit(String unitName) {
+        Unit unit = unitsByName.get(unitName);
+        return unit != null ? unit : intern(unitsByName, unitName, new Unit(unitName));
+    }
+
+    private static <T> T intern(ConcurrentMap<String, T> interned, String key, T value) {
+        if (interned.size() >= MAX_INTERNED) {
+            T existing = interned.get(key);
+            return existing != null ? existing : value;
+        }
+        T existing = interned.putIfAbsent(key, value);
+        return existing != null ? existing : value;
+    }
+
+    private Feature decodeTextValue(String featureName, JsonObject properties, JsonObject commands) {
+        String textValue = properties.getAsJsonObject("value").get("value").getAsString();
+        return new TextFeature(featureName, "value", textValue, generateCommands(commands));
+    }
+
+    private Feature decodeNumericValue(String featureName, JsonObject properties, JsonObject commands) {
+        return new NumericSensorFeature(featureName, propertyMap(properties), generateCommands(commands), "value");
+    }
+
+    private Feature decodeConsumptionSummary(String featureName, JsonObject properties, JsonObject commands) {
+        Map<String, DimensionalValue> stats = new HashMap<>();
+        for (Map.Entry<String, JsonElement> property : properties.entrySet()) {
+            if (property.getValue().isJsonObject()) {
+                JsonObject prop = property.getValue().getAsJsonObject();
+                if (TYPE_NUMBER.equals(prop.get("type").getAsString())) {
+                    stats.put(intern(property.getKey()), dimensionalValueFromUnitValue(prop));
+                }
+            }
+        }
+        return new ConsumptionSummaryFeature(featureName,
+                stats.get("currentDay"),
+                stats.get("lastSevenDays"),
+                stats.get("currentMonth"),
+                stats.get("currentYear"));
+    }
+
+    private Feature decodeOperatingProgram(String featureName, JsonObject properties, JsonObject commands) {
+        JsonObject temperature = properties.getAsJsonObject("temperature");
+        JsonObject startObject = properties.getAsJsonObject("start");
+        JsonObject endObject = properties.getAsJsonObject("end");
+        JsonObject activeObject = properties.getAsJsonObject("active");
+        if (temperature != null) {
+            Boolean activeStatus = ofNullable(activeObject).map(jo -> jo.get("value")).map(JsonElement::getAsBoolean).orElse(null);
+            DimensionalValue temperatureValue = dimensionalValueFromUnitValue(temperature);
+            return new NumericSensorFeature(featureName, "temperature", generateCommands(commands), temperatureValue, NA, activeStatus);
+        } else if (startObject != null && endObject != null) {
+            boolean activeStatus = activeObject.get("value").getAsBoolean();
+            return new DatePeriodFeature(featureName, activeStatus, dateFromYYYYMMDD(startObject), dateFromYYYYMMDD(endObject));
+        } else if (activeObject != null) {
+            return decodeStatusSensor(featureName, properties, commands);
+        }
+        return null;
+    }
+
+    private Feature decodeCurve(String featureName, JsonObject properties, JsonObject commands) {
+        JsonObject shiftObject = properties.getAsJsonObject("shift");
+        JsonObject slopeObject = properties.getAsJsonObject("slope");
+        if (shiftObject != null && slopeObject != null) {
+            DimensionalValue shift = dimensionalValueFromUnitValue(shiftObject);
+            DimensionalValue slope = dimensionalValueFromUnitValue(slopeObject);
+            return new CurveFeature(featureName, slope, shift);
+        }
+        return null;
+    }
+
+    private Feature decodeConsumptionTotal(String featureName, JsonObject properties, JsonObject commands) {
+        JsonObject unitObject = properties.getAsJsonObject("unit");
+        String defaultUnit = unitObject == null || unitObject.get("value") == null ? null :
+                unitObject.get("value").getAsString();
+        Map<String, Value> arrayProperties = new HashMap<>();
+        for (Map.Entry<String, JsonElement> entry : properties.entrySet()) {
+            JsonObject property = entry.getValue().getAsJsonObject();
+            if (TYPE_ARRAY.equals(property.get("type").getAsString())) {
+                JsonArray jsonArray = property.get("value").getAsJsonArray();
+                double[] values = new double[jsonArray.size()];
+                for (int i = 0; i < jsonArray.size(); ++i) {
+                    values[i] = jsonArray.get(i).getAsDouble();
+                }
+                JsonElement unitName = property.get("unit");
+                Unit unit = unitName != null ? unit(unitName.getAsString()) :
+                        defaultUnit != null ? unit(defaultUnit) : Unit.EMPTY;
+                arrayProperties.put(intern(entry.getKey()), new ArrayValue(unit, values));
+            }
+        }
+        return new ConsumptionTotalFeature(featureName, arrayProperties);
+    }
+
+    private Feature decodeName(String featureName, JsonObject properties, JsonObject commands) {
+        if (!properties.has("name")) {
+            return decodeStatusSensor(featureName, properties, commands);
+        }
+        JsonObject nameProp = properties.get("name").getAsJsonObject();
+        return new TextFeature(featureName, "name", nameProp.get("value").getAsString(), generateCommands(commands));
+    }
+
+    private Feature decodeStatusSensor(String featureName, JsonObject properties, JsonObject commands) {
+        return new StatusSensorFeature(featureName, propertyMap(properties), generateCommands(commands));
+    }
+
+    private Map<String, Value> propertyMap(JsonObject properties) {
+        Map<String, Value> values = new HashMap<>();
+        for (Map.Entry<String, JsonElement> property : properties.entrySet()) {
+            if (!property.getValue().isJsonObject()) {
+                continue;
+            }
+            JsonObject propObject = property.getValue().getAsJsonObject();
+            switch (propObject.get("type").getAsString()) {
+                case TYPE_STRING:
+                    String value = propObject.get("value").getAsString();
+                    values.put(intern(property.getKey()),
+                            "status".equals(property.getKey()) ? new StatusValue(value) : new StringValue(value));
+                    break;
+                case TYPE_BOOLEAN:
+                    values.put(intern(property.getKey()), BooleanValue.valueOf(propObject.get("value").getAsBoolean()));
+                    break;
+                case TYPE_NUMBER:
+                    values.put(intern(property.getKey()), dimensionalValueFromUnitValue(propObject));
+                    break;
+            }
+        }
+        return values;
+    }
+
+    private List<CommandDescriptor> generateCommands(JsonObject commands) {
+        List<CommandDescriptor> descriptors = new ArrayList<>(commands.size());
+        for (Map.Entry<String, JsonElement> command : commands.entrySet()) {
+            CommandDescriptor descriptor = commandDescriptor(command.getValue().getAsJsonObject());
+            if (descriptor != null) {
+                descriptors.add(descriptor);
+            }
+        }
+        return descriptors;
+    }
+
+    /**
+     * @return The descriptor generated for an equal command before, if there was one, otherwise a new one.
+     */
+    private CommandDescriptor commandDescriptor(JsonObject command) {
+        CommandDescriptor descriptor = generateCommand(command);
+        if (descriptor == null) {
+            return null;
+        }
+        CommandDescriptor interned = commandsByUri.get(descriptor.getUri());
+        if (descriptor.equals(interned)) {
+            return interned;
+        }
+        if (interned != null || commandsByUri.size() < MAX_INTERNED) {
+            commandsByUri.put(descriptor.getUri(), descriptor);
+        }
+        return descriptor;
+    }
+
+    private static CommandDescriptor generateCommand(JsonObject value) {
+        String name = value.get("name").getAsString();
+        boolean executable = value.get("isExecutable").getAsBoolean();
+        URI uri = URI.create(value.get("uri").getAsString());
+        List<ParamDescriptor> params = value.get("params").getAsJsonObject().entrySet().stream()
+                .map(e -> generateParam(e.getKey(), e.getValue().getAsJsonObject()))
+                .collect(Collectors.toList());
+
+        if (params.contains(null)) {
+            // Don't support the command if we don't understand the parameters.
+            return null;
+        }
+        return new CommandDescriptor(name, executable, params, uri);
+    }
+
+    private static ParamDescriptor generateParam(String name, JsonObject jsonObject) {
+        String type = jsonObject.get("type").getAsString();
+        JsonObject constraints = jsonObject.get("constraints").getAsJsonObject();
+        switch (type) {
+            case TYPE_STRING:
+                if (constraints.has("enum")) {
+                    Set<String> enumValues = stream(constraints.getAsJsonArray("enum").spliterator(), false)
+                            .map(JsonElement::getAsString)
+                            .collect(Collectors.toCollection(LinkedHashSet::new));
+                    return new EnumParamDescriptor(jsonObject.get("required").getAsBoolean(), name, enumValues);
+                } else {
+                    return new StringParamDescriptor(jsonObject.get("required").getAsBoolean(), name);
+                }
+            case TYPE_NUMBER:
+                return new NumericParamDescriptor(jsonObject.get("required").getAsBoolean(),
+                                                  name,
+                                                  ofNullable(constraints.get("min")).map(JsonElement::getAsDouble).orElse(null),
+                                                  ofNullable(constraints.get("max")).map(JsonElement::getAsDouble).orElse(null),
+                                                  ofNullable(constraints.get("stepping")).map(JsonElement::getAsDouble).orElse(null));
+        }
+        logger.trace("Skipping unsupported parameter " + name + ", type " + type);
+        return null;
+    }
+
+    private static LocalDate dateFromYYYYMMDD(JsonObject prop) {
+        JsonElement value = prop.get("value");
+        if (value != null) {
+            String valueAsString = value.getAsString();
+            return valueAsString.isEmpty() ? null : LocalDate.parse(valueAsString);
+        }
+        return null;
+    }
+
+    private DimensionalValue dimensionalValueFromUnitValue(JsonObject prop) {
+        JsonElement unit = prop.get("unit");
+        double numberValue = prop.get("value").getAsDouble();
+        return new DimensionalValue(unit == null ? Unit.EMPTY : unit(unit.getAsString()), numberValue);
+    }
+}
@@ -0,0 +1,307 @@
+package com.qubular.vicare.internal;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.qubular.vicare.model.Feature;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Parses a features response incrementally, one feature at a time, rather than building a tree for the whole document.
+ * Only the members required to decode a feature are materialised; disabled features are discarded as soon as the
+ * isEnabled flag is seen, and features that are unchanged since a previous response as soon as their name and
+ * timestamp are. The properties and commands that come before the timestamp are only buffered as tokens until then,
+ * and built into trees once it is known that the feature has changed.
+ */
+class FeatureStreamParser {
+    private static final String IS_ENABLED = "isEnabled";
+    private static final String FEATURE = "feature";
+    private static final String TIMESTAMP = "timestamp";
+    private static final Set<String> DECODED_MEMBERS = Set.of("properties", "commands");
+    private static final PreviousFeatures NO_PREVIOUS_FEATURES = (featureName, timestamp) -> null;
+
+    /**
+     * Looks up the features decoded from a previous response.
+     */
+    interface PreviousFeatures {
+        /**
+         * @return The feature decoded from a previous response if its timestamp is unchanged, which is empty if the
+         * feature is not supported, or null if the feature has to be decoded again.
+         */
+        Optional<Feature> get(String featureName, String timestamp);
+    }
+
+    private final Function<JsonObject, Feature> decoder;
+
+    /**
+     * @param decoder Decodes a single feature object, may return null if the feature is not supported.
+     */
+    FeatureStreamParser(Function<JsonObject, Feature> decoder) {
+        this.decoder = decoder;
+    }
+
+    /**
+     * @param reader The response content, this is not closed by the parser.
+     * @return The decoded, enabled features in the order they appear in the response.
+     */
+    List<Feature> parse(Reader reader) throws IOException {
+        return parse(reader, decoder, NO_PREVIOUS_FEATURES);
+    }
+
+    /**
+     * As {@link #parse(Reader)}, but decoding the features with the given decoder rather than the parser's own, and
+     * reusing the previous features that are unchanged instead of reading them.
+     */
+    List<Feature> parse(Reader reader, Function<JsonObject, Feature> decoder, PreviousFeatures previousFeatures)
+            throws IOException {
+        JsonReader jsonReader = new JsonReader(reader);
+        TokenBuffer buffer = new TokenBuffer();
+        List<Feature> features = new ArrayList<>();
+        try {
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                if ("data".equals(jsonReader.nextName()) && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+                    jsonReader.beginArray();
+                    while (jsonReader.hasNext()) {
+                        if (jsonReader.peek() != JsonToken.BEGIN_OBJECT) {
+                            jsonReader.skipValue();
+                            continue;
+                        }
+                        Feature feature = readFeature(jsonReader, decoder, previousFeatures, buffer);
+                        if (feature != null) {
+                            features.add(feature);
+                        }
+                    }
+                    jsonReader.endArray();
+                } else {
+                    jsonReader.skipValue();
+                }
+            }
+            jsonReader.endObject();
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        }
+        return features;
+    }
+
+    private static Feature readFeature(JsonReader jsonReader, Function<JsonObject, Feature> decoder,
+                                       PreviousFeatures previousFeatures, TokenBuffer buffer) throws IOException {
+        JsonObject featureObject = new JsonObject();
+        // holds the members read before it is known whether the feature has changed
+        buffer.clear();
+        boolean changed = false;
+        Optional<Feature> unchanged = null;
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            String name = jsonReader.nextName();
+            if (featureObject != null && IS_ENABLED.equals(name)) {
+                JsonElement isEnabled = JsonParser.parseReader(jsonReader);
+                if (isEnabled.getAsBoolean()) {
+                    featureObject.add(IS_ENABLED, isEnabled);
+                } else {
+                    // disabled, skip everything else
+                    featureObject = null;
+                }
+            } else if (featureObject != null && unchanged == null && (FEATURE.equals(name) || TIMESTAMP.equals(name))) {
+                featureObject.add(name, JsonParser.parseReader(jsonReader));
+                JsonElement featureName = featureObject.get(FEATURE);
+                JsonElement timestamp = featureObject.get(TIMESTAMP);
+                if (featureName != null && timestamp != null) {
+                    unchanged = previousFeatures.get(featureName.getAsString(), timestamp.getAsString());
+                    changed = unchanged == null;
+                }
+            } else if (featureObject != null && unchanged == null && DECODED_MEMBERS.contains(name)) {
+                if (changed) {
+                    featureObject.add(name, JsonParser.parseReader(jsonReader));
+                } else {
+                    buffer.add(JsonToken.NAME, name);
+                    buffer.read(jsonReader);
+                }
+            } else {
+                jsonReader.skipValue();
+            }
+        }
+        jsonReader.endObject();
+        if (featureObject == null) {
+            return null;
+        } else if (unchanged != null) {
+            return unchanged.orElse(null);
+        }
+        buffer.addMembersTo(featureObject);
+        return decoder.apply(featureObject);
+    }
+
+    /**
+     * The tokens of the members of a feature that are read before it is known whether it has changed, which are only
+     * built into a tree if it has. The buffer is reused from one feature to the next.
+     */
+    private static class TokenBuffer {
+        private JsonToken[] tokens = new JsonToken[256];
+        private String[] values = new String[256];
+        private int size;
+        private int next;
+
+        void clear() {
+            Arrays.fill(values, 0, size, null);
+            size = 0;
+        }
+
+        void add(JsonToken token, String value) {
+            if (size == tokens.length) {
+                tokens = Arrays.copyOf(tokens, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            tokens[size] = token;
+            values[size++] = value;
+        }
+
+        /**
+         * Buffers the next value of the reader.
+         */
+        void read(JsonReader in) throws IOException {
+            int depth = 0;
+            do {
+                JsonToken token = in.peek();
+                switch (token) {
+                    case BEGIN_ARRAY:
+                        in.beginArray();
+                        add(token, null);
+                        ++depth;
+                        break;
+                    case END_ARRAY:
+                        in.endArray();
+                        add(token, null);
+                        --depth;
+                        break;
+                    case BEGIN_OBJECT:
+                        in.beginObject();
+                        add(token, null);
+                        ++depth;
+                        break;
+                    case END_OBJECT:
+                        in.endObject();
+                        add(token, null);
+                        --depth;
+                        break;
+                    case NAME:
+                        add(token, in.nextName());
+                        break;
+                    case STRING:
+                    case NUMBER:
+                        add(token, in.nextString());
+                        break;
+                    case BOOLEAN:
+                        add(token, in.nextBoolean() ? "true" : "false");
+                        break;
+                    case NULL:
+                        in.nextNull();
+                        add(token, null);
+                        break;
+                    default:
+                        throw new IllegalStateException("Unexpected " + token + " at " + in.getPath());
+                }
+            } while (depth > 0);
+        }
+
+        /**
+         * Adds the buffered members to the object.
+         */
+        void addMembersTo(JsonObject object) {
+            next = 0;
+            while (next < size) {
+                String name = values[next++];
+                object.add(name, nextElement());
+            }
+        }
+
+        private JsonElement nextElement() {
+            JsonToken token = tokens[next];
+            String value = values[next++];
+            switch (token) {
+                case BEGIN_ARRAY:
+                    JsonArray array = new JsonArray();
+                    while (tokens[next] != JsonToken.END_ARRAY) {
+                        array.add(nextElement());
+                    }
+                    ++next;
+                    return array;
+                case BEGIN_OBJECT:
+                    JsonObject object = new JsonObject();
+                    while (tokens[next] != JsonToken.END_OBJECT) {
+                        String name = values[next++];
+                        object.add(name, nextElement());
+                    }
+                    ++next;
+                    return object;
+                case STRING:
+                    return new JsonPrimitive(value);
+                case NUMBER:
+                    return new JsonPrimitive(new LiteralNumber(value));
+                case BOOLEAN:
+                    return new JsonPrimitive(Boolean.valueOf(value));
+                default:
+                    return JsonNull.INSTANCE;
+            }
+        }
+    }
+
+    /**
+     * A number as it was written in the response, parsed only when its value is asked for, as Gson does for the
+     * numbers in the trees it parses.
+     */
+    private static class LiteralNumber extends Number {
+        private final String literal;
+
+        LiteralNumber(String literal) {
+            this.literal = literal;
+        }
+
+        @Override
+        public int intValue() {
+            try {
+                return Integer.parseInt(literal);
+            } catch (NumberFormatException e) {
+                return (int) longValue();
+            }
+        }
+
+        @Override
+        public long longValue() {
+            try {
+                return Long.parseLong(literal);
+            } catch (NumberFormatException e) {
+                return new BigDecimal(literal).longValue();
+            }
+        }
+
+        @Override
+        public float floatValue() {
+            return Float.parseFloat(literal);
+        }
+
+        @Override
+        public double doubleValue() {
+            return Double.parseDouble(literal);
+        }
+
+        @Override
+        public String toString() {
+            return literal;
+        }
+    }
+}
@@ -1,24 +1,19 @@
 package com.qubular.vicare.internal;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
 import com.qubular.vicare.*;
-import com.qubular.vicare.internal.oauth.AccessGrantResponse;
+import com.qubular.vicare.internal.oauth.AccessTokenManager;
 import com.qubular.vicare.internal.servlet.VicareServlet;
 import com.qubular.vicare.model.*;
-import com.qubular.vicare.model.features.*;
-import com.qubular.vicare.model.params.EnumParamDescriptor;
-import com.qubular.vicare.model.ParamDescriptor;
-import com.qubular.vicare.model.params.NumericParamDescriptor;
-import com.qubular.vicare.model.params.StringParamDescriptor;
-import com.qubular.vicare.model.values.*;
-import org.eclipse.jetty.client.HttpClient;
-import org.eclipse.jetty.client.api.ContentResponse;
 import org.eclipse.jetty.client.api.Request;
-import org.eclipse.jetty.client.util.FormContentProvider;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.client.util.BufferingResponseListener;
+import org.eclipse.jetty.client.util.InputStreamResponseListener;
 import org.eclipse.jetty.client.util.StringContentProvider;
 import org.eclipse.jetty.http.HttpHeader;
 import org.eclipse.jetty.http.HttpMethod;
-import org.eclipse.jetty.util.Fields;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
@@ -29,29 +24,43 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.servlet.ServletException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
 import java.lang.reflect.Type;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
-import java.security.GeneralSecurityException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.time.Instant;
-import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
-import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
-import static com.qubular.vicare.model.values.StatusValue.*;
 import static java.lang.String.format;
 import static java.util.Optional.*;
-import static java.util.stream.Collectors.toMap;
-import static java.util.stream.StreamSupport.stream;
+import static javax.servlet.http.HttpServletResponse.SC_NOT_FOUND;
 import static javax.servlet.http.HttpServletResponse.SC_OK;
 
 @Component(configurationPid = "vicare.bridge")
@@ -63,8 +72,43 @@ public class VicareServiceImpl implements VicareService {
     private final TokenStore tokenStore;
     private final VicareConfiguration config;
     private final VicareServlet vicareServlet;
+    private final AccessTokenManager accessTokenManager;
 
     private static final String EMPTY_RESPONSE = "{ \"data\": [] }";
+    /** Responses larger than this are abandoned rather than buffered */
+    private static final int MAX_RESPONSE_BYTES = 16 * 1024 * 1024;
+    /** How often an unchanged feature response is persisted again, so that its timestamp stays roughly current */
+    private static final Duration SNAPSHOT_REWRITE_INTERVAL = Duration.ofHours(1);
+    /** The most devices whose previous features are kept for reuse, so that removed devices are forgotten */
+    private static final int MAX_DEVICE_FEATURE_DECODERS = 64;
+    private static final FeatureDecoders FEATURE_DECODERS = new FeatureDecoders();
+    private static final Gson API_GSON = new GsonBuilder()
+            .setFieldNamingPolicy(FieldNamingPolicy.IDENTITY)
+            .registerTypeAdapter(Instant.class, new InstantDeserializer())
+            .create();
+    private static final TypeAdapter<InstallationsResponse> INSTALLATIONS_RESPONSE_ADAPTER =
+            API_GSON.getAdapter(InstallationsResponse.class);
+    private static final TypeAdapter<CommandResponse> COMMAND_RESPONSE_ADAPTER =
+            API_GSON.getAdapter(CommandResponse.class);
+    private static final TypeAdapter<VicareError> VICARE_ERROR_ADAPTER = API_GSON.getAdapter(VicareError.class);
+
+    private final FeatureStreamParser featureStreamParser =
+            new FeatureStreamParser(FEATURE_DECODERS::decode);
+    /** The decoders of the devices whose features have been fetched most recently, by device */
+    private final Map<String, DeviceFeatureDecoder> deviceFeatureDecoders =
+            Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, DeviceFeatureDecoder> eldest) {
+                    return size() > MAX_DEVICE_FEATURE_DECODERS;
+                }
+            });
+    /** Reads feature responses as they arrive and persists them, or null to use the HTTP client's executor */
+    private volatile Executor responseExecutor;
+    /** The checksum of the content of each snapshot file written by this service, and when it was written */
+    private final Map<File, PersistedSnapshot> persistedSnapshots = new ConcurrentHashMap<>();
+
+    private record PersistedSnapshot(long checksum, Instant written) {
+    }
 
     @Activate
     public VicareServiceImpl(
@@ -77,6 +121,7 @@ public class VicareServiceImpl implements VicareService {
         this.httpClientProvider = httpClientProvider;
         this.tokenStore = tokenStore;
         this.config = configuration;
+        this.accessTokenManager = new AccessTokenManager(tokenStore, httpClientProvider, configuration);
         logger.info("Activating Viessmann API Service");
         try {
             vicareServlet = new VicareServlet(this, challengeStore, tokenStore, httpClientProvider, config);
@@ -93,12 +138,18 @@ public class VicareServiceImpl implements VicareService {
         httpService.unregister(VicareServlet.CONTEXT_PATH);
     }
 
-    private static class InstallationsResponse {
-        public List<Installation> data;
+    @Override
+    public void setResponseExecutor(Executor executor) {
+        this.responseExecutor = executor;
+    }
+
+    private Executor responseExecutor() {
+        Executor executor = responseExecutor;
+        return executor != null ? executor : httpClientProvider.getHttpClient().getExecutor();
     }
 
-    private static class FeatureResponse {
-        public List<Feature> data;
+    private static class InstallationsResponse {
+        public List<Installation> data;
     }
 
     private static class CommandResponse {
@@ -113,191 +164,434 @@ public class VicareServiceImpl implements VicareService {
 
     @Override
     public List<Installation> getInstallations() throws AuthenticationException, IOException {
+        return join(getInstallationsAsync());
+    }
+
+    @Override
+    public CompletableFuture<List<Installation>> getInstallationsAsync() {
         logger.trace("Fetching installations.");
-        TokenStore.AccessToken accessToken = getValidAccessToken()
-                .orElseThrow(()-> new AuthenticationException("No access token for Viessmann API"));
+        URI endpoint = URI.create(config.getIOTServerURI()).resolve("v1/equipment/installations?includeGateways=true");
+        logger.debug("Querying {}", endpoint);
+        return accessTokenManager.getValidAccessTokenAsync()
+                .thenCompose(accessToken -> send(httpClientProvider.getHttpClient()
+                        .newRequest(endpoint)
+                        .header(HttpHeader.AUTHORIZATION, "Bearer " + accessToken.token)
+                        .method(HttpMethod.GET), "Unable to fetch installations."))
+                .thenApply(response -> {
+                    if (response.status() == SC_OK) {
+                        maybeCaptureResponse(response.contentAsString(), "installationsResponseCapture.json");
+                        InstallationsResponse installations = fromJson(INSTALLATIONS_RESPONSE_ADAPTER, response.contentAsString());
+                        maybeInjectInstallations(installations);
+                        return installations.data;
+                    } else {
+                        throw new CompletionException(
+                                new IOException("Unable to fetch installations, server returned " + response.status()));
+                    }
+                });
+    }
 
-        try {
-            URI endpoint = URI.create(config.getIOTServerURI()).resolve("v1/equipment/installations?includeGateways=true");
-            logger.debug("Querying {}", endpoint);
-            HttpClient httpClient = httpClientProvider.getHttpClient();
-            ContentResponse iotApiResponse = httpClient
-                    .newRequest(endpoint)
-                    .header(HttpHeader.AUTHORIZATION, "Bearer " + accessToken.token)
-                    .method(HttpMethod.GET)
-                    .send();
-            if (iotApiResponse.getStatus() == SC_OK) {
-                maybeCaptureResponse(iotApiResponse.getContentAsString(), "installationsResponseCapture.json");
-                InstallationsResponse installations = apiGson().fromJson(iotApiResponse.getContentAsString(), InstallationsResponse.class);
-                maybeInjectInstallations(installations);
-                return installations.data;
-            } else {
-                throw new IOException("Unable to fetch installations, server returned " + iotApiResponse.getStatus());
-            }
-        } catch (InterruptedException | ExecutionException | TimeoutException e) {
-            throw new IOException("Unable to fetch installations.", e);
+    /**
+     * The status and content of a response that has been received in full.
+     */
+    private record BufferedResponse(int status, byte[] content) {
+        String contentAsString() {
+            return new String(content, StandardCharsets.UTF_8);
         }
     }
 
-    private Gson apiGson() {
-        return new GsonBuilder()
-                .setFieldNamingPolicy(FieldNamingPolicy.IDENTITY)
-                .registerTypeAdapter(Instant.class, new InstantDeserializer())
-                .registerTypeAdapter(Feature.class, new FeatureDeserializer())
-                .create();
+    /**
+     * Sends a request without blocking the calling thread, buffering up to {@link #MAX_RESPONSE_BYTES} of content.
+     * @param failureMessage The message of the IOException if the request fails or times out.
+     */
+    private static CompletableFuture<BufferedResponse> send(Request request, String failureMessage) {
+        CompletableFuture<BufferedResponse> response = new CompletableFuture<>();
+        request.send(new BufferingResponseListener(MAX_RESPONSE_BYTES) {
+            @Override
+            public void onComplete(Result result) {
+                if (result.isFailed()) {
+                    logger.warn(failureMessage, result.getFailure());
+                    response.completeExceptionally(new IOException(failureMessage, result.getFailure()));
+                } else {
+                    response.complete(new BufferedResponse(result.getResponse().getStatus(), getContent()));
+                }
+            }
+        });
+        return response;
     }
 
-    private Optional<TokenStore.AccessToken> getValidAccessToken() throws AuthenticationException {
-        try {
-            Optional<TokenStore.AccessToken> accessToken = tokenStore.getAccessToken();
-            if (!accessToken.isPresent() ||
-                    accessToken.get().expiry.isBefore(Instant.now().plusSeconds(60))) {
-                String refreshToken = tokenStore.getRefreshToken().orElse(null);
-                if (refreshToken == null) {
-                    throw new AuthenticationException(
-                            "Unable to authenticate: No valid access token and no refresh token.");
-                } else {
-                    logger.trace("Refreshing access token.");
-                    Fields fields = new Fields();
-                    fields.put("grant_type", "refresh_token");
-                    fields.put("client_id", config.getClientId());
-                    fields.put("refresh_token", refreshToken);
-                    try {
-                        ContentResponse response = httpClientProvider.getHttpClient()
-                                .POST(config.getAccessServerURI())
-                                .content(new FormContentProvider(fields))
-                                .accept("application/json")
-                                .send();
-                        if (response.getStatus() == 200) {
-                            Gson gson = new GsonBuilder().setFieldNamingPolicy(
-                                    FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES).create();
-                            AccessGrantResponse accessGrantResponse = gson.fromJson(response.getContentAsString(),
-                                                                                    AccessGrantResponse.class);
-                            return of(tokenStore.storeAccessToken(accessGrantResponse.accessToken,
-                                                                  Instant.now().plusSeconds(
-                                                                          accessGrantResponse.expiresIn)));
-                        } else {
-                            logger.warn("Unable to refresh, access server sent {}", response.getStatus());
-                            throw new AuthenticationException("Unable to refresh access token");
+    /**
+     * Reads the content of a response as it arrives.
+     */
+    @FunctionalInterface
+    private interface ResponseReader<T> {
+        /**
+         * @param content The response content, which is closed once this returns.
+         */
+        T read(int status, InputStream content) throws IOException;
+    }
+
+    /**
+     * Sends a request without blocking the calling thread, and reads the response content as it arrives on the
+     * response executor rather than buffering it, since reading blocks waiting for the content.
+     * @param failureMessage The message of the IOException if the request fails or times out.
+     */
+    private <T> CompletableFuture<T> stream(Request request, String failureMessage, ResponseReader<T> reader) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        request.send(new InputStreamResponseListener() {
+            @Override
+            public void onHeaders(Response response) {
+                super.onHeaders(response);
+                try {
+                    responseExecutor().execute(() -> {
+                        try (InputStream content = getInputStream()) {
+                            result.complete(reader.read(response.getStatus(), content));
+                        } catch (IOException | RuntimeException e) {
+                            result.completeExceptionally(e);
                         }
-                    } catch (InterruptedException | TimeoutException | ExecutionException e) {
-                        throw new AuthenticationException("Unable to refresh access token", e);
-                    }
+                    });
+                } catch (RejectedExecutionException e) {
+                    response.abort(e);
                 }
             }
-            return accessToken;
-        } catch (GeneralSecurityException e) {
-            String msg = format("Unable to obtain access token: %s", e.getMessage());
-            logger.warn(msg, e);
-            throw new AuthenticationException(msg, e);
+
+            @Override
+            public void onComplete(Result r) {
+                super.onComplete(r);
+                if (r.isFailed() && !result.isDone()) {
+                    logger.warn(failureMessage, r.getFailure());
+                    result.completeExceptionally(new IOException(failureMessage, r.getFailure()));
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Copies the bytes read from a stream to another stream.
+     */
+    private static class CopyingInputStream extends FilterInputStream {
+        private final OutputStream copy;
+
+        CopyingInputStream(InputStream in, OutputStream copy) {
+            super(in);
+            this.copy = copy;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                copy.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = super.read(b, off, len);
+            if (count > 0) {
+                copy.write(b, off, count);
+            }
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return read(new byte[(int) Math.min(n, 8192)]);
+        }
+    }
+
+    /**
+     * Waits for an asynchronous request, rethrowing the exception it failed with.
+     */
+    private static <T> T join(CompletableFuture<T> future) throws AuthenticationException, IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for IoT API", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof AuthenticationException ae) {
+                throw ae;
+            } else if (cause instanceof IOException ioe) {
+                throw ioe;
+            } else if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static <T> T fromJson(TypeAdapter<T> typeAdapter, String json) throws JsonParseException {
+        try {
+            JsonReader jsonReader = new JsonReader(new StringReader(json));
+            jsonReader.setLenient(true);
+            return typeAdapter.read(jsonReader);
+        } catch (IOException | IllegalStateException e) {
+            throw new JsonSyntaxException(e);
         }
     }
 
     @Override
     public List<Feature> getFeatures(long installationId, String gatewaySerial, String deviceId) throws AuthenticationException, IOException {
+        return join(getFeaturesAsync(installationId, gatewaySerial, deviceId));
+    }
+
+    @Override
+    public CompletableFuture<List<Feature>> getFeaturesAsync(long installationId, String gatewaySerial, String deviceId) {
         logger.trace("Fetching features for {}/{}", gatewaySerial, deviceId);
-        TokenStore.AccessToken accessToken = getValidAccessToken()
-                .orElseThrow(()-> new AuthenticationException("No access token for Viessmann API"));
+        String injectedResponse = maybeInjectFeatureResponse(installationId, gatewaySerial);
+        if (injectedResponse != null) {
+            try {
+                return CompletableFuture.completedFuture(extractFeatures(new StringReader(injectedResponse)));
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
 
         URI endpoint = URI.create(config.getIOTServerURI())
                 .resolve(format("v2/features/installations/%s/gateways/%s/devices/%s/features", installationId, gatewaySerial, deviceId));
 
+        return accessTokenManager.getValidAccessTokenAsync()
+                .thenCompose(accessToken -> stream(httpClientProvider.getHttpClient()
+                        .newRequest(endpoint)
+                        .timeout(config.getRequestTimeoutSecs(), TimeUnit.SECONDS)
+                        .header(HttpHeader.AUTHORIZATION, "Bearer " + accessToken.token)
+                        .method(HttpMethod.GET), "Unable to request features from IoT API",
+                        (status, content) -> readFeatures(installationId, gatewaySerial, deviceId, status, content)));
+    }
+
+    /**
+     * Decodes the features as the response arrives, keeping a compressed copy of it to persist.
+     */
+    private List<Feature> readFeatures(long installationId, String gatewaySerial, String deviceId, int status,
+                                       InputStream content) throws IOException {
+        if (config.isResponseCaptureEnabled()) {
+            byte[] responseContent = content.readAllBytes();
+            maybeCaptureResponse(new String(responseContent, StandardCharsets.UTF_8), "responseCapture.json");
+            content = new ByteArrayInputStream(responseContent);
+        }
+        if (status != SC_OK) {
+            throw featureRequestFailed(status, new String(content.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        File snapshotFile = getFeatureSnapshotFile(installationId, gatewaySerial, deviceId);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        List<Feature> features;
+        try (OutputStream copy = snapshotFile == null ? OutputStream.nullOutputStream() : new GZIPOutputStream(compressed);
+             InputStream copyingContent = new CopyingInputStream(content, copy)) {
+            features = getDeviceFeatureDecoder(installationId, gatewaySerial, deviceId)
+                    .decode(new InputStreamReader(copyingContent, StandardCharsets.UTF_8));
+            // the parser stops at the end of the features, but the whole response is persisted
+            copyingContent.transferTo(OutputStream.nullOutputStream());
+        }
+        if (snapshotFile != null) {
+            maybePersistFeatureResponse(snapshotFile, compressed.toByteArray());
+        }
+        return features;
+    }
+
+    @Override
+    public Optional<PersistedFeatures> getPersistedFeatures(long installationId, String gatewaySerial, String deviceId) {
+        File snapshotFile = getFeatureSnapshotFile(installationId, gatewaySerial, deviceId);
+        if (snapshotFile == null || !snapshotFile.isFile()) {
+            return empty();
+        }
+        try (Reader reader = new InputStreamReader(new GZIPInputStream(new FileInputStream(snapshotFile)),
+                StandardCharsets.UTF_8)) {
+            Instant timestamp = Instant.ofEpochMilli(snapshotFile.lastModified());
+            return Optional.of(new PersistedFeatures(timestamp,
+                    getDeviceFeatureDecoder(installationId, gatewaySerial, deviceId).decode(reader)));
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Unable to read feature snapshot {}: {}", snapshotFile, e.getMessage());
+            return empty();
+        }
+    }
+
+    /**
+     * Keeps the compressed feature response if it has changed since it was last written, or was last written longer
+     * ago than the rewrite interval.
+     */
+    private void maybePersistFeatureResponse(File snapshotFile, byte[] compressedContent) {
+        CRC32 crc = new CRC32();
+        crc.update(compressedContent);
+        Instant now = Instant.now();
+        PersistedSnapshot previous = persistedSnapshots.get(snapshotFile);
+        if (previous != null && previous.checksum() == crc.getValue() &&
+                now.isBefore(previous.written().plus(SNAPSHOT_REWRITE_INTERVAL)) && snapshotFile.isFile()) {
+            logger.trace("Feature snapshot {} is unchanged", snapshotFile);
+            return;
+        }
+        if (persistFeatureResponse(snapshotFile, compressedContent)) {
+            persistedSnapshots.put(snapshotFile, new PersistedSnapshot(crc.getValue(), now));
+        }
+    }
+
+    /**
+     * Keeps the compressed feature response, replacing the previous one atomically so that a crash never leaves
+     * a partial response behind.
+     * @return true if the response was written.
+     */
+    private boolean persistFeatureResponse(File snapshotFile, byte[] compressedContent) {
         try {
-            String responseContent = maybeInjectFeatureResponse(installationId, gatewaySerial);
-            if (responseContent == null) {
-                ContentResponse contentResponse = httpClientProvider.getHttpClient()
+            Files.createDirectories(snapshotFile.getParentFile().toPath());
+            Path tempFile = Files.createTempFile(snapshotFile.getParentFile().toPath(), snapshotFile.getName(), ".tmp");
+            try {
+                Files.write(tempFile, compressedContent);
+                Files.move(tempFile, snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            return true;
+        } catch (IOException e) {
+            logger.warn("Unable to write feature snapshot {}: {}", snapshotFile, e.getMessage());
+            return false;
+        }
+    }
+
+    private File getFeatureSnapshotFile(long installationId, String gatewaySerial, String deviceId) {
+        File snapshotFolder = config.getFeatureSnapshotFolder();
+        if (snapshotFolder == null) {
+            return null;
+        }
+        return new File(snapshotFolder, format("features_%d_%s_%s.json.gz", installationId,
+                gatewaySerial.replaceAll("\\W", "_"), deviceId.replaceAll("\\W", "_")));
+    }
+
+    @Override
+    public Optional<Feature> getFeature(long installationId, String gatewaySerial, String deviceId, String featureName) throws AuthenticationException, IOException {
+        return join(getFeatureAsync(installationId, gatewaySerial, deviceId, featureName));
+    }
+
+    @Override
+    public CompletableFuture<Optional<Feature>> getFeatureAsync(long installationId, String gatewaySerial, String deviceId, String featureName) {
+        logger.trace("Fetching feature {} for {}/{}", featureName, gatewaySerial, deviceId);
+        String injectedResponse = maybeInjectFeatureResponse(installationId, gatewaySerial);
+        if (injectedResponse != null) {
+            try {
+                return CompletableFuture.completedFuture(extractFeatures(new StringReader(injectedResponse)).stream()
+                        .filter(f -> f.getName().equals(featureName))
+                        .findFirst());
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        URI endpoint = URI.create(config.getIOTServerURI())
+                .resolve(format("v2/features/installations/%s/gateways/%s/devices/%s/features/%s", installationId, gatewaySerial, deviceId, featureName));
+
+        return accessTokenManager.getValidAccessTokenAsync()
+                .thenCompose(accessToken -> send(httpClientProvider.getHttpClient()
                         .newRequest(endpoint)
                         .timeout(config.getRequestTimeoutSecs(), TimeUnit.SECONDS)
                         .header(HttpHeader.AUTHORIZATION, "Bearer " + accessToken.token)
-                        .method(HttpMethod.GET)
-                        .send();
-                responseContent = contentResponse.getContentAsString();
-                maybeCaptureResponse(responseContent, "responseCapture.json");
-                if (contentResponse.getStatus() == SC_OK) {
-                    return extractFeatures(responseContent);
-                } else {
-                    String msg = "";
+                        .method(HttpMethod.GET), "Unable to request feature from IoT API"))
+                .thenApply(response -> {
                     try {
-                        VicareError errorResponse = apiGson().fromJson(responseContent, VicareError.class);
-                        if (errorResponse != null) {
-                            msg = format("Unable to request features from IoT API, server returned %s, %s: %s",
-                                                contentResponse.getStatus(),
-                                                errorResponse.getMessage(),
-                                                errorResponse.getErrorType());
-                            if (contentResponse.getStatus() == RATE_LIMIT_EXCEEDED && errorResponse.getExtendedPayload() != null) {
-                                logger.warn("Rate limit expires at {}", Instant.ofEpochMilli(errorResponse.getExtendedPayload().getLimitReset()));
-                            }
-                            logger.warn(msg);
-                            throw new VicareServiceException(errorResponse);
+                        if (response.status() == SC_OK) {
+                            JsonObject data = JsonParser.parseString(response.contentAsString())
+                                    .getAsJsonObject()
+                                    .getAsJsonObject("data");
+                            return data == null ? Optional.<Feature>empty() :
+                                    ofNullable(FEATURE_DECODERS.decode(data));
+                        } else if (response.status() == SC_NOT_FOUND) {
+                            return Optional.<Feature>empty();
+                        } else {
+                            throw featureRequestFailed(response.status(), response.contentAsString());
                         }
-                    } catch (JsonSyntaxException e) {
-                        // never mind
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    } catch (JsonParseException | IllegalStateException e) {
+                        throw new CompletionException(new IOException("Unable to parse feature from IoT API", e));
                     }
-                    throw new IOException("Unable to request features from IoT API, server returned " + contentResponse.getStatus());
+                });
+    }
+
+    private IOException featureRequestFailed(int status, String responseContent) throws VicareServiceException {
+        try {
+            VicareError errorResponse = fromJson(VICARE_ERROR_ADAPTER, responseContent);
+            if (errorResponse != null) {
+                String msg = format("Unable to request features from IoT API, server returned %s, %s: %s",
+                                    status,
+                                    errorResponse.getMessage(),
+                                    errorResponse.getErrorType());
+                if (status == RATE_LIMIT_EXCEEDED && errorResponse.getExtendedPayload() != null) {
+                    logger.warn("Rate limit expires at {}", Instant.ofEpochMilli(errorResponse.getExtendedPayload().getLimitReset()));
                 }
-            } else {
-                return extractFeatures(responseContent);
+                logger.warn(msg);
+                throw new VicareServiceException(errorResponse);
             }
-
-        } catch (InterruptedException | TimeoutException | ExecutionException e) {
-            logger.warn("Unable to request features from IoT API", e);
-            throw new IOException("Unable to request features from IoT API", e);
+        } catch (JsonSyntaxException e) {
+            // never mind
         }
+        return new IOException("Unable to request features from IoT API, server returned " + status);
     }
 
     @Override
     public void sendCommand(URI uri, Map<String, Object> params) throws AuthenticationException, IOException, CommandFailureException {
-        logger.trace("Sending command {}, params {}", uri, params);
-        TokenStore.AccessToken accessToken = getValidAccessToken()
-                .orElseThrow(()-> new AuthenticationException("No access token for Viessmann API"));
-
         try {
-            Request request = httpClientProvider.getHttpClient()
-                    .newRequest(uri)
-                    .header(HttpHeader.AUTHORIZATION, "Bearer " + accessToken.token)
-                    .header(HttpHeader.CONTENT_TYPE, "application/json")
-                    .accept("application/json")
-                    .method(HttpMethod.POST);
-            JsonObject body = new JsonObject();
-            params.forEach((name, value) -> {
-                if (value instanceof String) {
-                    body.addProperty(name, (String) value);
-                } else if (value instanceof Number) {
-                    body.addProperty(name, (Number) value);
-                }
-            });
-            ContentResponse contentResponse = request.content(new StringContentProvider(apiGson().toJson(body))).send();
-            if (contentResponse.getStatus() == SC_OK) {
-                CommandResponse commandResponse = apiGson().fromJson(contentResponse.getContentAsString(), CommandResponse.class);
-                if (!commandResponse.data.success) {
-                    throw new CommandFailureException(commandResponse.data.message, commandResponse.data.reason);
-                }
-            } else {
-                try {
-                    VicareError errorResponse = apiGson().fromJson(contentResponse.getContentAsString(), VicareError.class);
-                    String msg = format("Failed to send command, server returned %d, %s - %s", contentResponse.getStatus(), errorResponse.getErrorType(), errorResponse.getMessage());
-                    logger.warn(msg);
-                    if (errorResponse.getExtendedPayload() != null) {
-                        msg += format("Extended Payload: {}", errorResponse.getExtendedPayload());
-                    }
-                    throw new IOException(msg);
-                } catch (Exception e) {
-                    // never mind
-                }
-                throw new IOException("Unable to request features from IoT API, server returned " + contentResponse.getStatus());
+            join(sendCommandAsync(uri, params));
+        } catch (IOException e) {
+            // join wraps the failures that are not IOExceptions
+            if (e.getCause() instanceof CommandFailureException cfe) {
+                throw cfe;
             }
-
-        } catch (InterruptedException | TimeoutException | ExecutionException e) {
-            logger.warn("Unable to request features from IoT API", e);
-            throw new IOException("Unable to request features from IoT API", e);
+            throw e;
         }
     }
 
-    private List<Feature> extractFeatures(String responseContent) {
-                List<Feature> data = apiGson().fromJson(responseContent, FeatureResponse.class).data;
-                return data.stream()
-                        .filter(Objects::nonNull)
-                        .collect(Collectors.toList());
+    @Override
+    public CompletableFuture<Void> sendCommandAsync(URI uri, Map<String, Object> params) {
+        logger.trace("Sending command {}, params {}", uri, params);
+        JsonObject body = new JsonObject();
+        params.forEach((name, value) -> {
+            if (value instanceof String) {
+                body.addProperty(name, (String) value);
+            } else if (value instanceof Number) {
+                body.addProperty(name, (Number) value);
+            }
+        });
+        return accessTokenManager.getValidAccessTokenAsync()
+                .thenCompose(accessToken -> send(httpClientProvider.getHttpClient()
+                        .newRequest(uri)
+                        .header(HttpHeader.AUTHORIZATION, "Bearer " + accessToken.token)
+                        .header(HttpHeader.CONTENT_TYPE, "application/json")
+                        .accept("application/json")
+                        .method(HttpMethod.POST)
+                        .content(new StringContentProvider(API_GSON.toJson(body))), "Unable to send command to IoT API"))
+                .thenCompose(response -> {
+                    if (response.status() == SC_OK) {
+                        CommandResponse commandResponse = fromJson(COMMAND_RESPONSE_ADAPTER, response.contentAsString());
+                        if (!commandResponse.data.success) {
+                            return CompletableFuture.failedFuture(
+                                    new CommandFailureException(commandResponse.data.message, commandResponse.data.reason));
+                        }
+                        return CompletableFuture.completedFuture(null);
+                    } else {
+                        try {
+                            VicareError errorResponse = fromJson(VICARE_ERROR_ADAPTER, response.contentAsString());
+                            logger.warn(format("Failed to send command, server returned %d, %s - %s", response.status(), errorResponse.getErrorType(), errorResponse.getMessage()));
+                        } catch (Exception e) {
+                            // never mind
+                        }
+                        throw new CompletionException(
+                                new IOException("Unable to send command to IoT API, server returned " + response.status()));
+                    }
+                });
+    }
+
+    private List<Feature> extractFeatures(Reader responseContent) throws IOException {
+        return featureStreamParser.parse(responseContent);
+    }
+
+    /**
+     * @return The decoder for the device's feature responses, which reuses the features that are unchanged since
+     * its previous response, whether that was fetched or persisted.
+     */
+    private DeviceFeatureDecoder getDeviceFeatureDecoder(long installationId, String gatewaySerial, String deviceId) {
+        return deviceFeatureDecoders.computeIfAbsent(installationId + "/" + gatewaySerial + "/" + deviceId,
+                k -> new DeviceFeatureDecoder(featureStreamParser, FEATURE_DECODERS));
     }
 
     /**
@@ -376,192 +670,4 @@ public class VicareServiceImpl implements VicareService {
             return Instant.parse(jsonElement.getAsString());
         }
     }
-
-    private static class FeatureDeserializer implements JsonDeserializer<Feature> {
-
-        @Override
-        public Feature deserialize(JsonElement jsonElement, Type type, JsonDeserializationContext jsonDeserializationContext) throws JsonParseException {
-            JsonObject jsonObject = jsonElement.getAsJsonObject();
-            if (!jsonObject.get("isEnabled").getAsBoolean()) {
-                return null;
-            }
-
-            String featureName = jsonObject.get("feature").getAsString();
-            JsonObject properties = jsonObject.getAsJsonObject("properties");
-            JsonObject commands = jsonObject.getAsJsonObject("commands");
-            if (properties != null) {
-                JsonObject value = properties.getAsJsonObject("value");
-                JsonObject statusObject = properties.getAsJsonObject("status");
-                JsonObject activeObject = properties.getAsJsonObject("active");
-                if (value != null) {
-                    String valueType = value.get("type").getAsString();
-                    List<CommandDescriptor> commandDescriptors = generateCommands(commands);
-                    if (TYPE_STRING.equals(valueType)) {
-                        String textValue = value.get("value").getAsString();
-                        return new TextFeature(featureName, "value", textValue, commandDescriptors);
-                    } else if (TYPE_NUMBER.equals(valueType)) {
-                        return new NumericSensorFeature(featureName,
-                                                            propertyMap(properties),
-                                                            commandDescriptors,
-                                                            "value");
-                    }
-                } else if (featureName.contains(".consumption.summary")) {
-                    Map<String, DimensionalValue> stats = properties.entrySet().stream()
-                            .filter(e -> e.getValue().isJsonObject())
-                            .filter(e -> TYPE_NUMBER.equals(e.getValue().getAsJsonObject().get("type").getAsString()))
-                            .collect(toMap(Map.Entry::getKey,
-                                    e -> {
-                                        JsonObject prop = e.getValue().getAsJsonObject();
-                                        return dimensionalValueFromUnitValue(prop);
-                                    }));
-                    return new ConsumptionSummaryFeature(featureName,
-                            stats.get("currentDay"),
-                            stats.get("lastSevenDays"),
-                            stats.get("currentMonth"),
-                            stats.get("currentYear"));
-                } else if (featureName.contains(".operating.programs.")) {
-                    JsonObject temperature = properties.getAsJsonObject("temperature");
-                    JsonObject startObject = properties.getAsJsonObject("start");
-                    JsonObject endObject = properties.getAsJsonObject("end");
-                    if (temperature != null) {
-                        Boolean activeStatus = ofNullable(activeObject).map(jo -> jo.get("value")).map(JsonElement::getAsBoolean).orElse(null);
-                        DimensionalValue temperatureValue = dimensionalValueFromUnitValue(temperature);
-                        List<CommandDescriptor> commandDescriptors = generateCommands(commands);
-                        return new NumericSensorFeature(featureName, "temperature", commandDescriptors, temperatureValue, NA, activeStatus
-                        );
-                    } else if (startObject != null && endObject != null) {
-                        boolean activeStatus = activeObject.get("value").getAsBoolean();
-                        return new DatePeriodFeature(featureName, activeStatus, dateFromYYYYMMDD(startObject), dateFromYYYYMMDD(endObject));
-                    } else if (activeObject != null) {
-                        return new StatusSensorFeature(featureName, propertyMap(properties), generateCommands(commands));
-                    }
-                } else if (featureName.endsWith(".heating.curve")) {
-                    JsonObject shiftObject = properties.getAsJsonObject("shift");
-                    JsonObject slopeObject = properties.getAsJsonObject("slope");
-                    if (shiftObject != null && slopeObject != null) {
-                        DimensionalValue shift = dimensionalValueFromUnitValue(shiftObject);
-                        DimensionalValue slope = dimensionalValueFromUnitValue(slopeObject);
-                        return new CurveFeature(featureName, slope, shift);
-                    }
-                } else if (featureName.endsWith(".production") ||
-                featureName.contains(".consumption.")) {
-                    Optional<String> defaultUnit = Optional.ofNullable(properties.getAsJsonObject("unit"))
-                            .map(jo -> jo.get("value"))
-                            .map(JsonElement::getAsString);
-                    Map<String, Value> arrayProperties = properties.entrySet().stream()
-                            .filter(e -> TYPE_ARRAY.equals(e.getValue().getAsJsonObject().get("type").getAsString()))
-                            .collect(toMap(Map.Entry::getKey, e -> {
-                                JsonObject property = e.getValue().getAsJsonObject();
-                                JsonArray jsonArray = property.get("value").getAsJsonArray();
-                                double[] values = new double[jsonArray.size()];
-                                for (int i = 0; i < jsonArray.size(); ++i) {
-                                    values[i] = jsonArray.get(i).getAsDouble();
-                                }
-                                Unit unit = Optional.ofNullable(property.get("unit")).map(JsonElement::getAsString)
-                                        .or(() -> defaultUnit)
-                                        .map(Unit::new)
-                                        .orElse(Unit.EMPTY);
-                                return new ArrayValue(unit, values);
-                            }));
-
-                    return new ConsumptionTotalFeature(featureName, arrayProperties);
-                } else if (featureName.endsWith(".name") && properties.has("name")) {
-                    JsonObject nameProp = properties.get("name").getAsJsonObject();
-                    return new TextFeature(featureName, "name", nameProp.get("value").getAsString(), generateCommands(commands));
-                } else {
-                    return new StatusSensorFeature(featureName, propertyMap(properties), generateCommands(commands));
-                }
-            }
-            return null;
-        }
-
-        private static Map<String, Value> propertyMap(JsonObject properties) {
-            return properties.entrySet().stream()
-                    .filter(e -> e.getValue().isJsonObject())
-                    .map(e -> Map.entry(e.getKey(), e.getValue().getAsJsonObject()))
-                    .filter(e -> Set.of(TYPE_STRING, TYPE_BOOLEAN, TYPE_NUMBER).contains(e.getValue().get("type").getAsString()))
-                    .collect(Collectors.toMap(Map.Entry::getKey,
-                                              e -> {
-                                                  JsonObject propObject = e.getValue().getAsJsonObject();
-                                                  switch (propObject.get("type").getAsString()) {
-                                                      case TYPE_STRING:
-                                                          String value = propObject.get("value").getAsString();
-                                                          return "status".equals(e.getKey()) ? new StatusValue(value) : new StringValue(value);
-                                                      case TYPE_BOOLEAN:
-                                                          return BooleanValue.valueOf(
-                                                                  propObject.get("value").getAsBoolean());
-                                                      case TYPE_NUMBER:
-                                                          return dimensionalValueFromUnitValue(propObject);
-                                                      default:
-                                                          throw new IllegalStateException(
-                                                                  "Unsupported property type " + propObject.get(
-                                                                          "type").getAsString());
-                                                  }
-                                              }));
-        }
-
-        private static List<CommandDescriptor> generateCommands(JsonObject commands) {
-            return commands.entrySet().stream()
-                    .map(e -> generateCommand(e.getKey(), e.getValue().getAsJsonObject()))
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toList());
-        }
-
-        private static CommandDescriptor generateCommand(String key, JsonObject value) {
-            String name = value.get("name").getAsString();
-            boolean executable = value.get("isExecutable").getAsBoolean();
-            URI uri = URI.create(value.get("uri").getAsString());
-            List<ParamDescriptor> params = value.get("params").getAsJsonObject().entrySet().stream()
-                    .map(e -> generateParam(e.getKey(), e.getValue().getAsJsonObject()))
-                    .collect(Collectors.toList());
-
-            if (params.contains(null)) {
-                // Don't support the command if we don't understand the parameters.
-                return null;
-            }
-            return new CommandDescriptor(name, executable, params, uri);
-        }
-
-        private static ParamDescriptor generateParam(String name, JsonObject jsonObject) {
-            String type = jsonObject.get("type").getAsString();
-            JsonObject constraints = jsonObject.get("constraints").getAsJsonObject();
-            switch (type) {
-                case TYPE_STRING:
-                    if (constraints.has("enum")) {
-                        Set<String> enumValues = stream(constraints.getAsJsonArray("enum").spliterator(), false)
-                                .map(JsonElement::getAsString)
-                                .collect(Collectors.toCollection(LinkedHashSet::new));
-                        return new EnumParamDescriptor(jsonObject.get("required").getAsBoolean(), name, enumValues);
-                    } else {
-                        return new StringParamDescriptor(jsonObject.get("required").getAsBoolean(), name);
-                    }
-                case TYPE_NUMBER:
-                    return new NumericParamDescriptor(jsonObject.get("required").getAsBoolean(),
-                                                      name,
-                                                      ofNullable(constraints.get("min")).map(JsonElement::getAsDouble).orElse(null),
-                                                      ofNullable(constraints.get("max")).map(JsonElement::getAsDouble).orElse(null),
-                                                      ofNullable(constraints.get("stepping")).map(JsonElement::getAsDouble).orElse(null));
-            }
-            logger.trace("Skipping unsupported parameter " + name + ", type " + type);
-            return null;
-        }
-    }
-
-    private static LocalDate dateFromYYYYMMDD(JsonObject prop) {
-        JsonElement value = prop.get("value");
-        if (value != null) {
-            String valueAsString = value.getAsString();
-            return valueAsString.isEmpty() ? null : LocalDate.parse(valueAsString);
-        }
-        return null;
-    }
-
-    private static DimensionalValue dimensionalValueFromUnitValue(JsonObject prop) {
-        Unit unit = Optional.ofNullable(prop.get("unit"))
-                .map(JsonElement::getAsString)
-                .map(Unit::new)
-                .orElse(Unit.EMPTY);
-        double numberValue = prop.get("value").getAsDouble();
-        return new DimensionalValue(unit, numberValue);
-    }
 }
@@ -1,8 +1,29 @@
 package com.qubular.vicare.internal.oauth;
 
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+
+import java.io.IOException;
+
 public class AccessGrantResponse {
+    private static final TypeAdapter<AccessGrantResponse> TYPE_ADAPTER = new GsonBuilder()
+            .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+            .create()
+            .getAdapter(AccessGrantResponse.class);
+
     public String accessToken;
     public String refreshToken;
     public String tokenType;
     public int expiresIn;
+
+    public static AccessGrantResponse fromJson(String json) throws JsonParseException {
+        try {
+            return TYPE_ADAPTER.fromJson(json);
+        } catch (IOException | IllegalStateException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
 }
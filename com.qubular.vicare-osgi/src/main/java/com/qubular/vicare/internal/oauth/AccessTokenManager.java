@@ -0,0 +1,167 @@
+package com.qubular.vicare.internal.oauth;
+
+import com.qubular.vicare.AuthenticationException;
+import com.qubular.vicare.HttpClientProvider;
+import com.qubular.vicare.TokenStore;
+import com.qubular.vicare.VicareConfiguration;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.client.util.BufferingResponseListener;
+import org.eclipse.jetty.client.util.FormContentProvider;
+import org.eclipse.jetty.util.Fields;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.lang.String.format;
+
+/**
+ * Hands out valid access tokens, refreshing them with the refresh token when they are about to expire.
+ * Only one refresh is ever in flight: callers whose token has expired wait on it rather than starting their own,
+ * and callers whose token is still valid but close to expiry start it in the background and carry on.
+ */
+public class AccessTokenManager {
+    private static final Logger logger = LoggerFactory.getLogger(AccessTokenManager.class);
+    /** A token that expires within this time is not used */
+    static final Duration EXPIRY_MARGIN = Duration.ofSeconds(60);
+    /** A token that expires within this time is refreshed in the background */
+    static final Duration REFRESH_AHEAD = Duration.ofMinutes(5);
+
+    private final TokenStore tokenStore;
+    private final HttpClientProvider httpClientProvider;
+    private final VicareConfiguration config;
+    private final AtomicReference<CompletableFuture<TokenStore.AccessToken>> refresh = new AtomicReference<>();
+
+    public AccessTokenManager(TokenStore tokenStore, HttpClientProvider httpClientProvider, VicareConfiguration config) {
+        this.tokenStore = tokenStore;
+        this.httpClientProvider = httpClientProvider;
+        this.config = config;
+    }
+
+    public Optional<TokenStore.AccessToken> getValidAccessToken() throws AuthenticationException {
+        try {
+            return Optional.of(getValidAccessTokenAsync().join());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof AuthenticationException ae) {
+                throw ae;
+            }
+            throw new AuthenticationException("Unable to refresh access token", e);
+        }
+    }
+
+    /**
+     * @return A valid access token, without blocking if the current token has to be refreshed first.
+     */
+    public CompletableFuture<TokenStore.AccessToken> getValidAccessTokenAsync() {
+        Optional<TokenStore.AccessToken> accessToken;
+        try {
+            accessToken = tokenStore.getAccessToken();
+        } catch (GeneralSecurityException e) {
+            return CompletableFuture.failedFuture(tokenStoreFailure(e));
+        }
+        Instant now = Instant.now();
+        if (accessToken.isPresent() && accessToken.get().expiry.isAfter(now.plus(EXPIRY_MARGIN))) {
+            if (accessToken.get().expiry.isBefore(now.plus(REFRESH_AHEAD))) {
+                refreshInBackground();
+            }
+            return CompletableFuture.completedFuture(accessToken.get());
+        }
+        // callers get their own copy so that they cannot cancel the refresh for others
+        return refresh().copy();
+    }
+
+    private void refreshInBackground() {
+        refresh().exceptionally(t -> {
+            logger.debug("Unable to refresh access token ahead of expiry", t);
+            return null;
+        });
+    }
+
+    /**
+     * @return The refresh in flight, or a new one if there is none.
+     */
+    private CompletableFuture<TokenStore.AccessToken> refresh() {
+        CompletableFuture<TokenStore.AccessToken> newRefresh = new CompletableFuture<>();
+        CompletableFuture<TokenStore.AccessToken> inFlight = refresh.compareAndExchange(null, newRefresh);
+        if (inFlight != null) {
+            return inFlight;
+        }
+        newRefresh.whenComplete((token, t) -> refresh.compareAndSet(newRefresh, null));
+        refreshAccessToken(newRefresh);
+        return newRefresh;
+    }
+
+    /**
+     * Sends the refresh request without blocking the calling thread, and completes the refresh with the new token
+     * once the access server responds.
+     */
+    private void refreshAccessToken(CompletableFuture<TokenStore.AccessToken> newRefresh) {
+        try {
+            // a refresh may have completed between the caller finding the token expiring and starting this one
+            Optional<TokenStore.AccessToken> accessToken = tokenStore.getAccessToken();
+            if (accessToken.isPresent() && accessToken.get().expiry.isAfter(Instant.now().plus(REFRESH_AHEAD))) {
+                newRefresh.complete(accessToken.get());
+                return;
+            }
+            String refreshToken = tokenStore.getRefreshToken().orElse(null);
+            if (refreshToken == null) {
+                throw new AuthenticationException(
+                        "Unable to authenticate: No valid access token and no refresh token.");
+            }
+            logger.trace("Refreshing access token.");
+            Fields fields = new Fields();
+            fields.put("grant_type", "refresh_token");
+            fields.put("client_id", config.getClientId());
+            fields.put("refresh_token", refreshToken);
+            httpClientProvider.getHttpClient()
+                    .POST(config.getAccessServerURI())
+                    .content(new FormContentProvider(fields))
+                    .accept("application/json")
+                    .send(new BufferingResponseListener() {
+                        @Override
+                        public void onComplete(Result result) {
+                            try {
+                                newRefresh.complete(accessTokenFromResponse(result, getContentAsString()));
+                            } catch (AuthenticationException | RuntimeException e) {
+                                newRefresh.completeExceptionally(e);
+                            }
+                        }
+                    });
+        } catch (AuthenticationException | RuntimeException e) {
+            newRefresh.completeExceptionally(e);
+        } catch (GeneralSecurityException e) {
+            newRefresh.completeExceptionally(tokenStoreFailure(e));
+        }
+    }
+
+    private TokenStore.AccessToken accessTokenFromResponse(Result result, String content) throws AuthenticationException {
+        if (result.isFailed()) {
+            throw new AuthenticationException("Unable to refresh access token",
+                    new IOException("Unable to reach access server", result.getFailure()));
+        }
+        if (result.getResponse().getStatus() != 200) {
+            logger.warn("Unable to refresh, access server sent {}", result.getResponse().getStatus());
+            throw new AuthenticationException("Unable to refresh access token");
+        }
+        AccessGrantResponse accessGrantResponse = AccessGrantResponse.fromJson(content);
+        try {
+            return tokenStore.storeAccessToken(accessGrantResponse.accessToken,
+                                               Instant.now().plusSeconds(accessGrantResponse.expiresIn));
+        } catch (GeneralSecurityException e) {
+            throw tokenStoreFailure(e);
+        }
+    }
+
+    private static AuthenticationException tokenStoreFailure(GeneralSecurityException e) {
+        String msg = format("Unable to obtain access token: %s", e.getMessage());
+        logger.warn(msg, e);
+        return new AuthenticationException(msg, e);
+    }
+}
@@ -1,6 +1,5 @@
 package com.qubular.vicare.internal.servlet;
 
-import com.google.gson.FieldNamingPolicy;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.qubular.vicare.*;
@@ -134,10 +133,7 @@ public class VicareServlet extends HttpServlet {
                                     handleError(resp, accessTokenResponse);
                                     resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
                                 } else {
-                                    Gson gson = new GsonBuilder().setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
-                                            .create();
-                                    AccessGrantResponse accessGrantResponse = gson.fromJson(accessTokenResponse.getContentAsString(),
-                                            AccessGrantResponse.class);
+                                    AccessGrantResponse accessGrantResponse = AccessGrantResponse.fromJson(accessTokenResponse.getContentAsString());
                                     logger.debug("Got access token, expiry in {}", accessGrantResponse.expiresIn);
                                     try {
                                         tokenStore.storeAccessToken(accessGrantResponse.accessToken, Instant.now().plusSeconds(accessGrantResponse.expiresIn));
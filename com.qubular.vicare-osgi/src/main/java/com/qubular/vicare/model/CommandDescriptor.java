@@ -2,6 +2,7 @@ package com.qubular.vicare.model;
 
 import java.net.URI;
 import java.util.List;
+import java.util.Objects;
 
 public class CommandDescriptor {
     private String name;
@@ -31,4 +32,20 @@ public class CommandDescriptor {
     public List<ParamDescriptor> getParams() {
         return params;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CommandDescriptor that = (CommandDescriptor) o;
+        return executable == that.executable &&
+                Objects.equals(name, that.name) &&
+                Objects.equals(params, that.params) &&
+                Objects.equals(uri, that.uri);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, executable, uri);
+    }
 }
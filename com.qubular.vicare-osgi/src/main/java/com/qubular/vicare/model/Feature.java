@@ -5,6 +5,7 @@ import com.qubular.vicare.model.features.*;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 public abstract class Feature {
     public interface Visitor {
@@ -40,4 +41,19 @@ public abstract class Feature {
     public abstract Map<String, ? extends Value> getProperties();
 
     public abstract void accept(Visitor v);
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Feature feature = (Feature) o;
+        return Objects.equals(name, feature.name) &&
+                Objects.equals(getProperties(), feature.getProperties()) &&
+                Objects.equals(commands, feature.commands);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, getProperties());
+    }
 }
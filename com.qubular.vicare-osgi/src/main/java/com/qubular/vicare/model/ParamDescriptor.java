@@ -4,6 +4,8 @@ import com.qubular.vicare.model.params.EnumParamDescriptor;
 import com.qubular.vicare.model.params.NumericParamDescriptor;
 import com.qubular.vicare.model.params.StringParamDescriptor;
 
+import java.util.Objects;
+
 public abstract class ParamDescriptor<T> {
     public interface Visitor{
         void visit(EnumParamDescriptor d);
@@ -34,4 +36,17 @@ public abstract class ParamDescriptor<T> {
     }
 
     public abstract void accept(Visitor v);
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ParamDescriptor<?> that = (ParamDescriptor<?>) o;
+        return required == that.required && Objects.equals(name, that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(required, name);
+    }
 }
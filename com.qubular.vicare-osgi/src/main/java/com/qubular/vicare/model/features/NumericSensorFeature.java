@@ -9,6 +9,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 public class NumericSensorFeature extends Feature {
     private final Map<String, Value> properties;
@@ -64,4 +65,14 @@ public class NumericSensorFeature extends Feature {
     public void accept(Visitor v) {
         v.visit(this);
     }
+
+    @Override
+    public boolean equals(Object o) {
+        return super.equals(o) && Objects.equals(propertyName, ((NumericSensorFeature) o).propertyName);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
 }
@@ -2,6 +2,7 @@ package com.qubular.vicare.model.params;
 
 import com.qubular.vicare.model.ParamDescriptor;
 
+import java.util.Objects;
 import java.util.Set;
 
 public class EnumParamDescriptor extends ParamDescriptor<String> {
@@ -30,4 +31,14 @@ public class EnumParamDescriptor extends ParamDescriptor<String> {
     public Set<String> getAllowedValues() {
         return allowedValues;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        return super.equals(o) && Objects.equals(allowedValues, ((EnumParamDescriptor) o).allowedValues);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
 }
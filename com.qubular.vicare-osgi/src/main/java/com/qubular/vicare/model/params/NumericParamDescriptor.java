@@ -2,6 +2,8 @@ package com.qubular.vicare.model.params;
 
 import com.qubular.vicare.model.ParamDescriptor;
 
+import java.util.Objects;
+
 public class NumericParamDescriptor extends ParamDescriptor<Double> {
     private Double min;
     private Double max;
@@ -42,4 +44,18 @@ public class NumericParamDescriptor extends ParamDescriptor<Double> {
     public Double getStepping() {
         return stepping;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!super.equals(o)) return false;
+        NumericParamDescriptor that = (NumericParamDescriptor) o;
+        return Objects.equals(min, that.min) &&
+                Objects.equals(max, that.max) &&
+                Objects.equals(stepping, that.stepping);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
 }
@@ -3,6 +3,9 @@ package com.qubular.vicare.model.values;
 import com.qubular.vicare.model.Unit;
 import com.qubular.vicare.model.Value;
 
+import java.util.Arrays;
+import java.util.Objects;
+
 public class ArrayValue extends Value {
     @Override
     public String getType() {
@@ -30,4 +33,25 @@ public class ArrayValue extends Value {
     public void accept(Visitor v) {
         v.visit(this);
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ArrayValue that = (ArrayValue) o;
+        return Arrays.equals(values, that.values) && Objects.equals(unit, that.unit);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hashCode(unit) + Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString() {
+        return "ArrayValue{" +
+                "unit=" + unit +
+                ", values=" + Arrays.toString(values) +
+                '}';
+    }
 }
@@ -0,0 +1,38 @@
+package com.qubular.vicare.test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+
+/**
+ * Measures heap allocation across all live threads, using the HotSpot extension to ThreadMXBean.
+ * The extension interface is looked up via the system class loader since com.sun.management is not visible to bundles.
+ */
+public class AllocationMeter {
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final Method getThreadAllocatedBytes;
+
+    public AllocationMeter() {
+        try {
+            Class<?> hotspotThreadMXBean = ClassLoader.getSystemClassLoader().loadClass("com.sun.management.ThreadMXBean");
+            getThreadAllocatedBytes = hotspotThreadMXBean.getMethod("getThreadAllocatedBytes", long[].class);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Thread allocation accounting is not supported by this JVM", e);
+        }
+    }
+
+    /**
+     * @return The total bytes allocated so far by all live threads.
+     */
+    public long allocatedBytes() {
+        try {
+            long total = 0;
+            for (long bytes : (long[]) getThreadAllocatedBytes.invoke(threadMXBean, threadMXBean.getAllThreadIds())) {
+                total += Math.max(0, bytes);
+            }
+            return total;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to read thread allocation", e);
+        }
+    }
+}
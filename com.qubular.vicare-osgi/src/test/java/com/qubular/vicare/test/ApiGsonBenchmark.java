@@ -0,0 +1,121 @@
+package com.qubular.vicare.test;
+
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializer;
+import com.qubular.vicare.model.Installation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures the allocation of building a Gson per API call, which the service used to do, against reusing a prebuilt
+ * one, and reports the per-call allocation of the installations and command requests.
+ */
+public class ApiGsonBenchmark extends ServiceBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(ApiGsonBenchmark.class);
+    private static final int WARMUP_ITERATIONS = 200;
+    private static final int ITERATIONS = 1000;
+    private static final String COMMAND_PATH = "/iot/v1/features/installations/2012616/gateways/7633107093013212/devices/0/features/heating.circuits.0.operating.modes.active/commands/setMode";
+
+    private String installationsResponse;
+
+    private static class InstallationsResponse {
+        public List<Installation> data;
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        installationsResponse = new String(getClass().getResourceAsStream("installationsResponse.json").readAllBytes(),
+                StandardCharsets.UTF_8);
+        serveApi(new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                writeResponse(resp, installationsResponse);
+            }
+
+            @Override
+            protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                writeResponse(resp, "{\"data\":{\"success\":true,\"reason\":\"COMMAND_EXECUTION_SUCCESS\"}}");
+            }
+        });
+    }
+
+    private static Gson apiGson() {
+        return new GsonBuilder()
+                .setFieldNamingPolicy(FieldNamingPolicy.IDENTITY)
+                .registerTypeAdapter(Instant.class,
+                        (JsonDeserializer<Instant>) (json, type, context) -> Instant.parse(json.getAsString()))
+                .create();
+    }
+
+    @Test
+    public void gsonConstructionAllocation() {
+        Gson sharedGson = apiGson();
+        for (int i = 0; i < WARMUP_ITERATIONS; ++i) {
+            apiGson().fromJson(installationsResponse, InstallationsResponse.class);
+            sharedGson.fromJson(installationsResponse, InstallationsResponse.class);
+        }
+
+        long start = allocationMeter.allocatedBytes();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            apiGson().fromJson(installationsResponse, InstallationsResponse.class);
+        }
+        long perCallGsonBytes = (allocationMeter.allocatedBytes() - start) / ITERATIONS;
+
+        start = allocationMeter.allocatedBytes();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            sharedGson.fromJson(installationsResponse, InstallationsResponse.class);
+        }
+        long sharedGsonBytes = (allocationMeter.allocatedBytes() - start) / ITERATIONS;
+
+        logger.info("Installations response: Gson per call {} bytes/call, shared Gson {} bytes/call",
+                perCallGsonBytes, sharedGsonBytes);
+    }
+
+    @Test
+    public void apiCallAllocation() throws Exception {
+        URI commandUri = URI.create("http://localhost:9000" + COMMAND_PATH);
+        Map<String, Object> commandParams = Map.of("mode", "heating");
+
+        for (int i = 0; i < WARMUP_ITERATIONS; ++i) {
+            vicareService.getInstallations();
+            vicareService.sendCommand(commandUri, commandParams);
+        }
+
+        long start = allocationMeter.allocatedBytes();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            vicareService.getInstallations();
+        }
+        long installationsBytes = (allocationMeter.allocatedBytes() - start) / ITERATIONS;
+
+        start = allocationMeter.allocatedBytes();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            vicareService.sendCommand(commandUri, commandParams);
+        }
+        long commandBytes = (allocationMeter.allocatedBytes() - start) / ITERATIONS;
+
+        logger.info("getInstallations {} bytes/call, sendCommand {} bytes/call", installationsBytes, commandBytes);
+    }
+
+    private static void writeResponse(HttpServletResponse resp, String jsonResponse) throws IOException {
+        resp.setContentType("application/json");
+        resp.setStatus(200);
+        try (ServletOutputStream outputStream = resp.getOutputStream()) {
+            outputStream.print(jsonResponse);
+        }
+    }
+}
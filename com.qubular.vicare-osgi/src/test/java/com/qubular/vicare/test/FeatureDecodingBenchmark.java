@@ -0,0 +1,126 @@
+package com.qubular.vicare.test;
+
+import com.qubular.vicare.model.Feature;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
+
+import static java.lang.String.format;
+
+/**
+ * Measures the decoding throughput and allocation of the features of every device fixture, read back from persisted
+ * feature snapshots so that no request is made and the decoding is done on the calling thread. Polls where every
+ * feature has changed, by alternating between snapshots with different feature timestamps, are compared against
+ * polls where none have.
+ */
+public class FeatureDecodingBenchmark extends ServiceBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(FeatureDecodingBenchmark.class);
+    private static final int WARMUP_ITERATIONS = 200;
+    private static final int ITERATIONS = 1000;
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private File snapshotFolder;
+    private File changedSnapshotFolder;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        snapshotFolder = Files.createTempDirectory("snapshots").toFile();
+        changedSnapshotFolder = Files.createTempDirectory("snapshots").toFile();
+        // each fixture is persisted as the snapshot of a device with its index as the device id
+        for (int i = 0; i < FIXTURES.size(); ++i) {
+            String content = new String(getClass().getResourceAsStream(FIXTURES.get(i)).readAllBytes(),
+                    StandardCharsets.UTF_8);
+            writeSnapshot(snapshotFolder, i, content);
+            writeSnapshot(changedSnapshotFolder, i, content.replaceAll("(\"timestamp\"\\s*:\\s*\")", "$1changed "));
+        }
+    }
+
+    private static void writeSnapshot(File folder, int deviceId, String content) throws IOException {
+        File snapshotFile = new File(folder, format("features_%d_%s_%d.json.gz", INSTALLATION_ID, GATEWAY_SERIAL, deviceId));
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(snapshotFile))) {
+            out.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        configuration.setFeatureSnapshotFolder(null);
+        for (File folder : List.of(snapshotFolder, changedSnapshotFolder)) {
+            for (File file : Objects.requireNonNull(folder.listFiles())) {
+                file.delete();
+            }
+            folder.delete();
+        }
+    }
+
+    @Test
+    public void featureDecodingThroughput() {
+        for (int i = 0; i < WARMUP_ITERATIONS; ++i) {
+            changedPoll(i);
+            unchangedPoll();
+        }
+
+        long start = threadMXBean.getCurrentThreadCpuTime();
+        long allocated = allocationMeter.allocatedBytes();
+        long features = 0;
+        for (int i = 0; i < ITERATIONS; ++i) {
+            features += changedPoll(i).size();
+        }
+        long changedNanos = threadMXBean.getCurrentThreadCpuTime() - start;
+        long changedBytes = (allocationMeter.allocatedBytes() - allocated) / ITERATIONS;
+
+        start = threadMXBean.getCurrentThreadCpuTime();
+        allocated = allocationMeter.allocatedBytes();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            unchangedPoll();
+        }
+        long unchangedNanos = threadMXBean.getCurrentThreadCpuTime() - start;
+        long unchangedBytes = (allocationMeter.allocatedBytes() - allocated) / ITERATIONS;
+
+        // compare the checksum across changes to the decoder to check that they decode the same features
+        long checksum = 0;
+        for (Feature feature : unchangedPoll()) {
+            checksum = 31 * checksum + Objects.hash(feature.getClass().getName(), feature, feature.getCommands());
+        }
+        logger.info("{} fixtures, {} features: all changed {} features/s {} bytes/poll, " +
+                        "unchanged {} features/s {} bytes/poll, checksum {}",
+                FIXTURES.size(), features / ITERATIONS,
+                features * 1_000_000_000L / changedNanos, changedBytes,
+                features * 1_000_000_000L / unchangedNanos, unchangedBytes,
+                checksum);
+    }
+
+    private List<Feature> changedPoll(int iteration) {
+        configuration.setFeatureSnapshotFolder(iteration % 2 == 0 ? changedSnapshotFolder : snapshotFolder);
+        return decodeAll();
+    }
+
+    private List<Feature> unchangedPoll() {
+        configuration.setFeatureSnapshotFolder(snapshotFolder);
+        return decodeAll();
+    }
+
+    private List<Feature> decodeAll() {
+        List<Feature> features = new ArrayList<>();
+        for (int i = 0; i < FIXTURES.size(); ++i) {
+            features.addAll(vicareService.getPersistedFeatures(INSTALLATION_ID, GATEWAY_SERIAL, String.valueOf(i))
+                    .orElseThrow().features);
+        }
+        return features;
+    }
+}
@@ -0,0 +1,207 @@
+package com.qubular.vicare.test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.qubular.vicare.model.CommandDescriptor;
+import com.qubular.vicare.model.Feature;
+import com.qubular.vicare.model.ParamDescriptor;
+import com.qubular.vicare.model.Unit;
+import com.qubular.vicare.model.Value;
+import com.qubular.vicare.model.features.StatusSensorFeature;
+import com.qubular.vicare.model.params.EnumParamDescriptor;
+import com.qubular.vicare.model.params.NumericParamDescriptor;
+import com.qubular.vicare.model.params.StringParamDescriptor;
+import com.qubular.vicare.model.values.*;
+import org.eclipse.jetty.client.HttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URI;
+import java.util.*;
+
+import static java.lang.String.format;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the per-poll allocation of the streaming feature parser against fully buffering the response, building
+ * a JSON tree for it and decoding the features from the tree, which is what the service used to do. Both decode
+ * every enabled feature with its properties and commands.
+ */
+public class FeatureParsingBenchmark extends ServiceBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(FeatureParsingBenchmark.class);
+    private static final int WARMUP_ITERATIONS = 50;
+    private static final int ITERATIONS = 200;
+    private static final String FEATURES_PATH = format("/iot/v2/features/installations/%d/gateways/%s/devices/0/features",
+            INSTALLATION_ID, GATEWAY_SERIAL);
+
+    private HttpClient httpClient;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        httpClient = new HttpClient();
+        httpClient.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        httpClient.stop();
+    }
+
+    @MethodSource("fixtures")
+    @ParameterizedTest
+    public void featureParsingAllocation(String fileName) throws Exception {
+        byte[] content = getClass().getResourceAsStream(fileName).readAllBytes();
+        serveApi(new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                resp.setContentType("application/json");
+                resp.setStatus(200);
+                try (ServletOutputStream outputStream = resp.getOutputStream()) {
+                    outputStream.write(content);
+                }
+            }
+        });
+
+        for (int i = 0; i < WARMUP_ITERATIONS; ++i) {
+            bufferedTreePoll();
+            streamingPoll();
+        }
+
+        long start = allocationMeter.allocatedBytes();
+        int features = 0;
+        for (int i = 0; i < ITERATIONS; ++i) {
+            features += bufferedTreePoll();
+        }
+        long bufferedTreeBytes = (allocationMeter.allocatedBytes() - start) / ITERATIONS;
+
+        start = allocationMeter.allocatedBytes();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            features -= streamingPoll();
+        }
+        long streamingBytes = (allocationMeter.allocatedBytes() - start) / ITERATIONS;
+
+        // both sides decode the same features
+        assertEquals(0, features);
+        logger.info("{} ({} bytes): buffered tree {} bytes/poll, streaming {} bytes/poll, {}%",
+                fileName, content.length, bufferedTreeBytes, streamingBytes,
+                bufferedTreeBytes == 0 ? 0 : 100 * streamingBytes / bufferedTreeBytes);
+    }
+
+    private int bufferedTreePoll() throws Exception {
+        String responseContent = httpClient.newRequest("http://localhost:9000" + FEATURES_PATH)
+                .header("Authorization", "Bearer mytoken")
+                .send()
+                .getContentAsString();
+        List<Feature> features = new ArrayList<>();
+        for (JsonElement element : JsonParser.parseString(responseContent).getAsJsonObject().getAsJsonArray("data")) {
+            Feature feature = decodeTree(element.getAsJsonObject());
+            if (feature != null) {
+                features.add(feature);
+            }
+        }
+        return features.size();
+    }
+
+    private int streamingPoll() throws Exception {
+        return vicareService.getFeatures(INSTALLATION_ID, GATEWAY_SERIAL, "0").size();
+    }
+
+    /**
+     * Decodes a feature from its JSON tree as the service used to, but into a status sensor feature whatever its
+     * family, since only the allocation of the decoded values and commands matters here.
+     */
+    private static Feature decodeTree(JsonObject featureObject) {
+        JsonObject properties = featureObject.getAsJsonObject("properties");
+        if (!featureObject.get("isEnabled").getAsBoolean() || properties == null) {
+            return null;
+        }
+        Map<String, Value> values = new HashMap<>();
+        for (Map.Entry<String, JsonElement> property : properties.entrySet()) {
+            if (!property.getValue().isJsonObject()) {
+                continue;
+            }
+            JsonObject propObject = property.getValue().getAsJsonObject();
+            JsonElement unit = propObject.get("unit");
+            JsonElement value = propObject.get("value");
+            switch (propObject.get("type").getAsString()) {
+                case Value.TYPE_STRING:
+                    values.put(property.getKey(), "status".equals(property.getKey()) ?
+                            new StatusValue(value.getAsString()) : new StringValue(value.getAsString()));
+                    break;
+                case Value.TYPE_BOOLEAN:
+                    values.put(property.getKey(), BooleanValue.valueOf(value.getAsBoolean()));
+                    break;
+                case Value.TYPE_NUMBER:
+                    if (!value.isJsonPrimitive() || !value.getAsJsonPrimitive().isNumber()) {
+                        break;
+                    }
+                    values.put(property.getKey(), new DimensionalValue(
+                            unit == null ? Unit.EMPTY : new Unit(unit.getAsString()), value.getAsDouble()));
+                    break;
+                case Value.TYPE_ARRAY:
+                    if (!value.isJsonArray() || !isNumeric(value.getAsJsonArray())) {
+                        break;
+                    }
+                    double[] array = new double[value.getAsJsonArray().size()];
+                    for (int i = 0; i < array.length; ++i) {
+                        array[i] = value.getAsJsonArray().get(i).getAsDouble();
+                    }
+                    values.put(property.getKey(), new ArrayValue(
+                            unit == null ? Unit.EMPTY : new Unit(unit.getAsString()), array));
+                    break;
+            }
+        }
+        List<CommandDescriptor> commands = new ArrayList<>();
+        JsonObject commandObjects = featureObject.getAsJsonObject("commands");
+        if (commandObjects != null) {
+            for (Map.Entry<String, JsonElement> entry : commandObjects.entrySet()) {
+                JsonObject command = entry.getValue().getAsJsonObject();
+                List<ParamDescriptor> params = new ArrayList<>();
+                for (Map.Entry<String, JsonElement> param : command.getAsJsonObject("params").entrySet()) {
+                    params.add(decodeParam(param.getKey(), param.getValue().getAsJsonObject()));
+                }
+                commands.add(new CommandDescriptor(command.get("name").getAsString(),
+                        command.get("isExecutable").getAsBoolean(), params,
+                        URI.create(command.get("uri").getAsString())));
+            }
+        }
+        return new StatusSensorFeature(featureObject.get("feature").getAsString(), values, commands);
+    }
+
+    private static boolean isNumeric(JsonArray array) {
+        for (JsonElement element : array) {
+            if (!element.isJsonPrimitive() || !element.getAsJsonPrimitive().isNumber()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ParamDescriptor decodeParam(String name, JsonObject param) {
+        boolean required = param.get("required").getAsBoolean();
+        JsonObject constraints = param.getAsJsonObject("constraints");
+        if (Value.TYPE_NUMBER.equals(param.get("type").getAsString())) {
+            return new NumericParamDescriptor(required, name,
+                    constraints.has("min") ? constraints.get("min").getAsDouble() : null,
+                    constraints.has("max") ? constraints.get("max").getAsDouble() : null,
+                    constraints.has("stepping") ? constraints.get("stepping").getAsDouble() : null);
+        }
+        if (constraints.has("enum")) {
+            Set<String> enumValues = new LinkedHashSet<>();
+            constraints.getAsJsonArray("enum").forEach(e -> enumValues.add(e.getAsString()));
+            return new EnumParamDescriptor(required, name, enumValues);
+        }
+        return new StringParamDescriptor(required, name);
+    }
+}
@@ -0,0 +1,105 @@
+package com.qubular.vicare.test;
+
+import com.qubular.vicare.model.Feature;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
+
+import static java.lang.String.format;
+
+/**
+ * Measures the heap retained by the decoded features of every device fixture, as a cache of feature snapshots would
+ * hold them, using class histograms of the heap taken before and after decoding. Each fixture is persisted as the
+ * snapshot of several devices, so that nothing is shared merely because it was decoded for the same device.
+ */
+public class FeatureRetentionBenchmark extends ServiceBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(FeatureRetentionBenchmark.class);
+    private static final int DEVICES_PER_FIXTURE = 10;
+    private static final List<String> REPORTED_CLASSES = List.of(
+            "java.lang.String",
+            "java.net.URI",
+            "com.qubular.vicare.model.Unit",
+            "com.qubular.vicare.model.CommandDescriptor");
+
+    private File snapshotFolder;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        snapshotFolder = Files.createTempDirectory("snapshots").toFile();
+        configuration.setFeatureSnapshotFolder(snapshotFolder);
+        for (int i = 0; i < FIXTURES.size() * DEVICES_PER_FIXTURE; ++i) {
+            File snapshotFile = new File(snapshotFolder,
+                    format("features_%d_%s_retention%d.json.gz", INSTALLATION_ID, GATEWAY_SERIAL, i));
+            try (InputStream in = getClass().getResourceAsStream(FIXTURES.get(i % FIXTURES.size()));
+                 OutputStream out = new GZIPOutputStream(new FileOutputStream(snapshotFile))) {
+                in.transferTo(out);
+            }
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        configuration.setFeatureSnapshotFolder(null);
+        for (File file : Objects.requireNonNull(snapshotFolder.listFiles())) {
+            file.delete();
+        }
+        snapshotFolder.delete();
+    }
+
+    @Test
+    public void retainedHeapPerSnapshot() throws JMException {
+        Map<String, long[]> before = classHistogram();
+        List<List<Feature>> snapshots = new ArrayList<>();
+        for (int i = 0; i < FIXTURES.size() * DEVICES_PER_FIXTURE; ++i) {
+            snapshots.add(vicareService.getPersistedFeatures(INSTALLATION_ID, GATEWAY_SERIAL, "retention" + i)
+                    .orElseThrow().features);
+        }
+        Map<String, long[]> after = classHistogram();
+
+        long retainedBytes = 0;
+        for (Map.Entry<String, long[]> entry : after.entrySet()) {
+            retainedBytes += entry.getValue()[1] - before.getOrDefault(entry.getKey(), new long[2])[1];
+        }
+        StringBuilder classes = new StringBuilder();
+        for (String className : REPORTED_CLASSES) {
+            long[] counts = after.getOrDefault(className, new long[2]);
+            long[] baseline = before.getOrDefault(className, new long[2]);
+            classes.append(format(", %s %d instances %d bytes", className.substring(className.lastIndexOf('.') + 1),
+                    counts[0] - baseline[0], counts[1] - baseline[1]));
+        }
+        logger.info("{} snapshots of {} features: {} bytes/snapshot{}", snapshots.size(),
+                snapshots.stream().mapToInt(List::size).sum(), retainedBytes / snapshots.size(), classes);
+    }
+
+    /**
+     * @return The instance count and bytes of each class on the heap, after a full collection.
+     */
+    private static Map<String, long[]> classHistogram() throws JMException {
+        String histogram = (String) ManagementFactory.getPlatformMBeanServer().invoke(
+                new ObjectName("com.sun.management:type=DiagnosticCommand"), "gcClassHistogram",
+                new Object[]{new String[0]}, new String[]{String[].class.getName()});
+        Map<String, long[]> classes = new HashMap<>();
+        for (String line : histogram.split("\n")) {
+            // num: #instances #bytes class name (module)
+            String[] columns = line.trim().split("\\s+");
+            if (columns.length >= 4 && columns[0].endsWith(":")) {
+                classes.merge(columns[3], new long[]{Long.parseLong(columns[1]), Long.parseLong(columns[2])},
+                        (a, b) -> new long[]{a[0] + b[0], a[1] + b[1]});
+            }
+        }
+        return classes;
+    }
+}
@@ -0,0 +1,118 @@
+package com.qubular.vicare.test;
+
+import com.qubular.vicare.TokenStore;
+import com.qubular.vicare.VicareConfiguration;
+import com.qubular.vicare.VicareService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.service.http.HttpService;
+import org.osgi.service.http.NamespaceException;
+
+import javax.servlet.Servlet;
+import javax.servlet.ServletException;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Hashtable;
+import java.util.List;
+
+/**
+ * Base of the benchmarks that measure the services in the tester. Benchmarks only run with the tester benchmark
+ * profile, i.e. mvn verify -Pbenchmark
+ */
+@ServiceBenchmark.Benchmark
+public abstract class ServiceBenchmark {
+    /**
+     * Enables a benchmark only when it is run with the benchmark profile.
+     */
+    @Target(ElementType.TYPE)
+    @Retention(RetentionPolicy.RUNTIME)
+    @Inherited
+    @EnabledIf("benchmark")
+    @interface Benchmark {
+    }
+
+    protected static final long INSTALLATION_ID = 2012616;
+    protected static final String GATEWAY_SERIAL = "7633107093013212";
+    /** The device feature responses, excluding the error responses */
+    protected static final List<String> FIXTURES = List.of(
+            "response/Solar.json",
+            "response/Vitocal200.json",
+            "response/Vitocal200S.json",
+            "response/Vitocal200S_E8NEV.json",
+            "response/Vitocal222S.json",
+            "response/Vitocal250A.json",
+            "response/Vitocal300G.json",
+            "response/Vitocaldens222F.json",
+            "response/VitochargeVX3.json",
+            "response/Vitodens100W.json",
+            "response/Vitodens111W.json",
+            "response/Vitodens200W.json",
+            "response/Vitodens200W_2.json",
+            "response/Vitodens200W_B2HA.json",
+            "response/Vitodens222W.json",
+            "response/Vitodens300W.json",
+            "response/Vitodens333F.json",
+            "response/VitolaUniferral.json",
+            "response/VitovalorPT2.json",
+            "response/zigbee_zk03839.json",
+            "response/zigbee_zk03840.json");
+
+    protected final AllocationMeter allocationMeter = new AllocationMeter();
+    protected BundleContext bundleContext;
+    protected SimpleConfiguration configuration;
+    protected VicareService vicareService;
+    protected HttpService httpService;
+    protected SimpleTokenStore tokenStore;
+    private boolean serving;
+
+    public static boolean benchmark() {
+        return Boolean.getBoolean("com.qubular.vicare.tester.benchmark");
+    }
+
+    /**
+     * @return The fixtures, as the arguments of a parameterized benchmark.
+     */
+    static List<String> fixtures() {
+        return FIXTURES;
+    }
+
+    protected <T> T getService(Class<T> clazz) {
+        return bundleContext.getService(bundleContext.getServiceReference(clazz));
+    }
+
+    @BeforeEach
+    public void setUpServices() {
+        bundleContext = FrameworkUtil.getBundle(this.getClass()).getBundleContext();
+        httpService = getService(HttpService.class);
+        configuration = (SimpleConfiguration) getService(VicareConfiguration.class);
+        configuration.setIOTServerURI("http://localhost:9000/iot/");
+        vicareService = getService(VicareService.class);
+        tokenStore = (SimpleTokenStore) getService(TokenStore.class);
+        tokenStore.storeAccessToken("mytoken", Instant.now().plus(1, ChronoUnit.DAYS));
+    }
+
+    @AfterEach
+    public void tearDownServices() {
+        if (serving) {
+            httpService.unregister("/iot");
+            serving = false;
+        }
+        tokenStore.reset();
+    }
+
+    /**
+     * Serves the API requests made by the benchmark, until it completes.
+     */
+    protected void serveApi(Servlet servlet) throws ServletException, NamespaceException {
+        httpService.registerServlet("/iot", servlet, new Hashtable<>(), httpService.createDefaultHttpContext());
+        serving = true;
+    }
+}
@@ -3,6 +3,8 @@ package com.qubular.vicare.test;
 import com.qubular.vicare.VicareConfiguration;
 import org.osgi.service.component.annotations.Component;
 
+import java.io.File;
+
 @Component(service = VicareConfiguration.class)
 public class SimpleConfiguration implements VicareConfiguration {
 
@@ -10,6 +12,7 @@ public class SimpleConfiguration implements VicareConfiguration {
     private String accessServerUri = DEFAULT_ACCESS_SERVER_URI;
     private String iotServerUri = DEFAULT_IOT_SERVER_URI;
     private int requestTimeoutSecs;
+    private File featureSnapshotFolder;
 
     public void setClientId(String clientId) {
         this.clientId = clientId;
@@ -27,6 +30,10 @@ public class SimpleConfiguration implements VicareConfiguration {
         this.requestTimeoutSecs = requestTimeoutSecs;
     }
 
+    public void setFeatureSnapshotFolder(File featureSnapshotFolder) {
+        this.featureSnapshotFolder = featureSnapshotFolder;
+    }
+
     @Override
     public String getClientId() {
         return clientId;
@@ -46,4 +53,9 @@ public class SimpleConfiguration implements VicareConfiguration {
     public String getIOTServerURI() {
         return iotServerUri;
     }
+
+    @Override
+    public File getFeatureSnapshotFolder() {
+        return featureSnapshotFolder;
+    }
 }
@@ -33,9 +33,11 @@ import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.security.GeneralSecurityException;
 import java.time.Instant;
 import java.time.LocalDate;
@@ -43,8 +45,10 @@ import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
+import java.util.function.UnaryOperator;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -108,6 +112,11 @@ public class VicareServiceTest {
         servlets.add(path);
     }
 
+    private void unregisterServlet(String path) {
+        httpService.unregister(path);
+        servlets.remove(path);
+    }
+
     @Test
     @DisabledIf("realConnection")
     public void setupPageRendersAndIncludesRedirectURI() throws Exception {
@@ -341,6 +350,98 @@ public class VicareServiceTest {
         assertEquals("eyJlbmMiOiJBMjU2R0NNIiwiYWxnIjoiUlNBLU9BRVAtMjU...", tokenStore.getAccessToken().get().token);
     }
 
+    private Servlet countingAccessServer(AtomicInteger refreshes, String accessToken) {
+        return new SimpleAccessServer(
+                (req, resp) -> {
+                    refreshes.incrementAndGet();
+                    try {
+                        // give concurrent callers time to pile up behind the refresh
+                        Thread.sleep(200);
+                        resp.setStatus(200);
+                        resp.setContentType("application/json");
+                        try (var os = resp.getOutputStream()) {
+                            os.print("{\n" +
+                                    "    \"access_token\": \"" + accessToken + "\",\n" +
+                                    "    \"token_type\": \"Bearer\",\n" +
+                                    "    \"expires_in\": 3600\n" +
+                                    "}");
+                        }
+                    } catch (IOException | InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+        );
+    }
+
+    private void registerInstallationsServlet(Queue<String> authorizations) throws ServletException, NamespaceException {
+        Servlet iotServlet = new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                authorizations.add(req.getHeader("Authorization"));
+                String jsonResponse = new String(getClass().getResourceAsStream("installationsResponse.json").readAllBytes(), StandardCharsets.UTF_8);
+
+                resp.setContentType("application/json");
+                resp.setStatus(200);
+                try (ServletOutputStream outputStream = resp.getOutputStream()) {
+                    outputStream.print(jsonResponse);
+                }
+            }
+        };
+        registerServlet("/iot", iotServlet);
+    }
+
+    @Test
+    @DisabledIf("realConnection")
+    public void concurrentRequestsShareOneTokenRefresh() throws Exception {
+        tokenStore.storeAccessToken("mytoken", Instant.now().minus(1, ChronoUnit.SECONDS));
+        tokenStore.storeRefreshToken("myrefresh");
+        AtomicInteger refreshes = new AtomicInteger();
+        registerServlet("/grantAccess", countingAccessServer(refreshes, "newtoken"));
+        Queue<String> authorizations = new ConcurrentLinkedQueue<>();
+        registerInstallationsServlet(authorizations);
+
+        int requests = 10;
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        try {
+            List<Future<List<Installation>>> results = new ArrayList<>();
+            for (int i = 0; i < requests; ++i) {
+                results.add(executor.submit(() -> vicareService.getInstallations()));
+            }
+            for (Future<List<Installation>> result : results) {
+                assertFalse(result.get(10, TimeUnit.SECONDS).isEmpty());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, refreshes.get());
+        assertEquals(requests, authorizations.size());
+        assertTrue(authorizations.stream().allMatch("Bearer newtoken"::equals));
+        assertEquals("newtoken", tokenStore.getAccessToken().get().token);
+    }
+
+    @Test
+    @DisabledIf("realConnection")
+    public void tokenIsRefreshedInBackgroundAheadOfExpiry() throws Exception {
+        tokenStore.storeAccessToken("mytoken", Instant.now().plus(2, ChronoUnit.MINUTES));
+        tokenStore.storeRefreshToken("myrefresh");
+        AtomicInteger refreshes = new AtomicInteger();
+        registerServlet("/grantAccess", countingAccessServer(refreshes, "newtoken"));
+        Queue<String> authorizations = new ConcurrentLinkedQueue<>();
+        registerInstallationsServlet(authorizations);
+
+        vicareService.getInstallations();
+        vicareService.getInstallations();
+        assertEquals(List.of("Bearer mytoken", "Bearer mytoken"), List.copyOf(authorizations));
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!"newtoken".equals(tokenStore.getAccessToken().get().token) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals("newtoken", tokenStore.getAccessToken().get().token);
+        assertEquals(1, refreshes.get());
+    }
+
     @Test
     @DisabledIf("realConnection")
     public void getInstallations() throws ServletException, NamespaceException {
@@ -441,6 +542,216 @@ public class VicareServiceTest {
 
     }
 
+    @Test
+    @DisabledIf("realConnection")
+    public void getFeatureFetchesSingleFeature() throws ServletException, NamespaceException, AuthenticationException, IOException {
+        CompletableFuture<Void> servletTestResult = new CompletableFuture<>();
+        tokenStore.storeAccessToken("mytoken", Instant.now().plus(1, ChronoUnit.DAYS));
+        Servlet iotServlet = new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+                try {
+                    assertEquals("/iot/v2/features/installations/2012616/gateways/7633107093013212/devices/0/features/heating.circuits.0.operating.modes.active", URI.create(req.getRequestURI()).getPath());
+                    assertEquals("Bearer mytoken", req.getHeader("Authorization"));
+                    String jsonResponse = new String(getClass().getResourceAsStream("deviceFeatureResponse.json").readAllBytes(), StandardCharsets.UTF_8);
+
+                    resp.setContentType("application/json");
+                    resp.setStatus(200);
+                    try (ServletOutputStream outputStream = resp.getOutputStream()) {
+                        outputStream.print(jsonResponse);
+                    }
+                    servletTestResult.complete(null);
+                } catch (AssertionFailedError e) {
+                    logger.warn("getFeature() FAILED: {}", e.getMessage());
+                    servletTestResult.completeExceptionally(e);
+                    resp.setStatus(400);
+                }
+            }
+        };
+        registerServlet("/iot", iotServlet);
+        Optional<Feature> feature = vicareService.getFeature(2012616, "7633107093013212", "0", "heating.circuits.0.operating.modes.active");
+        servletTestResult.orTimeout(10, TimeUnit.SECONDS).join();
+
+        assertTrue(feature.isPresent());
+        assertEquals(new StringValue("dhw"), feature.get().getProperties().get("value"));
+        assertEquals(1, feature.get().getCommands().size());
+        assertEquals("setMode", feature.get().getCommands().get(0).getName());
+
+        unregisterServlet("/iot");
+        List<Feature> features = getFeatures("deviceFeaturesResponse.json");
+        assertEquals(features.stream()
+                        .filter(f -> f.getName().equals("heating.circuits.0.operating.modes.active"))
+                        .findFirst(),
+                feature);
+    }
+
+    @Test
+    @DisabledIf("realConnection")
+    public void getFeatureReturnsEmptyForUnknownFeature() throws ServletException, NamespaceException, AuthenticationException, IOException {
+        tokenStore.storeAccessToken("mytoken", Instant.now().plus(1, ChronoUnit.DAYS));
+        Servlet iotServlet = new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) {
+                resp.setStatus(404);
+            }
+        };
+        registerServlet("/iot", iotServlet);
+        assertEquals(Optional.empty(), vicareService.getFeature(2012616, "7633107093013212", "0", "heating.unknown"));
+    }
+
+    @Test
+    @DisabledIf("realConnection")
+    public void featureResponseIsPersistedForWarmStart() throws Exception {
+        File snapshotFolder = Files.createTempDirectory("snapshots").toFile();
+        configuration.setFeatureSnapshotFolder(snapshotFolder);
+        try {
+            assertTrue(vicareService.getPersistedFeatures(2012616, "7633107093013212", "0").isEmpty());
+            Instant before = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+            List<Feature> features = getFeatures("deviceFeaturesResponse.json");
+            unregisterServlet("/iot");
+
+            VicareService.PersistedFeatures persisted = vicareService.getPersistedFeatures(2012616, "7633107093013212", "0")
+                    .orElseThrow();
+            assertEquals(features, persisted.features);
+            assertFalse(persisted.timestamp.isBefore(before));
+            assertTrue(vicareService.getPersistedFeatures(2012616, "7633107093013212", "1").isEmpty());
+        } finally {
+            configuration.setFeatureSnapshotFolder(null);
+            for (File file : Objects.requireNonNull(snapshotFolder.listFiles())) {
+                file.delete();
+            }
+            snapshotFolder.delete();
+        }
+    }
+
+    @Test
+    @DisabledIf("realConnection")
+    public void unchangedFeatureResponseIsNotPersistedAgain() throws Exception {
+        File snapshotFolder = Files.createTempDirectory("snapshots").toFile();
+        configuration.setFeatureSnapshotFolder(snapshotFolder);
+        try {
+            getFeatures("deviceFeaturesResponse.json");
+            unregisterServlet("/iot");
+            File snapshotFile = Objects.requireNonNull(snapshotFolder.listFiles())[0];
+            long lastWritten = Instant.now().minus(10, ChronoUnit.MINUTES).toEpochMilli();
+            assertTrue(snapshotFile.setLastModified(lastWritten));
+
+            getFeatures("deviceFeaturesResponse.json");
+            unregisterServlet("/iot");
+            assertEquals(lastWritten, snapshotFile.lastModified());
+
+            getFeatures("deviceFeaturesResponse.json", response -> response.replace("2022-07-06T07:58:00.380Z", "2022-07-06T08:58:00.380Z"));
+            unregisterServlet("/iot");
+            assertNotEquals(lastWritten, snapshotFile.lastModified());
+        } finally {
+            configuration.setFeatureSnapshotFolder(null);
+            for (File file : Objects.requireNonNull(snapshotFolder.listFiles())) {
+                file.delete();
+            }
+            snapshotFolder.delete();
+        }
+    }
+
+    @Test
+    @DisabledIf("realConnection")
+    public void unchangedFeaturesAreReusedBetweenPolls() throws Exception {
+        tokenStore.storeAccessToken("mytoken", Instant.now().plus(1, ChronoUnit.DAYS));
+        String jsonResponse = new String(getClass().getResourceAsStream("deviceFeaturesResponse.json").readAllBytes(), StandardCharsets.UTF_8);
+        AtomicReference<String> response = new AtomicReference<>(jsonResponse);
+        registerServlet("/iot", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                resp.setContentType("application/json");
+                resp.setStatus(200);
+                try (ServletOutputStream outputStream = resp.getOutputStream()) {
+                    outputStream.print(response.get());
+                }
+            }
+        });
+
+        List<Feature> features = vicareService.getFeatures(2012616, "7633107093013212", "0");
+        List<Feature> unchanged = vicareService.getFeatures(2012616, "7633107093013212", "0");
+        assertEquals(features.size(), unchanged.size());
+        for (int i = 0; i < features.size(); ++i) {
+            assertSame(features.get(i), unchanged.get(i));
+        }
+
+        // nothing but the name and timestamp of an unchanged feature is read
+        response.set(jsonResponse.replaceAll("\"(properties|commands)\"\\s*:", "\"$1\": \"unreadable\", \"ignored\":"));
+        unchanged = vicareService.getFeatures(2012616, "7633107093013212", "0");
+        assertEquals(features.size(), unchanged.size());
+        for (int i = 0; i < features.size(); ++i) {
+            assertSame(features.get(i), unchanged.get(i));
+        }
+
+        // every feature has a new timestamp, so is decoded again
+        response.set(jsonResponse.replaceAll("(\"timestamp\"\\s*:\\s*\")", "$1changed "));
+        List<Feature> changed = vicareService.getFeatures(2012616, "7633107093013212", "0");
+        assertEquals(features, changed);
+        for (int i = 0; i < features.size(); ++i) {
+            assertNotSame(features.get(i), changed.get(i));
+        }
+    }
+
+    @Test
+    @DisabledIf("realConnection")
+    public void getFeaturesAsyncKeepsRequestsInFlightWithoutBlocking() throws Exception {
+        tokenStore.storeAccessToken("mytoken", Instant.now().plus(1, ChronoUnit.DAYS));
+        int requests = 20;
+        CountDownLatch allInFlight = new CountDownLatch(requests);
+        Servlet iotServlet = new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                allInFlight.countDown();
+                try {
+                    // only respond once every request has reached the server
+                    assertTrue(allInFlight.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                String jsonResponse = new String(getClass().getResourceAsStream("deviceFeaturesResponse.json").readAllBytes(), StandardCharsets.UTF_8);
+                resp.setContentType("application/json");
+                resp.setStatus(200);
+                try (ServletOutputStream outputStream = resp.getOutputStream()) {
+                    outputStream.print(jsonResponse);
+                }
+            }
+        };
+        registerServlet("/iot", iotServlet);
+
+        List<CompletableFuture<List<Feature>>> results = new ArrayList<>();
+        for (int i = 0; i < requests; ++i) {
+            results.add(vicareService.getFeaturesAsync(2012616, "7633107093013212", "0"));
+        }
+        assertTrue(results.stream().noneMatch(CompletableFuture::isDone));
+        for (CompletableFuture<List<Feature>> result : results) {
+            assertFalse(result.get(20, TimeUnit.SECONDS).isEmpty());
+        }
+    }
+
+    @Test
+    @DisabledIf("realConnection")
+    public void sendCommandAsyncFailsWithCommandFailure() throws Exception {
+        tokenStore.storeAccessToken("mytoken", Instant.now().plus(1, ChronoUnit.DAYS));
+        Servlet iotServlet = new HttpServlet() {
+            @Override
+            protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                resp.setContentType("application/json");
+                resp.setStatus(200);
+                try (ServletOutputStream outputStream = resp.getOutputStream()) {
+                    outputStream.print("{\"data\": {\"success\": false, \"message\": \"Rejected\", \"reason\": \"INVALID\"}}");
+                }
+            }
+        };
+        registerServlet("/iot", iotServlet);
+
+        URI commandUri = URI.create(configuration.getIOTServerURI()).resolve("v1/features/installations/2012616/gateways/7633107093013212/devices/0/features/heating.circuits.0.operating.modes.active/commands/setMode");
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> vicareService.sendCommandAsync(commandUri, Map.of("mode", "heating")).get(10, TimeUnit.SECONDS));
+        assertInstanceOf(CommandFailureException.class, e.getCause());
+        assertThrows(CommandFailureException.class, () -> vicareService.sendCommand(commandUri, Map.of("mode", "heating")));
+    }
+
     @Test
     @DisabledIf("realConnection")
     public void supports_heating_boiler_serial() throws ServletException, NamespaceException, AuthenticationException, IOException {
@@ -1079,6 +1390,10 @@ public class VicareServiceTest {
     }
 
     private List<Feature> getFeatures(final String fileName) throws ServletException, NamespaceException, AuthenticationException, IOException {
+        return getFeatures(fileName, UnaryOperator.identity());
+    }
+
+    private List<Feature> getFeatures(final String fileName, UnaryOperator<String> responseTransform) throws ServletException, NamespaceException, AuthenticationException, IOException {
         CompletableFuture<Void> servletTestResult = new CompletableFuture<>();
         tokenStore.storeAccessToken("mytoken", Instant.now().plus(1, ChronoUnit.DAYS));
         Servlet iotServlet = new HttpServlet() {
@@ -1088,7 +1403,7 @@ public class VicareServiceTest {
                 try {
                     assertEquals("/iot/v2/features/installations/2012616/gateways/7633107093013212/devices/0/features", URI.create(req.getRequestURI()).getPath());
                     assertEquals("Bearer mytoken", req.getHeader("Authorization"));
-                    String jsonResponse = new String(getClass().getResourceAsStream(fileName).readAllBytes(), StandardCharsets.UTF_8);
+                    String jsonResponse = responseTransform.apply(new String(getClass().getResourceAsStream(fileName).readAllBytes(), StandardCharsets.UTF_8));
 
                     resp.setContentType("application/json");
                     resp.setStatus(200);
@@ -1513,6 +1828,21 @@ public class VicareServiceTest {
         );
     }
 
+    @Test
+    @DisabledIf("realConnection")
+    public void featuresHaveValueEquality() throws ServletException, AuthenticationException, NamespaceException, IOException {
+        List<Feature> features = getFeatures("deviceFeaturesResponse4.json");
+        unregisterServlet("/iot");
+        // with new timestamps, so that the features are decoded again rather than reused
+        List<Feature> refetchedFeatures = getFeatures("deviceFeaturesResponse4.json",
+                response -> response.replaceAll("(\"timestamp\"\\s*:\\s*\")", "$1changed "));
+
+        assertNotSame(features.get(0), refetchedFeatures.get(0));
+        assertEquals(features, refetchedFeatures);
+        assertEquals(features.hashCode(), refetchedFeatures.hashCode());
+        assertNotEquals(features.get(0), features.get(1));
+    }
+
     public static Stream<Arguments> source_heating_buffer_sensors_temperature() {
         return Stream.of(
                 Arguments.of("deviceFeaturesResponse8.json", "heating.buffer.sensors.temperature.top", StatusValue.NOT_CONNECTED, null),